@@ -0,0 +1,141 @@
+package data_structures;
+
+import java.util.Arrays;
+
+/**
+ * A Red Black Tree that keeps its nodes in parallel arrays instead of Node objects.
+ * A node is an index: its children and parent are int indices, its color is one bit
+ * in a packed bitset, and its key and value sit at the same index in the key and
+ * value arrays. There is no object header or reference per link, and neighbouring
+ * nodes often share cache lines. Deleted slots go on a free list (chained through
+ * the left array) and are handed out again by the next add.
+ * @author Milad Balkhinezhad
+ */
+
+public class ArrayRedBlackTree<K, V> extends IndexedRedBlackTree<K, V> {
+
+	int[] left, right, parent;
+	long[] black;
+	Object[] keys, values;
+	// slots below used have been handed out at least once
+	int used;
+	int freeHead;
+
+	public ArrayRedBlackTree() {
+		this(16);
+	}
+
+	/**
+	 * @param capacity the number of nodes to make room for up front
+	 */
+	public ArrayRedBlackTree(int capacity) {
+		capacity = Math.max(capacity, 2);
+		left = new int[capacity];
+		right = new int[capacity];
+		parent = new int[capacity];
+		black = new long[(capacity + 63) >>> 6];
+		keys = new Object[capacity];
+		values = new Object[capacity];
+		freeHead = NIL;
+	}
+
+	int left(int node) {
+		return left[node];
+	}
+
+	int right(int node) {
+		return right[node];
+	}
+
+	int parent(int node) {
+		return parent[node];
+	}
+
+	void setLeft(int node, int child) {
+		left[node] = child;
+	}
+
+	void setRight(int node, int child) {
+		right[node] = child;
+	}
+
+	void setParent(int node, int parent) {
+		this.parent[node] = parent;
+	}
+
+	boolean isBlack(int node) {
+		return node == NIL || (black[node >>> 6] & (1L << node)) != 0;
+	}
+
+	void setBlack(int node, boolean isBlack) {
+		if (isBlack)
+			black[node >>> 6] |= 1L << node;
+		else
+			black[node >>> 6] &= ~(1L << node);
+	}
+
+	K key(int node) {
+		return (K) keys[node];
+	}
+
+	V value(int node) {
+		return (V) values[node];
+	}
+
+	int compare(K key, int node) {
+		return ((Comparable<K>) key).compareTo((K) keys[node]);
+	}
+
+	void copyEntry(int from, int to) {
+		keys[to] = keys[from];
+		values[to] = values[from];
+	}
+
+	/**
+	 * Takes a slot from the free list, or the next unused one, and makes it a red leaf.
+	 */
+	int newNode(K key, V value) {
+		int node;
+		if (freeHead != NIL) {
+			node = freeHead;
+			freeHead = left[node];
+		} else {
+			if (used == keys.length)
+				grow();
+			node = used++;
+		}
+		left[node] = right[node] = parent[node] = NIL;
+		setBlack(node, false);
+		keys[node] = key;
+		values[node] = value;
+		return node;
+	}
+
+	/**
+	 * Puts a slot on the free list, dropping its key and value so they can be collected.
+	 */
+	void freeNode(int node) {
+		keys[node] = null;
+		values[node] = null;
+		left[node] = freeHead;
+		freeHead = node;
+	}
+
+	private void grow() {
+		int capacity = keys.length + (keys.length >>> 1);
+		left = Arrays.copyOf(left, capacity);
+		right = Arrays.copyOf(right, capacity);
+		parent = Arrays.copyOf(parent, capacity);
+		black = Arrays.copyOf(black, (capacity + 63) >>> 6);
+		keys = Arrays.copyOf(keys, capacity);
+		values = Arrays.copyOf(values, capacity);
+	}
+
+	/**
+	 * The number of node slots the arrays currently have room for
+	 * @return the capacity of the tree
+	 */
+	public int capacity() {
+		return keys.length;
+	}
+}
@@ -0,0 +1,573 @@
+package data_structures;
+
+import java.time.Duration;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * A cache with a size limit, built on a HashI that maps each key to its entry. The
+ * limit is a total weight: by default every entry weighs 1, so it is a number of
+ * entries, and with a weigher such as the bytes of the key and value it is a memory
+ * budget. When an add goes over the limit the policy picks what to throw out:
+ * <ul>
+ * <li>LRU: the entry used longest ago goes</li>
+ * <li>W_TINY_LFU: new entries wait in a small LRU window (1% of the limit). When one
+ * leaves the window it only gets into the main part if it has been asked for more
+ * often than the entry the main part would throw out for it, going by a small
+ * count-min sketch of how often every key has been asked for lately. The main part
+ * is a segmented LRU: an entry hit a second time moves to the protected segment
+ * (80% of the main part) and is only thrown out after it has dropped back. A burst
+ * of keys that are used once cannot push out the keys that are used all the time.</li>
+ * </ul>
+ * Entries can have a time to live, measured on a clock that can be swapped out for
+ * tests. An entry that has lived too long is never returned, and a hashed timer
+ * wheel of WHEEL_SIZE one second buckets throws it out within a second of the clock
+ * passing it, touching only the buckets the clock has moved through, so expiry costs
+ * O(1) per entry rather than a scan of the cache. Entries that live longer than a
+ * full turn of the wheel are looked at once per turn.
+ * <p>
+ * Every method takes one lock, so the cache can be shared between threads; the
+ * counts of hits, misses, evictions and expiries are kept under the same lock.
+ * @author Milad Balkhinezhad
+ *
+ * @param <K> the key, which must be Comparable for the hash
+ * @param <V> the value
+ */
+public class BoundedCache<K, V> {
+
+	public enum Policy {
+		LRU, W_TINY_LFU
+	}
+
+	// the buckets in the timer wheel, a power of two
+	static final int WHEEL_SIZE = 256;
+	static final long TICK_NANOS = 1000000000L;
+	// expiresAt of an entry that never expires
+	static final long NEVER = Long.MAX_VALUE;
+
+	private static final byte WINDOW = 0, PROBATION = 1, PROTECTED = 2;
+
+	static final class Node<K, V> {
+		final K key;
+		V value;
+		int weight;
+		long expiresAt;
+		byte segment;
+		Node<K, V> prev, next;
+		// the links of the timer wheel bucket, null when not in the wheel
+		Node<K, V> wheelPrev, wheelNext;
+
+		Node(K key, V value) {
+			this.key = key;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * A list of nodes with a sentinel, the least recently used first
+	 */
+	static final class Lru<K, V> {
+		final Node<K, V> head = new Node<K, V>(null, null);
+		long weight;
+
+		Lru() {
+			head.prev = head.next = head;
+		}
+
+		Node<K, V> first() {
+			return head.next == head ? null : head.next;
+		}
+
+		void addLast(Node<K, V> node) {
+			node.prev = head.prev;
+			node.next = head;
+			head.prev.next = node;
+			head.prev = node;
+			weight += node.weight;
+		}
+
+		void unlink(Node<K, V> node) {
+			node.prev.next = node.next;
+			node.next.prev = node.prev;
+			node.prev = node.next = null;
+			weight -= node.weight;
+		}
+	}
+
+	/**
+	 * Counts how often keys have been seen, in four rows of 4-bit counters. A key's
+	 * count is the smallest of its four counters, which can only be too high, and
+	 * only when other keys collide with it in every row. All counters are halved
+	 * after 10 increments per counter, so old popularity fades.
+	 */
+	static final class FrequencySketch {
+		final byte[] counters;
+		final int mask;
+		int additions;
+		final int resetAt;
+
+		FrequencySketch(long capacity) {
+			int width = 64;
+			while (width < capacity && width < (1 << 26))
+				width <<= 1;
+			counters = new byte[4 * width];
+			mask = width - 1;
+			resetAt = 10 * width;
+		}
+
+		private int index(int hash, int row) {
+			int h = (hash + row * 0x9E3779B9) * 0x85EBCA6B;
+			h ^= h >>> 15;
+			return row * (mask + 1) + (h & mask);
+		}
+
+		void increment(int hash) {
+			boolean added = false;
+			for (int row = 0; row < 4; row++) {
+				int i = index(hash, row);
+				if (counters[i] < 15) {
+					counters[i]++;
+					added = true;
+				}
+			}
+			if (added && ++additions >= resetAt) {
+				for (int i = 0; i < counters.length; i++)
+					counters[i] >>= 1;
+				additions /= 2;
+			}
+		}
+
+		int frequency(int hash) {
+			int min = 15;
+			for (int row = 0; row < 4; row++)
+				min = Math.min(min, counters[index(hash, row)]);
+			return min;
+		}
+	}
+
+	/**
+	 * The counts of a cache at one moment
+	 */
+	public static final class Stats {
+		public final long hits, misses, evictions, expirations;
+
+		Stats(long hits, long misses, long evictions, long expirations) {
+			this.hits = hits;
+			this.misses = misses;
+			this.evictions = evictions;
+			this.expirations = expirations;
+		}
+
+		/**
+		 * @return the share of lookups that were hits, or 0 if there were none
+		 */
+		public double hitRate() {
+			long lookups = hits + misses;
+			return lookups == 0 ? 0 : (double) hits / lookups;
+		}
+
+		@Override
+		public String toString() {
+			return "hits " + hits + ", misses " + misses + " (hit rate " + String.format("%.3f", hitRate()) + "), evictions "
+					+ evictions + ", expirations " + expirations;
+		}
+	}
+
+	final HashI<K, Node<K, V>> table;
+	final Policy policy;
+	final long maxWeight;
+	final long windowMax, mainMax, protectedMax;
+	final ToIntBiFunction<K, V> weigher;
+	final long defaultTtlNanos;
+	final LongSupplier clock;
+	final FrequencySketch sketch;
+	final Lru<K, V> window = new Lru<K, V>(), probation = new Lru<K, V>(), protectedLru = new Lru<K, V>();
+	final Node<K, V>[] wheel;
+	long currentTick;
+	final ReentrantLock lock = new ReentrantLock();
+	long hits, misses, evictions, expirations;
+
+	/**
+	 * A W_TINY_LFU cache of up to maxEntries entries that never expire
+	 * @param maxEntries the most entries to keep
+	 */
+	public BoundedCache(int maxEntries) {
+		this(maxEntries, Policy.W_TINY_LFU);
+	}
+
+	/**
+	 * A cache of up to maxEntries entries that never expire
+	 * @param maxEntries the most entries to keep
+	 * @param policy how to choose what to throw out
+	 */
+	public BoundedCache(int maxEntries, Policy policy) {
+		this(maxEntries, null, policy, null, System::nanoTime);
+	}
+
+	/**
+	 * A cache kept in an OpenHash
+	 * @param maxWeight the most the entries may weigh in total
+	 * @param weigher the weight of an entry, at least 0, or null for a weight of 1 each
+	 * @param policy how to choose what to throw out
+	 * @param defaultTtl how long an entry added without a time to live lives, or null for ever
+	 * @param clock the time in nanoseconds, such as System::nanoTime
+	 */
+	public BoundedCache(long maxWeight, ToIntBiFunction<K, V> weigher, Policy policy, Duration defaultTtl, LongSupplier clock) {
+		this(new OpenHash<K, Node<K, V>>(16), maxWeight, weigher, policy, defaultTtl, clock);
+	}
+
+	/**
+	 * A cache kept in the given table, for example a Hash
+	 * @param table an empty hash to keep the entries in
+	 */
+	BoundedCache(HashI<K, Node<K, V>> table, long maxWeight, ToIntBiFunction<K, V> weigher, Policy policy,
+			Duration defaultTtl, LongSupplier clock) {
+		if (!table.isEmpty())
+			throw new IllegalArgumentException("the table must start empty");
+		if (maxWeight < 1)
+			throw new IllegalArgumentException("maxWeight must be at least 1: " + maxWeight);
+		this.table = table;
+		this.maxWeight = maxWeight;
+		this.weigher = weigher;
+		this.policy = policy;
+		this.defaultTtlNanos = toNanos(defaultTtl);
+		this.clock = clock;
+		if (policy == Policy.W_TINY_LFU) {
+			windowMax = Math.max(1, maxWeight / 100);
+			mainMax = maxWeight - windowMax;
+			protectedMax = mainMax * 8 / 10;
+			sketch = new FrequencySketch(weigher == null ? maxWeight : Math.min(maxWeight, 1 << 20));
+		} else {
+			windowMax = 0;
+			mainMax = maxWeight;
+			protectedMax = 0;
+			sketch = null;
+		}
+		wheel = (Node<K, V>[]) new Node[WHEEL_SIZE];
+		for (int i = 0; i < WHEEL_SIZE; i++) {
+			wheel[i] = new Node<K, V>(null, null);
+			wheel[i].wheelPrev = wheel[i].wheelNext = wheel[i];
+		}
+		currentTick = Math.floorDiv(clock.getAsLong(), TICK_NANOS);
+	}
+
+	private static long toNanos(Duration ttl) {
+		if (ttl == null)
+			return NEVER;
+		if (ttl.isNegative() || ttl.isZero())
+			throw new IllegalArgumentException("time to live must be positive: " + ttl);
+		try {
+			return ttl.toNanos();
+		} catch (ArithmeticException e) {
+			return NEVER;
+		}
+	}
+
+	private static int spread(int hashCode) {
+		int h = hashCode * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * The value for the key, or null if it is not in the cache or has expired
+	 * @param key the key to look up
+	 * @return the value
+	 */
+	public V get(K key) {
+		lock.lock();
+		try {
+			long now = clock.getAsLong();
+			advance(now);
+			if (sketch != null)
+				sketch.increment(spread(key.hashCode()));
+			Node<K, V> node = table.getValue(key);
+			if (node == null) {
+				misses++;
+				return null;
+			}
+			if (node.expiresAt <= now) {
+				discard(node);
+				expirations++;
+				misses++;
+				return null;
+			}
+			hits++;
+			touch(node);
+			return node.value;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Adds or replaces an entry that lives for the default time to live
+	 * @param key the key
+	 * @param value the value
+	 */
+	public void put(K key, V value) {
+		put(key, value, defaultTtlNanos);
+	}
+
+	/**
+	 * Adds or replaces an entry
+	 * @param key the key
+	 * @param value the value
+	 * @param ttl how long the entry lives, or null for ever
+	 */
+	public void put(K key, V value, Duration ttl) {
+		put(key, value, toNanos(ttl));
+	}
+
+	private void put(K key, V value, long ttlNanos) {
+		int weight = weigher == null ? 1 : weigher.applyAsInt(key, value);
+		if (weight < 0)
+			throw new IllegalArgumentException("negative weight: " + weight);
+		lock.lock();
+		try {
+			long now = clock.getAsLong();
+			advance(now);
+			if (sketch != null)
+				sketch.increment(spread(key.hashCode()));
+			Node<K, V> node = table.getValue(key);
+			if (weight > maxWeight) {
+				// it could never fit
+				if (node != null)
+					discard(node);
+				evictions++;
+				return;
+			}
+			long expiresAt = ttlNanos == NEVER || now > NEVER - ttlNanos ? NEVER : now + ttlNanos;
+			if (node != null) {
+				// a replaced entry keeps its place, as if it had been hit
+				lruOf(node).weight += weight - node.weight;
+				node.weight = weight;
+				node.value = value;
+				unschedule(node);
+				node.expiresAt = expiresAt;
+				schedule(node);
+				touch(node);
+				evict();
+				return;
+			}
+			node = new Node<K, V>(key, value);
+			node.weight = weight;
+			node.expiresAt = expiresAt;
+			table.add(key, node);
+			schedule(node);
+			if (policy == Policy.W_TINY_LFU) {
+				node.segment = WINDOW;
+				window.addLast(node);
+			} else {
+				node.segment = PROBATION;
+				probation.addLast(node);
+			}
+			evict();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Removes an entry
+	 * @param key the key to remove
+	 * @return whether it was in the cache
+	 */
+	public boolean remove(K key) {
+		lock.lock();
+		try {
+			Node<K, V> node = table.getValue(key);
+			if (node == null)
+				return false;
+			discard(node);
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Throws out every entry that has expired. The cache does this itself as it is
+	 * used; this is for a cache that has gone quiet.
+	 */
+	public void cleanUp() {
+		lock.lock();
+		try {
+			advance(clock.getAsLong());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Empties the cache. The counts are kept.
+	 */
+	public void clear() {
+		lock.lock();
+		try {
+			table.makeEmpty();
+			for (Lru<K, V> lru : new Lru[] { window, probation, protectedLru }) {
+				lru.head.prev = lru.head.next = lru.head;
+				lru.weight = 0;
+			}
+			for (Node<K, V> bucket : wheel)
+				bucket.wheelPrev = bucket.wheelNext = bucket;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * The number of entries, which can include expired ones not yet thrown out
+	 * @return the number of entries
+	 */
+	public int size() {
+		lock.lock();
+		try {
+			return table.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * The total weight of the entries, never more than maxWeight
+	 * @return the total weight
+	 */
+	public long weightedSize() {
+		lock.lock();
+		try {
+			return window.weight + probation.weight + protectedLru.weight;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * The counts of hits, misses, evictions and expiries so far
+	 * @return the counts
+	 */
+	public Stats stats() {
+		lock.lock();
+		try {
+			return new Stats(hits, misses, evictions, expirations);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private Lru<K, V> lruOf(Node<K, V> node) {
+		return node.segment == WINDOW ? window : node.segment == PROBATION ? probation : protectedLru;
+	}
+
+	/**
+	 * Moves a node that was hit to where the policy keeps recently used nodes
+	 */
+	private void touch(Node<K, V> node) {
+		Lru<K, V> lru = lruOf(node);
+		lru.unlink(node);
+		if (node.segment == PROBATION && policy == Policy.W_TINY_LFU) {
+			// a second hit: protect it, and make room by demoting the oldest protected nodes
+			node.segment = PROTECTED;
+			protectedLru.addLast(node);
+			while (protectedLru.weight > protectedMax) {
+				Node<K, V> demoted = protectedLru.first();
+				protectedLru.unlink(demoted);
+				demoted.segment = PROBATION;
+				probation.addLast(demoted);
+			}
+		} else
+			lru.addLast(node);
+	}
+
+	/**
+	 * Throws out nodes until every part of the cache is within its limit
+	 */
+	private void evict() {
+		while (window.weight > windowMax) {
+			Node<K, V> candidate = window.first();
+			window.unlink(candidate);
+			candidate.segment = PROBATION;
+			// the candidate duels the main part's oldest nodes for its place
+			boolean admit = true;
+			int frequency = sketch.frequency(spread(candidate.key.hashCode()));
+			while (admit && probation.weight + protectedLru.weight + candidate.weight > mainMax) {
+				Node<K, V> victim = probation.first() != null ? probation.first() : protectedLru.first();
+				if (victim != null && frequency > sketch.frequency(spread(victim.key.hashCode())))
+					evict(victim);
+				else
+					admit = false;
+			}
+			if (admit)
+				probation.addLast(candidate);
+			else {
+				unschedule(candidate);
+				table.remove(candidate.key);
+				evictions++;
+			}
+		}
+		while (probation.weight + protectedLru.weight > mainMax)
+			evict(probation.first() != null ? probation.first() : protectedLru.first());
+	}
+
+	private void evict(Node<K, V> node) {
+		discard(node);
+		evictions++;
+	}
+
+	/**
+	 * Takes a node out of the table, its list and the wheel
+	 */
+	private void discard(Node<K, V> node) {
+		table.remove(node.key);
+		lruOf(node).unlink(node);
+		unschedule(node);
+	}
+
+	/**
+	 * Puts a node in the wheel bucket of the tick it expires in, rounded up, so the
+	 * bucket is only reached once the node has expired
+	 */
+	private void schedule(Node<K, V> node) {
+		if (node.expiresAt == NEVER)
+			return;
+		long tick = -Math.floorDiv(-node.expiresAt, TICK_NANOS);
+		Node<K, V> bucket = wheel[(int) (tick & (WHEEL_SIZE - 1))];
+		node.wheelNext = bucket.wheelNext;
+		node.wheelPrev = bucket;
+		bucket.wheelNext.wheelPrev = node;
+		bucket.wheelNext = node;
+	}
+
+	private void unschedule(Node<K, V> node) {
+		if (node.wheelNext == null)
+			return;
+		node.wheelPrev.wheelNext = node.wheelNext;
+		node.wheelNext.wheelPrev = node.wheelPrev;
+		node.wheelPrev = node.wheelNext = null;
+	}
+
+	/**
+	 * Turns the wheel to now, throwing out the expired nodes in every bucket it
+	 * passes. Nodes in those buckets that expire on a later turn stay.
+	 */
+	private void advance(long now) {
+		long tick = Math.floorDiv(now, TICK_NANOS);
+		if (tick <= currentTick)
+			return;
+		long ticks = Math.min(tick - currentTick, WHEEL_SIZE);
+		for (long t = 1; t <= ticks; t++) {
+			Node<K, V> bucket = wheel[(int) ((currentTick + t) & (WHEEL_SIZE - 1))];
+			Node<K, V> node = bucket.wheelNext;
+			while (node != bucket) {
+				Node<K, V> next = node.wheelNext;
+				if (node.expiresAt <= now) {
+					discard(node);
+					expirations++;
+				}
+				node = next;
+			}
+		}
+		currentTick = tick;
+	}
+}
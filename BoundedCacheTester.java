@@ -0,0 +1,239 @@
+package RBTester;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import data_structures.BoundedCache;
+import data_structures.BoundedCache.Policy;
+
+/**
+ * Checks BoundedCache on a clock the tester moves by hand, so every run does the
+ * same thing:
+ * <ul>
+ * <li>LRU, counting entries and weighing them, against a LinkedHashMap in access
+ * order that throws out its eldest entries the same way</li>
+ * <li>W_TINY_LFU keeps keys that are used all the time through a stream of keys
+ * used once, which LRU does not, and never goes over its weight budget</li>
+ * <li>entries expire on time, both inside one turn of the timer wheel and after
+ * several turns, whether the clock moves a second at a time or jumps</li>
+ * </ul>
+ * @author Milad Balkhinezhad
+ */
+public class BoundedCacheTester {
+
+	static boolean error = false;
+	static final long SECOND = 1000000000L;
+	// longer than the timer wheel turns, which is 256 seconds
+	static final int LONG_TTL_SECONDS = 1000;
+
+	public static void main(String[] args) {
+		checkLruOrder(false);
+		checkLruOrder(true);
+		checkTinyLfu();
+		checkExpiry();
+
+		if (!error)
+			System.out.println("BoundedCache: all checks passed.");
+	}
+
+	/**
+	 * Random gets, puts and removes against a LinkedHashMap in access order that
+	 * throws out its eldest entries until it is within the budget again
+	 * @param weighed whether entries weigh the length of their value instead of 1
+	 */
+	static void checkLruOrder(boolean weighed) {
+		Random random = new Random(weighed ? 11 : 10);
+		for (int round = 0; round < 50; round++) {
+			long maxWeight = weighed ? 20 + random.nextInt(200) : 1 + random.nextInt(50);
+			long[] now = { 0 };
+			BoundedCache<Integer, String> cache = new BoundedCache<>(maxWeight, weighed ? (key, value) -> value.length() : null,
+					Policy.LRU, null, () -> now[0]);
+			LinkedHashMap<Integer, String> expected = new LinkedHashMap<>(16, 0.75f, true);
+			long weight = 0;
+			long hits = 0, misses = 0, evictions = 0;
+			for (int i = 0; i < 5000; i++) {
+				int key = random.nextInt((int) maxWeight * 2);
+				int kind = random.nextInt(10);
+				if (kind < 5) {
+					String value = cache.get(key);
+					String wanted = expected.get(key);
+					if (wanted == null)
+						misses++;
+					else
+						hits++;
+					if (value == null ? wanted != null : !value.equals(wanted))
+						fail("get(" + key + ") should return " + wanted + " but returned " + value + ".");
+				} else if (kind < 9) {
+					String value = "v".repeat(weighed ? random.nextInt(30) : 1);
+					int size = weighed ? value.length() : 1;
+					cache.put(key, value);
+					String old = expected.remove(key);
+					if (old != null)
+						weight -= weighed ? old.length() : 1;
+					if (size > maxWeight) {
+						evictions++;
+					} else {
+						expected.put(key, value);
+						weight += size;
+						for (Iterator<Map.Entry<Integer, String>> it = expected.entrySet().iterator(); weight > maxWeight;) {
+							String eldest = it.next().getValue();
+							weight -= weighed ? eldest.length() : 1;
+							it.remove();
+							evictions++;
+						}
+					}
+				} else {
+					if (cache.remove(key) != (expected.containsKey(key)))
+						fail("remove(" + key + ") should return whether it was in the cache.");
+					String old = expected.remove(key);
+					if (old != null)
+						weight -= weighed ? old.length() : 1;
+				}
+				if (cache.size() != expected.size() || cache.weightedSize() != weight)
+					fail("The cache should hold " + expected.size() + " entries weighing " + weight + " but holds " + cache.size()
+							+ " weighing " + cache.weightedSize() + ".");
+				if (cache.weightedSize() > maxWeight)
+					fail("The cache weighs " + cache.weightedSize() + ", over its budget of " + maxWeight + ".");
+			}
+			BoundedCache.Stats stats = cache.stats();
+			if (stats.hits != hits || stats.misses != misses || stats.evictions != evictions || stats.expirations != 0)
+				fail("The stats should be " + hits + " hits, " + misses + " misses and " + evictions + " evictions but are " + stats + ".");
+		}
+	}
+
+	/**
+	 * A hot set of keys is looked up over and over while a stream of keys used once
+	 * goes through the cache. W_TINY_LFU should keep the hot keys; LRU, which the
+	 * stream flushes, should not.
+	 */
+	static void checkTinyLfu() {
+		final int hot = 50;
+		final int maxEntries = 100;
+		double[] hitRates = new double[2];
+		for (Policy policy : Policy.values()) {
+			BoundedCache<Integer, Integer> cache = new BoundedCache<>(maxEntries, policy);
+			int scan = hot;
+			long hotHits = 0, hotLookups = 0;
+			for (int i = 0; i < 200000; i++) {
+				int key = i % 3 == 0 ? i / 3 % hot : scan++;
+				Integer value = cache.get(key);
+				if (value == null)
+					cache.put(key, key);
+				else if (value != key)
+					fail(policy + " returned " + value + " for " + key + ".");
+				if (key < hot && i > 20000) {
+					hotLookups++;
+					if (value != null)
+						hotHits++;
+				}
+				if (cache.size() > maxEntries || cache.weightedSize() > maxEntries)
+					fail(policy + " holds " + cache.size() + " entries, over its limit of " + maxEntries + ".");
+			}
+			hitRates[policy.ordinal()] = (double) hotHits / hotLookups;
+		}
+		if (hitRates[Policy.W_TINY_LFU.ordinal()] < 0.99 || hitRates[Policy.LRU.ordinal()] > 0.01)
+			fail("W_TINY_LFU should keep the hot keys through the stream and LRU should not, but their hit rates on them are "
+					+ hitRates[Policy.W_TINY_LFU.ordinal()] + " and " + hitRates[Policy.LRU.ordinal()] + ".");
+
+		// a weight budget is never exceeded, and an entry heavier than the whole budget is not kept
+		Random random = new Random(12);
+		BoundedCache<String, String> cache = new BoundedCache<>(1000, (key, value) -> key.length() + value.length(),
+				Policy.W_TINY_LFU, null, System::nanoTime);
+		for (int i = 0; i < 50000; i++) {
+			String key = "k" + random.nextInt(2000);
+			if (random.nextBoolean())
+				cache.get(key);
+			else
+				cache.put(key, "v".repeat(random.nextInt(40)));
+			if (cache.weightedSize() > 1000)
+				fail("W_TINY_LFU weighs " + cache.weightedSize() + ", over its budget of 1000.");
+		}
+		cache.put("k1", "v");
+		cache.put("k1", "v".repeat(2000));
+		if (cache.get("k1") != null)
+			fail("An entry heavier than the whole budget should not be kept, and should replace the old one.");
+	}
+
+	/**
+	 * Entries with times to live both inside one turn of the wheel and longer than
+	 * it must be gone the second the clock reaches them, and not before
+	 */
+	static void checkExpiry() {
+		long start = 5000 * SECOND;
+		long[] now = { start };
+		BoundedCache<Integer, Integer> cache = new BoundedCache<>(100000, null, Policy.W_TINY_LFU, Duration.ofSeconds(30),
+				() -> now[0]);
+		int[] ttls = new int[2000];
+		Random random = new Random(13);
+		for (int key = 0; key < ttls.length; key++) {
+			ttls[key] = key % 2 == 0 ? 1 + random.nextInt(200) : 257 + random.nextInt(LONG_TTL_SECONDS - 256);
+			cache.put(key, key, Duration.ofSeconds(ttls[key]));
+		}
+		cache.put(-1, -1);
+		cache.put(-2, -2, null);
+
+		// a second at a time, cleaning up each second
+		for (int second = 1; second <= LONG_TTL_SECONDS + 1; second++) {
+			now[0] = start + second * SECOND;
+			cache.cleanUp();
+			int alive = second < 30 ? 2 : 1;
+			for (int ttl : ttls) {
+				if (ttl > second)
+					alive++;
+			}
+			if (cache.size() != alive)
+				fail(second + " seconds in, " + alive + " entries should be left but " + cache.size() + " are.");
+			if (second % 97 == 0) {
+				for (int key = 0; key < ttls.length; key++) {
+					if ((cache.get(key) != null) != (ttls[key] > second))
+						fail(second + " seconds in, the entry " + key + " with a time to live of " + ttls[key] + "s is "
+								+ (ttls[key] > second ? "gone" : "still there") + ".");
+				}
+			}
+		}
+		if (cache.get(-2) == null)
+			fail("An entry with no time to live should never expire.");
+		if (cache.stats().expirations != ttls.length + 1)
+			fail("Every entry with a time to live should have expired once, but " + cache.stats().expirations + " did.");
+
+		// the clock jumps past whole turns of the wheel between lookups
+		cache.clear();
+		for (int key = 0; key < ttls.length; key++)
+			cache.put(key, key, Duration.ofSeconds(ttls[key]));
+		long base = now[0];
+		for (int jump : new int[] { 150, 300, 600, LONG_TTL_SECONDS }) {
+			now[0] = base + jump * SECOND;
+			int alive = 0;
+			for (int key = 0; key < ttls.length; key++) {
+				boolean lives = ttls[key] > jump;
+				if (lives)
+					alive++;
+				if (key % 10 == 0 && (cache.get(key) != null) != lives)
+					fail("After a jump of " + jump + " seconds, the entry " + key + " with a time to live of " + ttls[key] + "s is "
+							+ (lives ? "gone" : "still there") + ".");
+			}
+			cache.cleanUp();
+			if (cache.size() != alive)
+				fail("After a jump of " + jump + " seconds, " + alive + " entries should be left but " + cache.size() + " are.");
+		}
+
+		// a lookup never returns an expired entry, even between ticks of the wheel
+		cache.clear();
+		now[0] = base + 7 * SECOND / 10;
+		cache.put(1, 1, Duration.ofMillis(500));
+		now[0] += 499000000L;
+		if (cache.get(1) == null)
+			fail("An entry should still be there a moment before its time to live is up.");
+		now[0] += 1000000L;
+		if (cache.get(1) != null)
+			fail("An entry should not be returned once its time to live is up.");
+	}
+
+	static void fail(String message) {
+		System.err.println(message);
+		error = true;
+	}
+}
@@ -0,0 +1,284 @@
+package dns_resolver;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An index of CIDR blocks (an address prefix and its length in bits) that answers
+ * "which is the most specific block holding this address". It is a compressed
+ * binary trie (PATRICIA) on the 32 bits of the address: a node stands for a prefix,
+ * its two children continue with a 0 or a 1 bit, and runs of nodes with a single
+ * child are collapsed into one, so there are fewer than two nodes per block. A
+ * lookup follows at most one node per prefix length, 33 at the most, whatever the
+ * number of blocks.
+ * @author Milad Balkhinezhad
+ *
+ * @param <V> the value stored for each block, for example its owner
+ */
+public class CidrTrie<V> implements Iterable<CidrTrie.Entry<V>> {
+
+	static final class Node<V> {
+		final int prefix;
+		final int length;
+		V value;
+		boolean hasValue;
+		Node<V> zero, one;
+
+		Node(int prefix, int length) {
+			this.prefix = prefix;
+			this.length = length;
+		}
+
+		Node<V> child(int bit) {
+			return bit == 0 ? zero : one;
+		}
+
+		void setChild(int bit, Node<V> child) {
+			if (bit == 0)
+				zero = child;
+			else
+				one = child;
+		}
+	}
+
+	/**
+	 * A block and its value, as handed out by the iterators
+	 */
+	public static final class Entry<V> {
+		final int prefix;
+		final int length;
+		final V value;
+
+		Entry(int prefix, int length, V value) {
+			this.prefix = prefix;
+			this.length = length;
+			this.value = value;
+		}
+
+		public IPAddress prefix() {
+			return IPAddress.valueOf(prefix);
+		}
+
+		public int length() {
+			return length;
+		}
+
+		public V value() {
+			return value;
+		}
+
+		@Override
+		public String toString() {
+			return (prefix >>> 24) + "." + ((prefix >>> 16) & 0xFF) + "." + ((prefix >>> 8) & 0xFF) + "." + (prefix & 0xFF) + "/" + length + "=" + value;
+		}
+	}
+
+	Node<V> root;
+	int size;
+
+	public CidrTrie() {
+		root = new Node<V>(0, 0);
+	}
+
+	private static int mask(int address, int length) {
+		return length == 0 ? 0 : address & (-1 << (32 - length));
+	}
+
+	/**
+	 * The bit of address just after the first length bits
+	 */
+	private static int bit(int address, int length) {
+		return (address >>> (31 - length)) & 1;
+	}
+
+	private static void checkLength(int length) {
+		if (length < 0 || length > 32)
+			throw new IllegalArgumentException("prefix length must be 0 to 32: " + length);
+	}
+
+	/**
+	 * Adds a block. Bits of prefix past length are ignored. It will not allow
+	 * duplicate blocks.
+	 * @param prefix the first address of the block
+	 * @param length the number of leading bits that make up the block
+	 * @param value the value for the block
+	 * @return <code>true</code> if the block was added, <code>false</code> if it was already there
+	 */
+	public boolean insert(IPAddress prefix, int length, V value) {
+		return insert(prefix.toInt(), length, value);
+	}
+
+	/**
+	 * Adds a block given as a packed address
+	 * @see #insert(IPAddress, int, Object)
+	 */
+	public boolean insert(int prefix, int length, V value) {
+		checkLength(length);
+		prefix = mask(prefix, length);
+		Node<V> node = root;
+		while (true) {
+			// node.prefix is a prefix of the new block here
+			if (node.length == length) {
+				if (node.hasValue)
+					return false;
+				node.value = value;
+				node.hasValue = true;
+				size++;
+				return true;
+			}
+			int bit = bit(prefix, node.length);
+			Node<V> child = node.child(bit);
+			if (child == null) {
+				node.setChild(bit, leaf(prefix, length, value));
+				return true;
+			}
+			int common = Math.min(Math.min(length, child.length), Integer.numberOfLeadingZeros(prefix ^ child.prefix));
+			if (common == child.length) {
+				node = child;
+				continue;
+			}
+			Node<V> split;
+			if (common == length) {
+				// the new block holds the child
+				split = leaf(prefix, length, value);
+			} else {
+				split = new Node<V>(mask(prefix, common), common);
+				split.setChild(bit(prefix, common), leaf(prefix, length, value));
+			}
+			split.setChild(bit(child.prefix, common), child);
+			node.setChild(bit, split);
+			return true;
+		}
+	}
+
+	private Node<V> leaf(int prefix, int length, V value) {
+		Node<V> node = new Node<V>(prefix, length);
+		node.value = value;
+		node.hasValue = true;
+		size++;
+		return node;
+	}
+
+	/**
+	 * The value of the most specific block that holds the address
+	 * @param address the address to look up
+	 * @return the value, or null if no block holds it
+	 */
+	public V longestPrefixMatch(IPAddress address) {
+		return longestPrefixMatch(address.toInt());
+	}
+
+	/**
+	 * The value of the most specific block that holds the packed address
+	 * @see #longestPrefixMatch(IPAddress)
+	 */
+	public V longestPrefixMatch(int address) {
+		Node<V> node = root;
+		V best = null;
+		while (node != null && mask(address, node.length) == node.prefix) {
+			if (node.hasValue)
+				best = node.value;
+			if (node.length == 32)
+				break;
+			node = node.child(bit(address, node.length));
+		}
+		return best;
+	}
+
+	/**
+	 * The value stored for exactly this block
+	 * @param prefix the first address of the block
+	 * @param length the number of leading bits that make up the block
+	 * @return the value, or null if the block is not in the trie
+	 */
+	public V get(IPAddress prefix, int length) {
+		checkLength(length);
+		Node<V> node = find(mask(prefix.toInt(), length), length);
+		return node != null && node.length == length && node.hasValue ? node.value : null;
+	}
+
+	/**
+	 * The highest node whose block is inside the given one
+	 * @return the node, or null if nothing in the trie is inside the block
+	 */
+	private Node<V> find(int prefix, int length) {
+		Node<V> node = root;
+		while (node != null && node.length < length) {
+			node = node.child(bit(prefix, node.length));
+			if (node != null && mask(prefix, Math.min(node.length, length)) != mask(node.prefix, Math.min(node.length, length)))
+				return null;
+		}
+		return node;
+	}
+
+	/**
+	 * The number of blocks in the trie
+	 * @return the number of blocks
+	 */
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * All the blocks, in address order with a block before the smaller blocks inside it
+	 */
+	public Iterator<Entry<V>> iterator() {
+		return new IteratorHelper(root);
+	}
+
+	/**
+	 * The blocks inside the given block, itself included, in the same order as iterator()
+	 * @param prefix the first address of the block
+	 * @param length the number of leading bits that make up the block
+	 * @return the iterator
+	 */
+	public Iterator<Entry<V>> range(IPAddress prefix, int length) {
+		checkLength(length);
+		return new IteratorHelper(find(mask(prefix.toInt(), length), length));
+	}
+
+	/**
+	 * A preorder walk with the 0 child before the 1 child
+	 */
+	private class IteratorHelper implements Iterator<Entry<V>> {
+		ArrayDeque<Node<V>> stack;
+		Node<V> next;
+
+		public IteratorHelper(Node<V> start) {
+			stack = new ArrayDeque<Node<V>>();
+			if (start != null)
+				stack.push(start);
+			advance();
+		}
+
+		private void advance() {
+			next = null;
+			while (next == null && !stack.isEmpty()) {
+				Node<V> node = stack.pop();
+				if (node.one != null)
+					stack.push(node.one);
+				if (node.zero != null)
+					stack.push(node.zero);
+				if (node.hasValue)
+					next = node;
+			}
+		}
+
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		public Entry<V> next() {
+			if (next == null)
+				throw new NoSuchElementException();
+			Entry<V> entry = new Entry<V>(next.prefix, next.length, next.value);
+			advance();
+			return entry;
+		}
+	}
+}
@@ -0,0 +1,350 @@
+package data_structures;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A Hash that can be shared between threads. Lookups take no lock: every slot is
+ * read through an AtomicReferenceArray and a chain, once a node is in it, is never
+ * changed except for the node's value, which is volatile. A remove copies the nodes
+ * in front of the removed one instead of unlinking it, so a reader walking the chain
+ * always sees a whole chain, either the old one or the new one.
+ * <p>
+ * Writes lock one of a fixed number of stripes, picked from the low bits of the
+ * hash. The table size is a power of two that is never smaller than the number of
+ * stripes, so every key in a slot is covered by the same stripe. A resize takes all
+ * the stripes, builds the new table beside the old one and then swaps it in, so
+ * readers keep using the old table until the new one is ready.
+ * <p>
+ * Keys are matched with compareTo, the same as Hash.
+ * @author Milad Balkhinezhad
+ *
+ * @param <K> The key for entries in the hash
+ * @param <V> The value for entries in the hash
+ */
+
+public class ConcurrentHash<K, V> implements HashI<K, V> {
+
+	static final int DEFAULT_STRIPES = 64;
+
+	static final class Node<K, V> {
+		final K key;
+		final int hash;
+		volatile V value;
+		final Node<K, V> next;
+
+		Node(K key, int hash, V value, Node<K, V> next) {
+			this.key = key;
+			this.hash = hash;
+			this.value = value;
+			this.next = next;
+		}
+	}
+
+	volatile AtomicReferenceArray<Node<K, V>> table;
+	final ReentrantLock[] locks;
+	final LongAdder count;
+	volatile double maxLoadFactor;
+
+	public ConcurrentHash(int tableSize) {
+		this(tableSize, DEFAULT_STRIPES);
+	}
+
+	/**
+	 * @param tableSize the number of slots to start with
+	 * @param stripes the number of write locks, rounded up to a power of two
+	 */
+	public ConcurrentHash(int tableSize, int stripes) {
+		stripes = tableSizeFor(stripes);
+		locks = new ReentrantLock[stripes];
+		for (int i = 0; i < stripes; i++)
+			locks[i] = new ReentrantLock();
+		count = new LongAdder();
+		maxLoadFactor = 0.75;
+		table = new AtomicReferenceArray<Node<K, V>>(Math.max(tableSizeFor(tableSize), stripes));
+	}
+
+	private static int tableSizeFor(int size) {
+		if (size <= 1)
+			return 1;
+		if (size > (1 << 30))
+			return 1 << 30;
+		return Integer.highestOneBit(size - 1) << 1;
+	}
+
+	private static int spread(int hashCode) {
+		return (hashCode ^ (hashCode >>> 16)) & 0x7FFFFFFF;
+	}
+
+	private ReentrantLock lockFor(int hash) {
+		return locks[hash & (locks.length - 1)];
+	}
+
+	private static <K, V> Node<K, V> find(Node<K, V> node, K key, int hash) {
+		Comparable<K> k = (Comparable<K>) key;
+		for (; node != null; node = node.next)
+			if (node.hash == hash && k.compareTo(node.key) == 0)
+				return node;
+		return null;
+	}
+
+	private Node<K, V> find(K key) {
+		int hash = spread(key.hashCode());
+		AtomicReferenceArray<Node<K, V>> tab = table;
+		return find(tab.get(hash & (tab.length() - 1)), key, hash);
+	}
+
+	/**
+	 * Adds the given key/value pair to the dictionary.  Returns
+	 * false if the key is a duplicate.
+	 * Returns true if addition succeeded.
+	 *
+	 * @param key the key to add
+	 * @param value the value associated with the key
+	 * @return true if the key/value are added to the hash.
+	 */
+	public boolean add(K key, V value) {
+		int hash = spread(key.hashCode());
+		ReentrantLock lock = lockFor(hash);
+		int capacity;
+		lock.lock();
+		try {
+			AtomicReferenceArray<Node<K, V>> tab = table;
+			capacity = tab.length();
+			int i = hash & (capacity - 1);
+			Node<K, V> head = tab.get(i);
+			if (find(head, key, hash) != null)
+				return false;
+			tab.set(i, new Node<K, V>(key, hash, value, head));
+			count.increment();
+		} finally {
+			lock.unlock();
+		}
+		if (count.sum() > maxLoadFactor * capacity)
+			grow(capacity);
+		return true;
+	}
+
+	/**
+	 * Deletes the key/value pair identified by the key parameter.
+	 * Returns true if the key/value pair was found and removed,
+	 * otherwise returns false.
+	 *
+	 * @param key the key to remove
+	 * @return whether the key was removed
+	 */
+	public boolean remove(K key) {
+		int hash = spread(key.hashCode());
+		ReentrantLock lock = lockFor(hash);
+		lock.lock();
+		try {
+			AtomicReferenceArray<Node<K, V>> tab = table;
+			int i = hash & (tab.length() - 1);
+			Node<K, V> head = tab.get(i);
+			Node<K, V> target = find(head, key, hash);
+			if (target == null)
+				return false;
+			// copy the nodes in front of target so readers never see a half changed chain
+			Node<K, V> chain = target.next;
+			for (Node<K, V> node = head; node != target; node = node.next)
+				chain = new Node<K, V>(node.key, node.hash, node.value, chain);
+			tab.set(i, chain);
+			count.decrement();
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Change the value associated with an existing key.
+	 * @param key The key to change
+	 * @param value the new value
+	 * @return whether the key was found
+	 */
+	public boolean changeValue(K key, V value) {
+		int hash = spread(key.hashCode());
+		ReentrantLock lock = lockFor(hash);
+		lock.lock();
+		try {
+			AtomicReferenceArray<Node<K, V>> tab = table;
+			Node<K, V> node = find(tab.get(hash & (tab.length() - 1)), key, hash);
+			if (node == null)
+				return false;
+			node.value = value;
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Test whether the hash has the entry associated with the key
+	 * @param key the key to look for
+	 * @return whether it is there.
+	 */
+	public boolean contains(K key) {
+		return find(key) != null;
+	}
+
+	/**
+	 * Returns the value associated with the parameter key.
+	 * Returns null if the key is not found or the dictionary is empty.
+	 * @param key the key to find the value for
+	 * @return the value
+	 */
+	public V getValue(K key) {
+		Node<K, V> node = find(key);
+		if (node == null)
+			return null;
+		return node.value;
+	}
+
+	/**
+	 * Returns the number of key/value pairs currently stored in the dictionary
+	 * @return the number of entries
+	 */
+	public int size() {
+		return (int) count.sum();
+	}
+
+	/**
+	 * Returns true if the dictionary is empty
+	 * @return whether the dictionary is empty
+	 */
+	public boolean isEmpty() {
+		return count.sum() == 0;
+	}
+
+	/**
+	 * Make the dictionary empty
+	 */
+	public void makeEmpty() {
+		lockAll();
+		try {
+			table = new AtomicReferenceArray<Node<K, V>>(table.length());
+			count.reset();
+		} finally {
+			unlockAll();
+		}
+	}
+
+	/**
+	 * Returns the current load factor of the dictionary (lambda)
+	 * @return the loadFactor
+	 */
+	public double loadFactor() {
+		return (double) count.sum() / table.length();
+	}
+
+	/**
+	 * Get the maximum load factor (at which point we need to resize)
+	 * @return the maximum load factor of the hash
+	 */
+	public double getMaxLoadFactor() {
+		return maxLoadFactor;
+	}
+
+	/**
+	 * Set the maximum load factor (at which point we need to resize)
+	 * @param loadfactor the maximum load factor
+	 */
+	public void setMaxLoadFActor(double loadfactor) {
+		maxLoadFactor = loadfactor;
+	}
+
+	private void lockAll() {
+		for (ReentrantLock lock : locks)
+			lock.lock();
+	}
+
+	private void unlockAll() {
+		for (int i = locks.length - 1; i >= 0; i--)
+			locks[i].unlock();
+	}
+
+	/**
+	 * Doubles the table unless another thread has already grown it past capacity
+	 */
+	private void grow(int capacity) {
+		lockAll();
+		try {
+			if (table.length() == capacity && capacity < (1 << 30))
+				rehash(capacity * 2);
+		} finally {
+			unlockAll();
+		}
+	}
+
+	/**
+	 * Resizes the dictionary. The size is rounded up to a power of two and is never
+	 * less than the number of write locks.
+	 * @param newSize the size of the new dictionary
+	 */
+	public void resize(int newSize) {
+		lockAll();
+		try {
+			rehash(Math.max(tableSizeFor(newSize), locks.length));
+		} finally {
+			unlockAll();
+		}
+	}
+
+	/**
+	 * Builds a table of the new size from copies of the nodes and swaps it in.
+	 * Must hold every lock.
+	 */
+	private void rehash(int newSize) {
+		AtomicReferenceArray<Node<K, V>> old = table;
+		AtomicReferenceArray<Node<K, V>> tab = new AtomicReferenceArray<Node<K, V>>(newSize);
+		for (int i = 0; i < old.length(); i++) {
+			for (Node<K, V> node = old.get(i); node != null; node = node.next) {
+				int j = node.hash & (newSize - 1);
+				tab.set(j, new Node<K, V>(node.key, node.hash, node.value, tab.get(j)));
+			}
+		}
+		table = tab;
+	}
+
+	/**
+	 * Returns an Iterator of the keys in the dictionary, in table order. It walks
+	 * the table as it was when the iterator was made and may or may not see changes
+	 * made after that. It never throws ConcurrentModificationException.
+	 */
+	public Iterator<K> iterator() {
+		return new IteratorHelper();
+	}
+
+	class IteratorHelper implements Iterator<K> {
+		final AtomicReferenceArray<Node<K, V>> tab;
+		int index;
+		Node<K, V> next;
+
+		public IteratorHelper() {
+			tab = table;
+			advance();
+		}
+
+		private void advance() {
+			if (next != null)
+				next = next.next;
+			while (next == null && index < tab.length())
+				next = tab.get(index++);
+		}
+
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		public K next() {
+			if (next == null)
+				throw new NoSuchElementException();
+			K key = next.key;
+			advance();
+			return key;
+		}
+	}
+}
@@ -0,0 +1,225 @@
+package RBTester;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import data_structures.ConcurrentHash;
+
+/**
+ * Checks ConcurrentHash first against a HashMap on one thread, then with writers
+ * and readers running together on a table that starts with one slot, so it grows
+ * many times while they run. Each writer owns its own keys, so what the table
+ * must hold at the end is known, and the readers check keys no writer touches
+ * on every lookup. Last, several threads race to add and remove the same keys,
+ * and exactly one of them must win each key.
+ * @author Milad Balkhinezhad
+ */
+public class ConcurrentHashTester {
+
+	static volatile boolean error = false;
+	static final int STABLE = 2000;
+	static final int WRITERS = 4;
+	static final int READERS = 4;
+	static final int KEYS_PER_WRITER = 50000;
+
+	public static void main(String[] args) throws InterruptedException {
+		checkOneThread();
+		checkWritersAndReaders();
+		checkContended();
+
+		if (!error)
+			System.out.println("ConcurrentHash: all checks passed.");
+	}
+
+	/**
+	 * Random adds, removes, changes and lookups against a HashMap
+	 */
+	static void checkOneThread() {
+		Random random = new Random(3);
+		ConcurrentHash<Integer, Integer> hash = new ConcurrentHash<>(2, 4);
+		HashMap<Integer, Integer> map = new HashMap<>();
+		for (int i = 0; i < 200000; i++) {
+			int key = random.nextInt(20000) - 10000;
+			switch (random.nextInt(4)) {
+			case 0:
+				if (hash.add(key, i) != (map.putIfAbsent(key, i) == null))
+					fail("add(" + key + ") should return true only for a new key.");
+				break;
+			case 1:
+				if (hash.remove(key) != (map.remove(key) != null))
+					fail("remove(" + key + ") should return true only for a key in the table.");
+				break;
+			case 2:
+				if (hash.changeValue(key, -i) != (map.replace(key, -i) != null))
+					fail("changeValue(" + key + ") should return true only for a key in the table.");
+				break;
+			default:
+				if (!Objects.equals(hash.getValue(key), map.get(key)))
+					fail("getValue(" + key + ") should be " + map.get(key) + ".");
+			}
+			if (hash.size() != map.size())
+				fail("The size should be " + map.size() + " after " + i + " operations.");
+		}
+		checkContents(hash, map, "after the single thread operations");
+		hash.resize(3);
+		checkContents(hash, map, "after resize");
+	}
+
+	/**
+	 * Writers add, change and remove their own keys while the table grows under
+	 * them, and one of them also forces resizes. Readers look up the stable keys
+	 * the whole time and iterate the table now and then.
+	 */
+	static void checkWritersAndReaders() throws InterruptedException {
+		ConcurrentHash<Integer, Integer> hash = new ConcurrentHash<>(1, 4);
+		for (int key = 0; key < STABLE; key++)
+			hash.add(key, key);
+
+		Thread[] writers = new Thread[WRITERS];
+		for (int w = 0; w < WRITERS; w++) {
+			final int id = w;
+			writers[w] = new Thread(() -> {
+				for (int i = 0; i < KEYS_PER_WRITER; i++) {
+					int key = writerKey(id, i);
+					if (!hash.add(key, key))
+						fail("Writer " + id + " should be able to add its own key " + key + ".");
+					if (i % 3 == 0 && (!hash.remove(key) || hash.contains(key)))
+						fail("Writer " + id + " should be able to remove its own key " + key + ".");
+					if (i % 3 == 1 && !hash.changeValue(key, -key))
+						fail("Writer " + id + " should be able to change the value of its own key " + key + ".");
+					if (id == 0 && i % 10000 == 0)
+						hash.resize(1 << (i / 10000 + 2));
+				}
+			});
+		}
+		AtomicBoolean stop = new AtomicBoolean();
+		Thread[] readers = new Thread[READERS];
+		for (int r = 0; r < READERS; r++) {
+			final int id = r;
+			readers[r] = new Thread(() -> {
+				Random random = new Random(id);
+				int lookups = 0;
+				while (!stop.get()) {
+					int key = random.nextInt(STABLE);
+					Integer value = hash.getValue(key);
+					if (value == null || value != key)
+						fail("A reader should always find the stable key " + key + " but got " + value + ".");
+					if (++lookups % 5000 == 0) {
+						HashSet<Integer> seen = new HashSet<>();
+						for (int k : hash) {
+							if (!seen.add(k))
+								fail("The iterator should not return " + k + " twice.");
+						}
+						for (int k = 0; k < STABLE; k++) {
+							if (!seen.contains(k))
+								fail("The iterator should return the stable key " + k + ".");
+						}
+					}
+				}
+			});
+		}
+		for (Thread thread : readers)
+			thread.start();
+		for (Thread thread : writers)
+			thread.start();
+		for (Thread thread : writers)
+			thread.join();
+		stop.set(true);
+		for (Thread thread : readers)
+			thread.join();
+
+		HashMap<Integer, Integer> expected = new HashMap<>();
+		for (int key = 0; key < STABLE; key++)
+			expected.put(key, key);
+		for (int w = 0; w < WRITERS; w++) {
+			for (int i = 0; i < KEYS_PER_WRITER; i++) {
+				int key = writerKey(w, i);
+				if (i % 3 == 1)
+					expected.put(key, -key);
+				else if (i % 3 == 2)
+					expected.put(key, key);
+			}
+		}
+		checkContents(hash, expected, "after the writers and readers");
+		if (hash.loadFactor() > hash.getMaxLoadFactor())
+			fail("The table should have grown to keep the load factor under " + hash.getMaxLoadFactor() + " but it is " + hash.loadFactor() + ".");
+	}
+
+	/**
+	 * Threads race to add and then remove the same keys. Each key must be added by
+	 * one thread and removed by one thread. No thread starts removing before every
+	 * thread is done adding, or a key removed early could be added again.
+	 */
+	static void checkContended() throws InterruptedException {
+		final int keys = 20000;
+		ConcurrentHash<Integer, Integer> hash = new ConcurrentHash<>(1, 2);
+		AtomicInteger added = new AtomicInteger();
+		AtomicInteger removed = new AtomicInteger();
+		CyclicBarrier addsDone = new CyclicBarrier(WRITERS, () -> {
+			if (added.get() != keys || hash.size() != keys)
+				fail("Each of " + keys + " keys should be added once, but " + added + " adds succeeded and the size is " + hash.size() + ".");
+		});
+		Thread[] threads = new Thread[WRITERS];
+		for (int t = 0; t < threads.length; t++) {
+			final int id = t;
+			threads[t] = new Thread(() -> {
+				for (int key = 0; key < keys; key++) {
+					if (hash.add(key, id))
+						added.incrementAndGet();
+				}
+				try {
+					addsDone.await();
+				} catch (InterruptedException | BrokenBarrierException e) {
+					fail("A racing thread was stopped: " + e);
+					return;
+				}
+				for (int key = 0; key < keys; key++) {
+					if (hash.remove(key))
+						removed.incrementAndGet();
+				}
+			});
+		}
+		for (Thread thread : threads)
+			thread.start();
+		for (Thread thread : threads)
+			thread.join();
+		if (removed.get() != keys)
+			fail("Each of " + keys + " keys should be removed once, but " + removed + " removes succeeded.");
+		if (hash.size() != 0 || !hash.isEmpty())
+			fail("The table should be empty after the racing removes but has size " + hash.size() + ".");
+	}
+
+	static int writerKey(int writer, int i) {
+		return STABLE + writer * KEYS_PER_WRITER + i;
+	}
+
+	/**
+	 * The size, every value and the keys from the iterator against a map
+	 */
+	static void checkContents(ConcurrentHash<Integer, Integer> hash, Map<Integer, Integer> expected, String when) {
+		if (hash.size() != expected.size())
+			fail("The size should be " + expected.size() + " " + when + " but it is " + hash.size() + ".");
+		for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+			if (!entry.getValue().equals(hash.getValue(entry.getKey())))
+				fail("The value of " + entry.getKey() + " should be " + entry.getValue() + " " + when + " but it is "
+						+ hash.getValue(entry.getKey()) + ".");
+		}
+		HashSet<Integer> seen = new HashSet<>();
+		for (int key : hash)
+			seen.add(key);
+		if (!seen.equals(expected.keySet()))
+			fail("The iterator should return exactly the keys in the table " + when + ".");
+	}
+
+	static void fail(String message) {
+		System.err.println(message);
+		error = true;
+	}
+}
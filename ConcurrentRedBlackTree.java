@@ -0,0 +1,441 @@
+package data_structures;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+
+/**
+ * A Red Black Tree that can be shared between threads. It wraps a RedBlackTree and a
+ * StampedLock. Writers take the write lock, so rotations are never run at the same
+ * time. Readers first walk the tree with no lock at all and then check that no
+ * writer got in while they were walking. Only if one did, or if the walk runs longer
+ * than any real path could be (a half-finished rotation can make a path loop), does
+ * the reader walk again under the read lock.
+ * <p>
+ * Iterators copy the keys a chunk at a time, each chunk read the same way, so a
+ * long iteration never holds a lock and sees each chunk as it was at some moment.
+ * Changes made while iterating may or may not be seen.
+ * @author Milad Balkhinezhad
+ */
+
+public class ConcurrentRedBlackTree<K, V> implements RangedRedBlackI<K, V> {
+
+	// longer than any path in a valid tree of up to 2^63 nodes
+	static final int MAX_OPTIMISTIC_STEPS = 128;
+	// the number of keys an iterator copies per read
+	static final int CHUNK = 64;
+
+	private static final int EXACT = 0, FLOOR = 1, CEILING = 2, FIRST = 3, LAST = 4;
+
+	final RedBlackTree<K, V> tree;
+	final StampedLock lock;
+	// returned by descend when it took too many steps
+	private final RedBlackTree<K, V>.Node<K, V> retry;
+
+	public ConcurrentRedBlackTree() {
+		this(new RedBlackTree<K, V>());
+	}
+
+	/**
+	 * Shares an existing tree, for example one built with RedBlackTree.fromSorted.
+	 * The tree must not be used directly afterwards.
+	 * @param tree the tree to share
+	 */
+	public ConcurrentRedBlackTree(RedBlackTree<K, V> tree) {
+		this.tree = tree;
+		lock = new StampedLock();
+		retry = tree.new Node<K, V>(null, null);
+	}
+
+	/**
+	 * Walks down from the root without trusting the tree to be consistent
+	 * @param key the key to search for, unused for FIRST and LAST
+	 * @param mode what to search for
+	 * @param inclusive whether a node holding key itself counts for FLOOR and CEILING
+	 * @return the node found, null if there is none, or retry if the walk was too long
+	 */
+	private RedBlackTree<K, V>.Node<K, V> descend(K key, int mode, boolean inclusive) {
+		Comparable<K> k = (Comparable<K>) key;
+		RedBlackTree<K, V>.Node<K, V> current = tree.root, best = null;
+		for (int steps = 0; current != null; steps++) {
+			if (steps == MAX_OPTIMISTIC_STEPS)
+				return retry;
+			if (mode == FIRST || mode == LAST) {
+				best = current;
+				current = mode == FIRST ? current.left : current.right;
+				continue;
+			}
+			int cmp = k.compareTo(current.key);
+			if (cmp == 0 && (mode == EXACT || inclusive))
+				return current;
+			if (mode == EXACT)
+				current = cmp < 0 ? current.left : current.right;
+			else if (mode == FLOOR) {
+				if (cmp > 0) {
+					best = current;
+					current = current.right;
+				} else
+					current = current.left;
+			} else {
+				if (cmp < 0) {
+					best = current;
+					current = current.left;
+				} else
+					current = current.right;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Finds a node and reads a field of it, optimistically first and under the read
+	 * lock if a writer got in the way.
+	 */
+	private <T> T read(K key, int mode, boolean inclusive, Function<RedBlackTree<K, V>.Node<K, V>, T> field) {
+		long stamp = lock.tryOptimisticRead();
+		if (stamp != 0) {
+			try {
+				RedBlackTree<K, V>.Node<K, V> node = descend(key, mode, inclusive);
+				if (node != retry) {
+					T result = node == null ? null : field.apply(node);
+					if (lock.validate(stamp))
+						return result;
+				}
+			} catch (RuntimeException e) {
+				// a torn read of a node a writer was changing, try again under the lock
+			}
+		}
+		stamp = lock.readLock();
+		try {
+			RedBlackTree<K, V>.Node<K, V> node = descend(key, mode, inclusive);
+			return node == null ? null : field.apply(node);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * The method to add to the RBTree.  It will not allow duplicate additions.
+	 * @param key the key to add
+	 * @param value the value associated with the key
+	 * @return <code>true</code> if the key was added, <code>false</code> if it was a duplicate
+	 */
+	public boolean add(K key, V value) {
+		long stamp = lock.writeLock();
+		try {
+			return tree.add(key, value);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Remove the key from the RBTree
+	 * @param key the key to remove
+	 * @return <code>true</code> if the key was removed
+	 */
+	public boolean remove(K key) {
+		long stamp = lock.writeLock();
+		try {
+			return tree.remove(key);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Remove the key from the RBTree and return its value
+	 * @param key the key to remove
+	 * @return the value of the key removed, or null if it was not there
+	 */
+	public V removeAndGet(K key) {
+		long stamp = lock.writeLock();
+		try {
+			return tree.removeAndGet(key);
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	/**
+	 * Does the RBTree contain the key
+	 * @param key the key to look for
+	 * @return <code>true</code> if the key is in the tree
+	 */
+	public boolean contains(K key) {
+		return read(key, EXACT, true, node -> Boolean.TRUE) != null;
+	}
+
+	/**
+	 * Returns the value associated with the key
+	 * @param key the key to look for
+	 * @return the value, or null if the key is not in the tree
+	 */
+	public V getValue(K key) {
+		return read(key, EXACT, true, node -> node.value);
+	}
+
+	/**
+	 * Looks up a batch of keys with the shared walk of RedBlackTree.getAll. Like a
+	 * single lookup, the walk is tried with no lock first and only done again under
+	 * the read lock if a writer got in the way.
+	 * @param keys the keys to look up
+	 * @param out where the values go, at least as long as keys
+	 * @return the number of values that are not null
+	 */
+	public int getAll(K[] keys, V[] out) {
+		if (out.length < keys.length)
+			throw new IllegalArgumentException("out is shorter than keys");
+		return readAll(keys, out);
+	}
+
+	/**
+	 * Tests whether the tree contains every key in a batch, read the same way as getAll
+	 * @param keys the keys to look for
+	 * @return whether they are all found
+	 */
+	public boolean containsAll(K[] keys) {
+		return readAll(keys, null) == keys.length;
+	}
+
+	/**
+	 * Takes a batch down the tree, optimistically first and under the read lock if a
+	 * writer got in the way. The batch is sorted once, before either walk, since
+	 * sorting does not look at the tree.
+	 */
+	private int readAll(K[] keys, V[] out) {
+		int[] order = RedBlackTree.sortedOrder(keys, keys.length);
+		long stamp = lock.tryOptimisticRead();
+		if (stamp != 0) {
+			try {
+				int found = tree.lookupSorted(keys, order, out, MAX_OPTIMISTIC_STEPS);
+				if (found >= 0 && lock.validate(stamp))
+					return found;
+			} catch (RuntimeException e) {
+				// a torn read of a node a writer was changing, try again under the lock
+			}
+		}
+		stamp = lock.readLock();
+		try {
+			return tree.lookupSorted(keys, order, out, Integer.MAX_VALUE);
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	public K firstKey() {
+		return read(null, FIRST, false, node -> node.key);
+	}
+
+	public K lastKey() {
+		return read(null, LAST, false, node -> node.key);
+	}
+
+	public K floorKey(K key) {
+		return read(key, FLOOR, true, node -> node.key);
+	}
+
+	public K ceilingKey(K key) {
+		return read(key, CEILING, true, node -> node.key);
+	}
+
+	public K lowerKey(K key) {
+		return read(key, FLOOR, false, node -> node.key);
+	}
+
+	public K higherKey(K key) {
+		return read(key, CEILING, false, node -> node.key);
+	}
+
+	public RedBlackI<K, V> headMap(K toKey, boolean inclusive) {
+		return new RedBlackSubTree<K, V>(this, null, false, toKey, inclusive);
+	}
+
+	public RedBlackI<K, V> tailMap(K fromKey, boolean inclusive) {
+		return new RedBlackSubTree<K, V>(this, fromKey, inclusive, null, false);
+	}
+
+	public RedBlackI<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+		return new RedBlackSubTree<K, V>(this, fromKey, fromInclusive, toKey, toInclusive);
+	}
+
+	/**
+	 * Returns the number of elements in the RBTree
+	 * @return the number of elements in the tree
+	 */
+	public int size() {
+		long stamp = lock.tryOptimisticRead();
+		int size = tree.size;
+		if (!lock.validate(stamp)) {
+			stamp = lock.readLock();
+			size = tree.size;
+			lock.unlockRead(stamp);
+		}
+		return size;
+	}
+
+	/**
+	 * Is the RBTree empty
+	 * @return <code>true</code> if the tree has no elements
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * Returns the height of the RBTree
+	 * @return the height of the tree
+	 */
+	public int height() {
+		long stamp = lock.readLock();
+		try {
+			return tree.height();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * Print the tree under the read lock
+	 */
+	public void print() {
+		long stamp = lock.readLock();
+		try {
+			tree.print();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	/**
+	 * An iterator for all the keys in the RBTree, in order
+	 */
+	public Iterator<K> iterator() {
+		return new IteratorHelper(null, false, null, false);
+	}
+
+	/**
+	 * An iterator over the keys between the two bounds, in order.
+	 * A null bound means the range is open at that end.
+	 */
+	public Iterator<K> iterator(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+		return new IteratorHelper(fromKey, fromInclusive, toKey, toInclusive);
+	}
+
+	/**
+	 * Copies CHUNK keys at a time. Each chunk starts just after the last key of the
+	 * one before, found by searching, so changes between chunks do not matter.
+	 */
+	private class IteratorHelper implements Iterator<K> {
+		K from;
+		boolean fromInclusive;
+		K toKey;
+		boolean toInclusive;
+		Object[] chunk;
+		int count;
+		int position;
+		// true once a chunk came back short, so there is nothing more to copy
+		boolean exhausted;
+		K lastReturned;
+
+		public IteratorHelper(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+			from = fromKey;
+			this.fromInclusive = fromInclusive;
+			this.toKey = toKey;
+			this.toInclusive = toInclusive;
+			chunk = new Object[CHUNK];
+		}
+
+		private void fill() {
+			position = 0;
+			count = -1;
+			long stamp = lock.tryOptimisticRead();
+			if (stamp != 0) {
+				try {
+					int copied = copy();
+					if (lock.validate(stamp))
+						count = copied;
+				} catch (RuntimeException e) {
+					// a torn read, copy again under the lock
+				}
+			}
+			if (count < 0) {
+				stamp = lock.readLock();
+				try {
+					count = copy();
+				} finally {
+					lock.unlockRead(stamp);
+				}
+			}
+			if (count < CHUNK)
+				exhausted = true;
+			else {
+				from = (K) chunk[count - 1];
+				fromInclusive = false;
+			}
+		}
+
+		/**
+		 * Copies the next keys into chunk
+		 * @return the number copied, or -1 if the walk took too many steps
+		 */
+		private int copy() {
+			RedBlackTree<K, V>.Node<K, V> node = from == null ? descend(null, FIRST, false) : descend(from, CEILING, fromInclusive);
+			if (node == retry)
+				return -1;
+			int copied = 0;
+			int steps = 0;
+			while (node != null && copied < CHUNK) {
+				if (toKey != null) {
+					int cmp = ((Comparable<K>) node.key).compareTo(toKey);
+					if (cmp > 0 || (cmp == 0 && !toInclusive))
+						break;
+				}
+				chunk[copied++] = node.key;
+				// the in order successor, counting every link followed
+				if (node.right != null) {
+					node = node.right;
+					while (node.left != null && ++steps < MAX_OPTIMISTIC_STEPS * CHUNK)
+						node = node.left;
+				} else {
+					RedBlackTree<K, V>.Node<K, V> parent = node.parent;
+					while (parent != null && node == parent.right && ++steps < MAX_OPTIMISTIC_STEPS * CHUNK) {
+						node = parent;
+						parent = parent.parent;
+					}
+					node = parent;
+				}
+				if (++steps >= MAX_OPTIMISTIC_STEPS * CHUNK)
+					return -1;
+			}
+			return copied;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (position < count)
+				return true;
+			if (exhausted)
+				return false;
+			fill();
+			return position < count;
+		}
+
+		@Override
+		public K next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			lastReturned = (K) chunk[position++];
+			return lastReturned;
+		}
+
+		@Override
+		public void remove() {
+			if (lastReturned == null)
+				throw new IllegalStateException();
+			ConcurrentRedBlackTree.this.remove(lastReturned);
+			lastReturned = null;
+		}
+	}
+}
@@ -0,0 +1,220 @@
+package RBTester;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import data_structures.ConcurrentRedBlackTree;
+
+/**
+ * Checks ConcurrentRedBlackTree first against a TreeMap on one thread, then with
+ * writers and readers running together. The even keys are put in before the
+ * threads start and never changed, and each writer adds and removes its own odd
+ * keys, so the readers' optimistic lookups run into rotations all the time. The readers check every even key they look up, and iterate the tree,
+ * which copies more than one chunk of keys, checking that the keys come back in
+ * order with every even key present. At the end the tree must hold exactly what
+ * the writers left.
+ * @author Milad Balkhinezhad
+ */
+public class ConcurrentRedBlackTreeTester {
+
+	static volatile boolean error = false;
+	static final int STABLE = 5000;
+	static final int WRITERS = 3;
+	static final int READERS = 3;
+	static final int OPERATIONS = 100000;
+
+	public static void main(String[] args) throws InterruptedException {
+		checkOneThread();
+		checkWritersAndReaders();
+
+		if (!error)
+			System.out.println("ConcurrentRedBlackTree: all checks passed.");
+	}
+
+	/**
+	 * Random adds, removes and lookups against a TreeMap
+	 */
+	static void checkOneThread() {
+		Random random = new Random(5);
+		ConcurrentRedBlackTree<Integer, Integer> tree = new ConcurrentRedBlackTree<>();
+		TreeMap<Integer, Integer> map = new TreeMap<>();
+		for (int i = 0; i < 100000; i++) {
+			int key = random.nextInt(5000);
+			switch (random.nextInt(3)) {
+			case 0:
+				if (tree.add(key, i) != (map.putIfAbsent(key, i) == null))
+					fail("add(" + key + ") should return true only for a new key.");
+				break;
+			case 1:
+				if (!Objects.equals(tree.removeAndGet(key), map.remove(key)))
+					fail("removeAndGet(" + key + ") should return the value that was removed.");
+				break;
+			default:
+				if (!Objects.equals(tree.getValue(key), map.get(key)) || !Objects.equals(tree.floorKey(key), map.floorKey(key))
+						|| !Objects.equals(tree.ceilingKey(key), map.ceilingKey(key))
+						|| !Objects.equals(tree.lowerKey(key), map.lowerKey(key))
+						|| !Objects.equals(tree.higherKey(key), map.higherKey(key)))
+					fail("The lookups of " + key + " should match the TreeMap.");
+			}
+		}
+		checkContents(tree, map, "after the single thread operations");
+		int count = 0;
+		for (Iterator<Integer> it = tree.iterator(); it.hasNext();) {
+			if (it.next() % 2 == 0) {
+				it.remove();
+				count++;
+			}
+		}
+		map.keySet().removeIf(key -> key % 2 == 0);
+		checkContents(tree, map, "after removing " + count + " even keys through the iterator");
+	}
+
+	/**
+	 * Writers change their own odd keys while readers check the even keys, which
+	 * nobody changes
+	 */
+	static void checkWritersAndReaders() throws InterruptedException {
+		ConcurrentRedBlackTree<Integer, Integer> tree = new ConcurrentRedBlackTree<>();
+		for (int key = 0; key < 2 * STABLE; key += 2)
+			tree.add(key, key);
+
+		Thread[] writers = new Thread[WRITERS];
+		for (int w = 0; w < WRITERS; w++) {
+			final int id = w;
+			writers[w] = new Thread(() -> {
+				Random random = new Random(id);
+				for (int i = 0; i < OPERATIONS; i++) {
+					int key = writerKey(id, random.nextInt(STABLE / WRITERS));
+					if (!tree.remove(key) && !tree.add(key, key))
+						fail("Writer " + id + " should be able to add its own key " + key + ".");
+					// let the readers in between writes even on a single processor
+					if (i % 100 == 0)
+						Thread.yield();
+				}
+			});
+		}
+		AtomicBoolean stop = new AtomicBoolean();
+		Thread[] readers = new Thread[READERS];
+		for (int r = 0; r < READERS; r++) {
+			final int id = r;
+			readers[r] = new Thread(() -> {
+				Random random = new Random(100 + id);
+				Integer[] batch = new Integer[50];
+				Integer[] values = new Integer[batch.length];
+				int lookups = 0;
+				while (!stop.get()) {
+					int key = 2 * random.nextInt(STABLE);
+					Integer value = tree.getValue(key);
+					if (value == null || value != key || !tree.contains(key))
+						fail("A reader should always find the stable key " + key + " but got " + value + ".");
+					Integer floor = tree.floorKey(key);
+					Integer higher = tree.higherKey(key);
+					if (floor == null || floor != key || (key < 2 * STABLE - 2 && (higher == null || higher <= key || higher > key + 2)))
+						fail("The neighbours of the stable key " + key + " should be " + key + " and at most " + (key + 2) + " but are "
+								+ floor + " and " + higher + ".");
+					for (int i = 0; i < batch.length; i++)
+						batch[i] = 2 * random.nextInt(STABLE);
+					if (tree.getAll(batch, values) != batch.length || !tree.containsAll(batch))
+						fail("A batch of stable keys should all be found.");
+					for (int i = 0; i < batch.length; i++) {
+						if (!batch[i].equals(values[i]))
+							fail("A batch lookup of " + batch[i] + " should return " + batch[i] + " but returned " + values[i] + ".");
+					}
+					if (++lookups % 200 == 0)
+						checkIteration(tree);
+				}
+			});
+		}
+		for (Thread thread : readers)
+			thread.start();
+		for (Thread thread : writers)
+			thread.start();
+		for (Thread thread : writers)
+			thread.join();
+		stop.set(true);
+		for (Thread thread : readers)
+			thread.join();
+
+		// replay each writer's toggles to know which odd keys are left
+		TreeMap<Integer, Integer> expected = new TreeMap<>();
+		for (int key = 0; key < 2 * STABLE; key += 2)
+			expected.put(key, key);
+		for (int w = 0; w < WRITERS; w++) {
+			Random random = new Random(w);
+			for (int i = 0; i < OPERATIONS; i++) {
+				int key = writerKey(w, random.nextInt(STABLE / WRITERS));
+				if (expected.remove(key) == null)
+					expected.put(key, key);
+			}
+		}
+		checkContents(tree, expected, "after the writers and readers");
+		checkIteration(tree);
+	}
+
+	/**
+	 * The iterator, which copies CHUNK keys at a time, must return increasing keys
+	 * and every stable key, whatever the writers do in between the chunks
+	 */
+	static void checkIteration(ConcurrentRedBlackTree<Integer, Integer> tree) {
+		int previous = -1;
+		int stable = 0;
+		for (int key : tree) {
+			if (key <= previous)
+				fail("The iterator returned " + key + " after " + previous + ".");
+			if (key % 2 == 0)
+				stable++;
+			previous = key;
+		}
+		if (stable != STABLE)
+			fail("The iterator should return all " + STABLE + " stable keys but returned " + stable + ".");
+		int from = 2 * (STABLE / 4);
+		int to = 2 * (3 * STABLE / 4);
+		stable = 0;
+		for (int key : tree.subMap(from, true, to, false)) {
+			if (key < from || key >= to)
+				fail("The range view [" + from + ", " + to + ") returned " + key + ".");
+			if (key % 2 == 0)
+				stable++;
+		}
+		if (stable != (to - from) / 2)
+			fail("The range view [" + from + ", " + to + ") should return " + (to - from) / 2 + " stable keys but returned " + stable + ".");
+	}
+
+	/**
+	 * Writer w owns the odd keys 2 * (w + WRITERS * i) + 1
+	 */
+	static int writerKey(int writer, int i) {
+		return 2 * (writer + WRITERS * i) + 1;
+	}
+
+	/**
+	 * The size, every value and the order of the keys against a TreeMap
+	 */
+	static void checkContents(ConcurrentRedBlackTree<Integer, Integer> tree, TreeMap<Integer, Integer> expected, String when) {
+		if (tree.size() != expected.size())
+			fail("The size should be " + expected.size() + " " + when + " but it is " + tree.size() + ".");
+		for (Map.Entry<Integer, Integer> entry : expected.entrySet()) {
+			if (!entry.getValue().equals(tree.getValue(entry.getKey())))
+				fail("The value of " + entry.getKey() + " should be " + entry.getValue() + " " + when + " but it is "
+						+ tree.getValue(entry.getKey()) + ".");
+		}
+		Iterator<Integer> keys = expected.keySet().iterator();
+		for (int key : tree) {
+			if (!keys.hasNext() || key != keys.next())
+				fail("The iterator should return the keys of the TreeMap in order " + when + ".");
+		}
+		if (keys.hasNext())
+			fail("The iterator stopped early " + when + ".");
+		if (!expected.isEmpty() && (!expected.firstKey().equals(tree.firstKey()) || !expected.lastKey().equals(tree.lastKey())))
+			fail("The first and last keys should match the TreeMap " + when + ".");
+	}
+
+	static void fail(String message) {
+		System.err.println(message);
+		error = true;
+	}
+}
@@ -0,0 +1,276 @@
+package dns_resolver;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import exceptions.FileFormatException;
+
+/**
+ * Reads a file of "hostname whitespace dotted-ip" lines on several threads. The
+ * file is cut into chunks of chunkSize bytes and each thread maps one chunk and
+ * parses its lines straight from the mapped buffer, with no copy onto the heap and
+ * no Strings, regular expressions or split arrays. Only the bytes of each host name
+ * are copied, into the URL that keeps them. A line belongs to the chunk it starts
+ * in: a chunk skips the part of a line that began before it and reads on past its
+ * end to finish its last line, so no thread has to wait for another to find where
+ * the lines break. Each chunk is mapped on its own, so the file can be far larger
+ * than the 2GB one mapping allows.
+ * <p>
+ * The records are handed to the RecordSink on the calling thread, a chunk at a time
+ * in file order, while the later chunks are still being parsed. At most two chunks
+ * of records per thread are in memory at once. Blank lines are skipped; any other
+ * line that is not a host name and an address stops the load with a
+ * FileFormatException giving its line and byte offset.
+ * @author Milad Balkhinezhad
+ */
+public class DnsFileLoader {
+
+	public static final int DEFAULT_CHUNK_SIZE = 8 << 20;
+	// the longest line a chunk will read past its end to finish
+	static final int MAX_RECORD = 64 << 10;
+
+	final int threads;
+	final int chunkSize;
+
+	/**
+	 * A loader with a thread per processor and the default chunk size
+	 */
+	public DnsFileLoader() {
+		this(Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+	}
+
+	/**
+	 * @param threads the number of threads that parse
+	 * @param chunkSize the number of bytes each thread parses at a time
+	 */
+	public DnsFileLoader(int threads, int chunkSize) {
+		if (threads < 1)
+			throw new IllegalArgumentException("threads must be at least 1: " + threads);
+		if (chunkSize < 1 || chunkSize > Integer.MAX_VALUE - MAX_RECORD - 1)
+			throw new IllegalArgumentException("bad chunk size: " + chunkSize);
+		this.threads = threads;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * The records of one chunk, or where it went wrong
+	 */
+	static final class Chunk {
+		URL[] urls = new URL[1024];
+		IPAddress[] ips = new IPAddress[1024];
+		int count;
+		// the lines that start in the chunk, blank ones included
+		long lines;
+		// set when a line is bad: what is wrong, which line of the chunk, and where
+		String error;
+		long errorLine;
+		long errorOffset;
+
+		void add(URL url, IPAddress ip) {
+			if (count == urls.length) {
+				urls = Arrays.copyOf(urls, count * 2);
+				ips = Arrays.copyOf(ips, count * 2);
+			}
+			urls[count] = url;
+			ips[count] = ip;
+			count++;
+		}
+	}
+
+	/**
+	 * Reads every record of the file into the sink
+	 * @param path the file to read
+	 * @param sink where the records go
+	 * @return the number of records read
+	 * @throws IOException if the file cannot be read
+	 * @throws FileFormatException if a line is not a host name and an address
+	 */
+	public long load(Path path, RecordSink sink) throws IOException, FileFormatException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			long chunks = (size + chunkSize - 1) / chunkSize;
+			if (threads == 1 || chunks <= 1) {
+				long lines = 0, records = 0;
+				for (long i = 0; i < chunks; i++) {
+					Chunk chunk = parse(channel, size, i * chunkSize);
+					records += deliver(chunk, lines, sink);
+					lines += chunk.lines;
+				}
+				return records;
+			}
+			ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+				Thread thread = new Thread(runnable, "DnsFileLoader");
+				thread.setDaemon(true);
+				return thread;
+			});
+			try {
+				ArrayDeque<Future<Chunk>> pending = new ArrayDeque<Future<Chunk>>();
+				long next = 0, lines = 0, records = 0;
+				while (next < chunks || !pending.isEmpty()) {
+					while (next < chunks && pending.size() < 2 * threads) {
+						long start = next++ * chunkSize;
+						pending.add(pool.submit(() -> parse(channel, size, start)));
+					}
+					Chunk chunk = pending.remove().get();
+					records += deliver(chunk, lines, sink);
+					lines += chunk.lines;
+				}
+				return records;
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IOException("interrupted while loading " + path, e);
+			} catch (ExecutionException e) {
+				if (e.getCause() instanceof IOException)
+					throw (IOException) e.getCause();
+				if (e.getCause() instanceof RuntimeException)
+					throw (RuntimeException) e.getCause();
+				throw new IOException(e.getCause());
+			} finally {
+				pool.shutdownNow();
+			}
+		}
+	}
+
+	/**
+	 * Hands the records of a chunk to the sink, or throws for its bad line
+	 * @param linesBefore the lines in all the chunks before this one
+	 * @return the number of records handed over
+	 */
+	private static int deliver(Chunk chunk, long linesBefore, RecordSink sink) throws FileFormatException {
+		if (chunk.error != null)
+			throw new FileFormatException(chunk.error, linesBefore + chunk.errorLine + 1, chunk.errorOffset);
+		sink.acceptAll(chunk.urls, chunk.ips, chunk.count);
+		return chunk.count;
+	}
+
+	/**
+	 * Maps the chunk at start and parses the lines that start in it
+	 */
+	Chunk parse(FileChannel channel, long size, long start) throws IOException {
+		long end = Math.min(size, start + chunkSize);
+		// one byte before the chunk, to see whether a line starts right at start
+		long from = Math.max(0, start - 1);
+		long to = Math.min(size, end + MAX_RECORD);
+		int length = (int) (to - from);
+		MappedByteBuffer bytes = channel.map(FileChannel.MapMode.READ_ONLY, from, length);
+
+		Chunk chunk = new Chunk();
+		int limit = (int) (end - from);
+		int i = (int) (start - from);
+		if (start > 0 && bytes.get(i - 1) != '\n') {
+			// the line that was going at start belongs to the chunk before
+			while (i < length && bytes.get(i) != '\n')
+				i++;
+			i++;
+		}
+		if (i >= limit)
+			return chunk;
+		// the last line of the chunk is the one holding its last byte
+		int stop = limit - 1;
+		while (stop < length && bytes.get(stop) != '\n')
+			stop++;
+		if (stop == length && to < size) {
+			// the last line goes on past what was mapped
+			int last = lineStart(bytes, stop);
+			parseLines(chunk, bytes, i, last, from);
+			if (chunk.error == null)
+				fail(chunk, "Record longer than " + MAX_RECORD + " bytes", from + last);
+			return chunk;
+		}
+		parseLines(chunk, bytes, i, Math.min(stop + 1, length), from);
+		return chunk;
+	}
+
+	/**
+	 * The start of the line that goes on to end
+	 */
+	private static int lineStart(ByteBuffer bytes, int end) {
+		int start = end;
+		while (start > 0 && bytes.get(start - 1) != '\n')
+			start--;
+		return start;
+	}
+
+	/**
+	 * Parses the lines in bytes from to to into the chunk, stopping at the first bad
+	 * one. The last line need not end with a newline.
+	 * @param offset the byte offset in the file or stream of bytes[0]
+	 */
+	static void parseLines(Chunk chunk, byte[] bytes, int from, int to, long offset) {
+		parseLines(chunk, ByteBuffer.wrap(bytes), from, to, offset);
+	}
+
+	/**
+	 * Parses the lines in bytes from to to into the chunk, reading at absolute
+	 * positions, so a mapped buffer is read in place
+	 * @param offset the byte offset in the file or stream of position 0 of bytes
+	 */
+	static void parseLines(Chunk chunk, ByteBuffer bytes, int from, int to, long offset) {
+		int i = from;
+		while (i < to) {
+			int lineEnd = i;
+			while (lineEnd < to && bytes.get(lineEnd) != '\n')
+				lineEnd++;
+			if (!parseLine(chunk, bytes, i, lineEnd)) {
+				fail(chunk, "Incorrect Format", offset + i);
+				return;
+			}
+			chunk.lines++;
+			i = lineEnd + 1;
+		}
+	}
+
+	private static void fail(Chunk chunk, String error, long offset) {
+		chunk.error = error;
+		chunk.errorLine = chunk.lines;
+		chunk.errorOffset = offset;
+	}
+
+	private static boolean isSpace(byte b) {
+		return b == ' ' || b == '\t' || b == '\r';
+	}
+
+	/**
+	 * Reads "hostname whitespace dotted-ip" from bytes start to end into the chunk
+	 * @return false if the line is not in that form
+	 */
+	private static boolean parseLine(Chunk chunk, ByteBuffer bytes, int start, int end) {
+		int i = start;
+		while (i < end && isSpace(bytes.get(i)))
+			i++;
+		if (i == end)
+			return true;
+		int hostStart = i;
+		while (i < end && !isSpace(bytes.get(i)))
+			i++;
+		int hostEnd = i;
+		while (i < end && isSpace(bytes.get(i)))
+			i++;
+		int ipStart = i;
+		while (i < end && !isSpace(bytes.get(i)))
+			i++;
+		int ipEnd = i;
+		while (i < end && isSpace(bytes.get(i)))
+			i++;
+		if (ipStart == ipEnd || i != end)
+			return false;
+		int packed;
+		try {
+			packed = IPAddress.parse(bytes, ipStart, ipEnd - ipStart);
+		} catch (NumberFormatException e) {
+			return false;
+		}
+		chunk.add(URL.read(bytes, hostStart, hostEnd - hostStart), IPAddress.valueOf(packed));
+		return true;
+	}
+}
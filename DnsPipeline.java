@@ -0,0 +1,420 @@
+package dns_resolver;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntSupplier;
+
+import exceptions.FileFormatException;
+
+/**
+ * Feeds a stream of "hostname whitespace dotted-ip" lines, for example DNS updates
+ * arriving on a socket, into a RecordSink while the stream is still coming in. Three
+ * stages run at once:
+ * <ul>
+ * <li>read: one thread cuts the stream into blocks of whole lines</li>
+ * <li>parse: a pool of threads turns each block into URLs and IPAddresses, the same
+ * way DnsFileLoader does</li>
+ * <li>apply: one thread hands each parsed block to the sink as a batch, in the order
+ * the blocks were read, so the sink does not have to be thread safe</li>
+ * </ul>
+ * The queues between the stages are bounded. When the sink falls behind, the queue
+ * in front of apply fills, the read thread waits for room, and it stops reading the
+ * stream, so a slow sink slows the sender down instead of the blocks piling up in
+ * memory. Each stage keeps counts and timings, and the depth of the queue in front
+ * of it, which can be read while the pipeline runs.
+ * <p>
+ * A bad line stops the pipeline; await throws a FileFormatException with its line
+ * and byte offset in the stream. Use RecordSink.replacing for a stream of updates, so
+ * a later record for a URL changes its address.
+ * @author Milad Balkhinezhad
+ */
+public class DnsPipeline {
+
+	public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+
+	/**
+	 * The counts and timings of one stage
+	 */
+	public static final class Stage {
+		final String name;
+		final LongAdder batches = new LongAdder();
+		final LongAdder records = new LongAdder();
+		final LongAdder bytes = new LongAdder();
+		final LongAdder busyNanos = new LongAdder();
+		final LongAdder waitNanos = new LongAdder();
+		final IntSupplier queueDepth;
+		final DnsPipeline pipeline;
+
+		Stage(String name, DnsPipeline pipeline, IntSupplier queueDepth) {
+			this.name = name;
+			this.pipeline = pipeline;
+			this.queueDepth = queueDepth;
+		}
+
+		public String name() {
+			return name;
+		}
+
+		/**
+		 * @return the number of blocks the stage has finished
+		 */
+		public long batches() {
+			return batches.sum();
+		}
+
+		/**
+		 * @return the number of records the stage has finished, 0 for read, which does not split records
+		 */
+		public long records() {
+			return records.sum();
+		}
+
+		/**
+		 * @return the number of bytes the stage has finished, 0 for apply, which only sees records
+		 */
+		public long bytes() {
+			return bytes.sum();
+		}
+
+		/**
+		 * @return the time the stage has spent working, added up over its threads
+		 */
+		public long busyMillis() {
+			return busyNanos.sum() / 1000000;
+		}
+
+		/**
+		 * The time the stage has spent waiting on another stage. For read this is
+		 * waiting for room in front of apply, which is how long the sink has held the
+		 * stream back; for apply it is waiting for parse to finish the next block.
+		 * @return the time spent waiting, added up over the threads of the stage
+		 */
+		public long waitMillis() {
+			return waitNanos.sum() / 1000000;
+		}
+
+		/**
+		 * @return the number of blocks waiting in the queue in front of the stage
+		 */
+		public int queueDepth() {
+			return queueDepth.getAsInt();
+		}
+
+		/**
+		 * @return the records finished per second since the pipeline started
+		 */
+		public double recordsPerSecond() {
+			return records() * 1e9 / Math.max(1, pipeline.elapsedNanos());
+		}
+
+		/**
+		 * @return the bytes finished per second since the pipeline started
+		 */
+		public double bytesPerSecond() {
+			return bytes() * 1e9 / Math.max(1, pipeline.elapsedNanos());
+		}
+
+		@Override
+		public String toString() {
+			return name + ": " + batches() + " batches, " + records() + " records (" + (long) recordsPerSecond() + "/s), "
+					+ bytes() + " bytes (" + (long) bytesPerSecond() + "/s), busy " + busyMillis() + "ms, waiting "
+					+ waitMillis() + "ms, queue " + queueDepth();
+		}
+	}
+
+	// put after the last block
+	private static final FutureTask<DnsFileLoader.Chunk> END = new FutureTask<DnsFileLoader.Chunk>(() -> null);
+
+	final RecordSink sink;
+	final int blockSize;
+	// read to parse: the blocks waiting for a parse thread
+	final ThreadPoolExecutor parsers;
+	// parse to apply: every block in the order it was read, parsed or not
+	final ArrayBlockingQueue<Future<DnsFileLoader.Chunk>> parsed;
+	final Stage read, parse, apply;
+
+	InputStream in;
+	Thread reader, applier;
+	long startNanos;
+	volatile long endNanos;
+	long applied;
+	private volatile Exception failure;
+
+	/**
+	 * A pipeline with a parse thread per processor and room for two blocks per thread
+	 * in each queue
+	 * @param sink where the records go
+	 */
+	public DnsPipeline(RecordSink sink) {
+		this(sink, Runtime.getRuntime().availableProcessors(), 2 * Runtime.getRuntime().availableProcessors(), DEFAULT_BLOCK_SIZE);
+	}
+
+	/**
+	 * @param sink where the records go
+	 * @param parseThreads the number of threads that parse
+	 * @param queueCapacity the number of blocks that can wait between stages
+	 * @param blockSize the bytes the read thread gathers into a block when the stream is quick
+	 */
+	public DnsPipeline(RecordSink sink, int parseThreads, int queueCapacity, int blockSize) {
+		if (parseThreads < 1 || queueCapacity < 1)
+			throw new IllegalArgumentException("need at least one parse thread and room for one block");
+		if (blockSize < 1)
+			throw new IllegalArgumentException("bad block size: " + blockSize);
+		this.sink = sink;
+		this.blockSize = blockSize;
+		// a block goes in parsed before it is given to the pool, so the pool never holds
+		// more than parsed does, and the one apply is waiting on
+		parsers = new ThreadPoolExecutor(parseThreads, parseThreads, 0, TimeUnit.SECONDS,
+				new ArrayBlockingQueue<Runnable>(queueCapacity + 1), runnable -> {
+					Thread thread = new Thread(runnable, "DnsPipeline parse");
+					thread.setDaemon(true);
+					return thread;
+				});
+		parsed = new ArrayBlockingQueue<Future<DnsFileLoader.Chunk>>(queueCapacity);
+		read = new Stage("read", this, () -> 0);
+		parse = new Stage("parse", this, () -> parsers.getQueue().size());
+		apply = new Stage("apply", this, () -> parsed.size());
+	}
+
+	/**
+	 * Starts reading the stream on new threads and returns at once
+	 * @param in the stream to read, which the pipeline closes when it is done
+	 * @throws IllegalStateException if the pipeline has already been started
+	 */
+	public synchronized void start(InputStream in) {
+		if (this.in != null)
+			throw new IllegalStateException("already started");
+		this.in = in;
+		startNanos = System.nanoTime();
+		reader = new Thread(this::readLoop, "DnsPipeline read");
+		applier = new Thread(this::applyLoop, "DnsPipeline apply");
+		reader.setDaemon(true);
+		applier.setDaemon(true);
+		applier.start();
+		reader.start();
+	}
+
+	/**
+	 * Waits until the whole stream has been applied, or the pipeline has stopped
+	 * @return the number of records applied
+	 * @throws IOException if the stream could not be read
+	 * @throws FileFormatException if a line is not a host name and an address
+	 * @throws InterruptedException if the wait is interrupted
+	 */
+	public long await() throws IOException, FileFormatException, InterruptedException {
+		if (applier == null)
+			throw new IllegalStateException("not started");
+		applier.join();
+		reader.join();
+		Exception e = failure;
+		if (e instanceof IOException)
+			throw (IOException) e;
+		if (e instanceof FileFormatException)
+			throw (FileFormatException) e;
+		if (e instanceof RuntimeException)
+			throw (RuntimeException) e;
+		return applied;
+	}
+
+	/**
+	 * Stops the pipeline without waiting for the rest of the stream. Blocks already
+	 * being applied are finished; nothing after them is.
+	 */
+	public void close() {
+		fail(new IOException("pipeline closed"));
+		if (applier == null)
+			return;
+		try {
+			await();
+		} catch (IOException | FileFormatException | InterruptedException e) {
+			// expected, we stopped it
+		}
+	}
+
+	/**
+	 * Records the first thing to go wrong and stops every stage
+	 */
+	private void fail(Exception e) {
+		synchronized (this) {
+			if (failure != null)
+				return;
+			failure = e;
+		}
+		if (reader != null)
+			reader.interrupt();
+		if (applier != null)
+			applier.interrupt();
+		try {
+			if (in != null)
+				in.close();
+		} catch (IOException ignored) {
+			// it is being thrown away
+		}
+	}
+
+	public Stage readStage() {
+		return read;
+	}
+
+	public Stage parseStage() {
+		return parse;
+	}
+
+	public Stage applyStage() {
+		return apply;
+	}
+
+	long elapsedNanos() {
+		long end = endNanos;
+		return (end != 0 ? end : System.nanoTime()) - startNanos;
+	}
+
+	/**
+	 * Reads the stream into blocks of whole lines. A block is handed on when it is
+	 * full, or when the stream has nothing more ready, so a slow stream is not held
+	 * back waiting to fill a block.
+	 */
+	private void readLoop() {
+		byte[] buffer = new byte[blockSize];
+		int filled = 0;
+		long offset = 0;
+		try {
+			while (failure == null) {
+				long begin = System.nanoTime();
+				int n = in.read(buffer, filled, buffer.length - filled);
+				if (n < 0)
+					break;
+				filled += n;
+				int last = filled - 1;
+				while (last >= 0 && buffer[last] != '\n')
+					last--;
+				if (last < 0 && filled == buffer.length) {
+					// a line bigger than a block
+					if (buffer.length >= DnsFileLoader.MAX_RECORD) {
+						DnsFileLoader.Chunk chunk = new DnsFileLoader.Chunk();
+						chunk.error = "Record longer than " + DnsFileLoader.MAX_RECORD + " bytes";
+						chunk.errorOffset = offset;
+						read.busyNanos.add(System.nanoTime() - begin);
+						hand(done(chunk));
+						return;
+					}
+					buffer = Arrays.copyOf(buffer, Math.min(buffer.length * 2, DnsFileLoader.MAX_RECORD));
+					continue;
+				}
+				if (last < 0 || (filled < buffer.length && in.available() > 0))
+					continue;
+				byte[] next = new byte[Math.max(blockSize, filled - last - 1)];
+				System.arraycopy(buffer, last + 1, next, 0, filled - last - 1);
+				read.busyNanos.add(System.nanoTime() - begin);
+				hand(buffer, last + 1, offset);
+				offset += last + 1;
+				filled -= last + 1;
+				buffer = next;
+			}
+			if (filled > 0 && failure == null)
+				hand(buffer, filled, offset);
+		} catch (InterruptedException e) {
+			return;
+		} catch (IOException e) {
+			fail(e);
+			return;
+		} catch (RuntimeException e) {
+			fail(e);
+			return;
+		}
+		try {
+			hand(END);
+		} catch (InterruptedException e) {
+			// stopped
+		}
+	}
+
+	private static FutureTask<DnsFileLoader.Chunk> done(DnsFileLoader.Chunk chunk) {
+		FutureTask<DnsFileLoader.Chunk> task = new FutureTask<DnsFileLoader.Chunk>(() -> chunk);
+		task.run();
+		return task;
+	}
+
+	/**
+	 * Queues the first length bytes of block to be parsed and applied
+	 * @param offset the offset in the stream of block[0]
+	 */
+	private void hand(byte[] block, int length, long offset) throws InterruptedException {
+		FutureTask<DnsFileLoader.Chunk> task = new FutureTask<DnsFileLoader.Chunk>(() -> {
+			long begin = System.nanoTime();
+			DnsFileLoader.Chunk chunk = new DnsFileLoader.Chunk();
+			DnsFileLoader.parseLines(chunk, block, 0, length, offset);
+			parse.busyNanos.add(System.nanoTime() - begin);
+			parse.batches.increment();
+			parse.records.add(chunk.count);
+			parse.bytes.add(length);
+			return chunk;
+		});
+		hand(task);
+		parsers.execute(task);
+		read.batches.increment();
+		read.bytes.add(length);
+	}
+
+	/**
+	 * Puts a block in the queue in front of apply, waiting for room
+	 */
+	private void hand(FutureTask<DnsFileLoader.Chunk> task) throws InterruptedException {
+		long begin = System.nanoTime();
+		parsed.put(task);
+		read.waitNanos.add(System.nanoTime() - begin);
+	}
+
+	/**
+	 * Applies the parsed blocks in order until the end of the stream or a bad line
+	 */
+	private void applyLoop() {
+		long lines = 0;
+		try {
+			// a sink that swallows the interrupt must not keep apply waiting
+			while (failure == null) {
+				Future<DnsFileLoader.Chunk> next = parsed.take();
+				if (next == END)
+					break;
+				long begin = System.nanoTime();
+				DnsFileLoader.Chunk chunk = next.get();
+				apply.waitNanos.add(System.nanoTime() - begin);
+				if (chunk.error != null) {
+					fail(new FileFormatException(chunk.error, lines + chunk.errorLine + 1, chunk.errorOffset));
+					break;
+				}
+				begin = System.nanoTime();
+				sink.acceptAll(chunk.urls, chunk.ips, chunk.count);
+				apply.busyNanos.add(System.nanoTime() - begin);
+				apply.batches.increment();
+				apply.records.add(chunk.count);
+				applied += chunk.count;
+				lines += chunk.lines;
+			}
+		} catch (InterruptedException e) {
+			// stopped by fail
+		} catch (ExecutionException e) {
+			fail(e.getCause() instanceof Exception ? (Exception) e.getCause() : new IOException(e.getCause()));
+		} catch (RuntimeException e) {
+			fail(e);
+		} finally {
+			endNanos = System.nanoTime();
+			parsers.shutdownNow();
+			// let the read thread out if it is waiting for room
+			parsed.clear();
+			try {
+				in.close();
+			} catch (IOException ignored) {
+				// nothing more is read
+			}
+		}
+	}
+}
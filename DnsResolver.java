@@ -0,0 +1,192 @@
+package dns_resolver;
+
+import java.util.Arrays;
+
+import data_structures.HashI;
+import data_structures.IntRedBlackTree;
+import data_structures.OpenHash;
+
+/**
+ * A URL to IPAddress table that can also be asked for every URL on an address.
+ * Next to the forward HashI it keeps a reverse index, an IntRedBlackTree keyed by
+ * the packed address, and every add, change and remove goes to both so they always
+ * agree. Reverse lookups cost one O(log n) search instead of a scan of the table.
+ * <p>
+ * Most addresses have a single URL, so the reverse index stores that URL itself.
+ * Only an address with two or more gets a UrlSet, a plain array that grows as
+ * needed, which is far smaller than a Linked List of nodes.
+ * @author Milad Balkhinezhad
+ */
+public class DnsResolver {
+
+	/**
+	 * The URLs on one address, in no particular order
+	 */
+	static final class UrlSet {
+		URL[] urls;
+		int count;
+
+		UrlSet(URL first, URL second) {
+			urls = new URL[] { first, second, null, null };
+			count = 2;
+		}
+
+		void add(URL url) {
+			if (count == urls.length)
+				urls = Arrays.copyOf(urls, count * 2);
+			urls[count++] = url;
+		}
+
+		/**
+		 * Removes the URL by moving the last one into its place
+		 * @return whether the URL was there
+		 */
+		boolean remove(URL url) {
+			for (int i = 0; i < count; i++) {
+				if (urls[i].compareTo(url) == 0) {
+					urls[i] = urls[--count];
+					urls[count] = null;
+					return true;
+				}
+			}
+			return false;
+		}
+	}
+
+	final HashI<URL, IPAddress> forward;
+	// packed address -> a URL, or a UrlSet when there are several
+	final IntRedBlackTree<Object> reverse;
+
+	public DnsResolver() {
+		this(new OpenHash<URL, IPAddress>(16));
+	}
+
+	/**
+	 * @param forward an empty table to keep the URL to IPAddress entries in
+	 */
+	public DnsResolver(HashI<URL, IPAddress> forward) {
+		if (!forward.isEmpty())
+			throw new IllegalArgumentException("the forward table must start empty");
+		this.forward = forward;
+		reverse = new IntRedBlackTree<Object>();
+	}
+
+	/**
+	 * Adds a URL and its address. It will not allow duplicate URLs.
+	 * @param url the URL to add
+	 * @param ip the address of the URL
+	 * @return <code>true</code> if the URL was added, <code>false</code> if it was already there
+	 */
+	public boolean add(URL url, IPAddress ip) {
+		if (!forward.add(url, ip))
+			return false;
+		link(url, ip.toInt());
+		return true;
+	}
+
+	/**
+	 * Moves an existing URL to a new address
+	 * @param url the URL to change
+	 * @param ip the new address
+	 * @return whether the URL was found
+	 */
+	public boolean changeAddress(URL url, IPAddress ip) {
+		IPAddress old = forward.getValue(url);
+		if (old == null)
+			return false;
+		forward.changeValue(url, ip);
+		if (old.toInt() != ip.toInt()) {
+			unlink(url, old.toInt());
+			link(url, ip.toInt());
+		}
+		return true;
+	}
+
+	/**
+	 * Removes a URL
+	 * @param url the URL to remove
+	 * @return whether the URL was found
+	 */
+	public boolean remove(URL url) {
+		IPAddress old = forward.getValue(url);
+		if (old == null)
+			return false;
+		forward.remove(url);
+		unlink(url, old.toInt());
+		return true;
+	}
+
+	private void link(URL url, int packed) {
+		Object hosts = reverse.getValue(packed);
+		if (hosts == null)
+			reverse.add(packed, url);
+		else if (hosts instanceof UrlSet)
+			((UrlSet) hosts).add(url);
+		else
+			reverse.changeValue(packed, new UrlSet((URL) hosts, url));
+	}
+
+	private void unlink(URL url, int packed) {
+		Object hosts = reverse.getValue(packed);
+		if (hosts instanceof UrlSet) {
+			UrlSet set = (UrlSet) hosts;
+			set.remove(url);
+			if (set.count == 1)
+				reverse.changeValue(packed, set.urls[0]);
+		} else
+			reverse.remove(packed);
+	}
+
+	/**
+	 * The address of a URL
+	 * @param url the URL to look up
+	 * @return the address, or null if the URL is not in the table
+	 */
+	public IPAddress resolve(URL url) {
+		return forward.getValue(url);
+	}
+
+	/**
+	 * Every URL on an address
+	 * @param ip the address to look up
+	 * @return a new array of the URLs, empty if there are none
+	 */
+	public URL[] hostsOf(IPAddress ip) {
+		Object hosts = reverse.getValue(ip.toInt());
+		if (hosts == null)
+			return new URL[0];
+		if (hosts instanceof UrlSet) {
+			UrlSet set = (UrlSet) hosts;
+			return Arrays.copyOf(set.urls, set.count);
+		}
+		return new URL[] { (URL) hosts };
+	}
+
+	/**
+	 * The number of URLs on an address
+	 * @param ip the address to look up
+	 * @return the number of URLs
+	 */
+	public int hostCount(IPAddress ip) {
+		Object hosts = reverse.getValue(ip.toInt());
+		if (hosts == null)
+			return 0;
+		return hosts instanceof UrlSet ? ((UrlSet) hosts).count : 1;
+	}
+
+	/**
+	 * The number of URLs in the table
+	 * @return the number of URLs
+	 */
+	public int size() {
+		return forward.size();
+	}
+
+	/**
+	 * The number of different addresses in the table
+	 * @return the number of addresses
+	 */
+	public int addressCount() {
+		return reverse.size();
+	}
+}
@@ -19,4 +19,12 @@ public class FileFormatException extends Exception {
 	public FileFormatException(String s) {
 		super(s);
 	}
+	/**
+	 * @param s what is wrong with the record
+	 * @param line the line of the bad record, counting from 1
+	 * @param offset the byte offset in the file of the start of the bad record
+	 */
+	public FileFormatException(String s, long line, long offset) {
+		super(s + " at line " + line + ", byte " + offset);
+	}
 }
@@ -0,0 +1,45 @@
+package data_structures;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Turns keys or values into a fixed number of bytes and back, so they can be
+ * stored outside the Java heap. Keys are compared against their stored bytes
+ * directly, without reading them back into objects.
+ */
+public interface FixedWidthCodec<T> {
+
+	/**
+	 * The number of bytes every encoded object takes
+	 * @return the width in bytes
+	 */
+	public int width();
+
+	/**
+	 * Writes the object into the buffer
+	 * @param buffer the buffer to write into
+	 * @param offset where the object starts in the buffer
+	 * @param obj the object to write
+	 * @throws IllegalArgumentException if the object does not fit in width() bytes
+	 */
+	public void write(ByteBuffer buffer, int offset, T obj);
+
+	/**
+	 * Reads an object back out of the buffer
+	 * @param buffer the buffer to read from
+	 * @param offset where the object starts in the buffer
+	 * @return the object
+	 */
+	public T read(ByteBuffer buffer, int offset);
+
+	/**
+	 * Compares an object with the one stored in the buffer, in the same order
+	 * as the object's compareTo. Only needed for keys.
+	 * @param obj the object to compare
+	 * @param buffer the buffer holding the other object
+	 * @param offset where the other object starts in the buffer
+	 * @return a negative integer, zero, or a positive integer as obj is less than,
+	 * equal to, or greater than the stored object
+	 */
+	public int compare(T obj, ByteBuffer buffer, int offset);
+}
@@ -1,13 +1,21 @@
 package data_structures;
 
+import java.util.Arrays;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 
 /**
  * The Hash data structure has O(1) time complexity (best case) for add, remove, and find
  * for an object in the data structure. The methods in the Hash data structure are defined
  * by the HashI interface. The Hash consists of an array of Linked Lists,
- * the Linked Lists are defined by the HashListI interface.
- * 
+ * the Linked Lists are defined by the HashListI interface. A Linked List is only
+ * made for a slot once something is added to it.
+ * <p>
+ * With incremental resize turned on, growing the table does not move every entry at
+ * once. The old table is kept next to the new one and each add, remove or lookup moves
+ * the entries of at most MIGRATE_STEP slots across, so no single call pays for the
+ * whole resize. Until the old table is empty a key may be in either table.
+ *
  * @author
  *
  * @param <K> The key for entries in the hash
@@ -26,199 +34,325 @@ public class Hash<K, V> implements HashI<K, V> {
 		return (((Comparable<K>)this.key).compareTo(o.key));
 	}
 	}
+		// the number of old slots moved across by each call during an incremental resize
+		static final int MIGRATE_STEP = 16;
+
 		int tableSize;
 		int numElements;
 		LinkedList<HashElement<K,V>>[] harray;
 		double maxLoadFactor;
-		
+		boolean incremental;
+		// the table being emptied by an incremental resize, or null
+		LinkedList<HashElement<K,V>>[] oldArray;
+		int oldSize;
+		// old slots below this one have been moved across
+		int migrated;
+
 		public Hash (int tableSize) {
-			this.tableSize = tableSize;
-			harray = (LinkedList<HashElement<K,V>>[]) new LinkedList[tableSize];
-			for(int i = 0; i<tableSize; i++)
-			harray[i] = new LinkedList<HashElement<K,V>>();
-				maxLoadFactor = 0.75;
-				numElements = 0;
+			this.tableSize = Math.max(tableSize, 1);
+			harray = (LinkedList<HashElement<K,V>>[]) new LinkedList[this.tableSize];
+			maxLoadFactor = 0.75;
+			numElements = 0;
+		}
+
+		/**
+		 * Turns incremental resize on or off. Turning it off finishes any resize
+		 * that is under way.
+		 * @param incremental whether to resize a few slots at a time
+		 */
+		public void setIncrementalResize(boolean incremental) {
+			if (!incremental)
+				finishMigration();
+			this.incremental = incremental;
+		}
+
+		/**
+		 * Whether an incremental resize is under way
+		 * @return true if some entries are still in the old table
+		 */
+		public boolean isResizing() {
+			return oldArray != null;
+		}
+
+		private static int indexFor(Object key, int size) {
+			return (key.hashCode() & 0x7FFFFFFF) % size;
+		}
+
+		/**
+		 * Finds the element for the key in either table
+		 */
+		private HashElement<K,V> find(K key) {
+			LinkedList<HashElement<K,V>> list = harray[indexFor(key, tableSize)];
+			HashElement<K,V> he = find(list, key);
+			if (he == null && oldArray != null)
+				he = find(oldArray[indexFor(key, oldSize)], key);
+			return he;
 		}
 
-		 /**  
-		 * Adds the given key/value pair to the dictionary.  Returns 
-		 * false if the dictionary is full, or if the key is a duplicate. 
-		 * Returns true if addition succeeded. 
-		 *  
+		private HashElement<K,V> find(LinkedList<HashElement<K,V>> list, K key) {
+			if (list == null)
+				return null;
+			for (HashElement<K,V> he : list)
+				if (((Comparable<K>)he.key).compareTo(key) == 0)
+					return he;
+			return null;
+		}
+
+		private void insert(LinkedList<HashElement<K,V>>[] array, int size, HashElement<K,V> he) {
+			int hashval = indexFor(he.key, size);
+			if (array[hashval] == null)
+				array[hashval] = new LinkedList<HashElement<K,V>>();
+			array[hashval].add(he);
+		}
+
+		/**
+		 * Moves the entries of up to MIGRATE_STEP old slots into the new table
+		 */
+		private void migrate() {
+			if (oldArray == null)
+				return;
+			int end = Math.min(migrated + MIGRATE_STEP, oldSize);
+			for (; migrated < end; migrated++) {
+				LinkedList<HashElement<K,V>> list = oldArray[migrated];
+				if (list == null)
+					continue;
+				for (HashElement<K,V> he : list)
+					insert(harray, tableSize, he);
+				oldArray[migrated] = null;
+			}
+			if (migrated == oldSize)
+				oldArray = null;
+		}
+
+		private void finishMigration() {
+			while (oldArray != null)
+				migrate();
+		}
+
+		 /**
+		 * Adds the given key/value pair to the dictionary.  Returns
+		 * false if the key is a duplicate.
+		 * Returns true if addition succeeded.
+		 *
 		 * @param key the key to add
 		 * @param value the value associated with the key
 		 * @return true if the key/value are added to the hash.
 		 */
-	
+
 		public boolean add(K key, V value) {
-			if (loadFactor() > maxLoadFactor)
-				resize (tableSize * 2);
-			
-			HashElement<K,V> he = new HashElement (key, value);
-				int hashval = key.hashCode();
-				hashval = hashval & 0x7FFFFFFF;
-				hashval = hashval % tableSize;
-				harray[hashval].add(he);
-				numElements++;
-				return true;
+			migrate();
+			if (find(key) != null)
+				return false;
+			if (oldArray == null && loadFactor() > maxLoadFactor) {
+				if (incremental)
+					startResize(tableSize * 2);
+				else
+					resize(tableSize * 2);
 			}
+			insert(harray, tableSize, new HashElement<K,V>(key, value));
+			numElements++;
+			return true;
+		}
+
+		private void startResize(int newSize) {
+			oldArray = harray;
+			oldSize = tableSize;
+			migrated = 0;
+			harray = (LinkedList<HashElement<K,V>>[]) new LinkedList[newSize];
+			tableSize = newSize;
+			migrate();
+		}
 
 		/**
-		 * Deletes the key/value pair identified by the key parameter. 
-		 * Returns true if the key/value pair was found and removed, 
+		 * Deletes the key/value pair identified by the key parameter.
+		 * Returns true if the key/value pair was found and removed,
 		 * otherwise returns false.
-		 *  
-		 * @param key
-		 * @return
+		 *
+		 * @param key the key to remove
+		 * @return whether the key was removed
 		 */
-		
+
 		public boolean remove(K key) {
-			int hashval = (key.hashCode() & 0x7FFFFFFF) % tableSize;
-			if (isEmpty() == true) {
-				return false;
-			}
-			for (HashElement<K,V> o : harray[getIndex(key)]) {
-				if (((Comparable<HashElement<K,V>>)o).compareTo(new HashElement<K,V>(o.key,o.value)) == 0) {
-					if (harray[hashval].remove(o) != null) {
-						numElements--;
-						return true;
-					}
-				}
+			migrate();
+			HashElement<K,V> he = new HashElement<K,V>(key, null);
+			LinkedList<HashElement<K,V>> list = harray[indexFor(key, tableSize)];
+			if (list == null || list.remove(he) == null) {
+				if (oldArray == null)
+					return false;
+				list = oldArray[indexFor(key, oldSize)];
+				if (list == null || list.remove(he) == null)
+					return false;
 			}
-			return false;
-		}
-		
-		private int getIndex(K key) {
-			int hashIndex = key.hashCode() % tableSize;
-			if (hashIndex < 0)
-				hashIndex = hashIndex + tableSize;
-			return hashIndex;
+			numElements--;
+			return true;
 		}
-		
+
 		/**
 		 * Change the value associated with an existing key.
 		 * @param key The key to change
-		 * @param value
-		 * @return
+		 * @param value the new value
+		 * @return whether the key was found
 		 */
 		public boolean changeValue(K key, V value) {
-			int hashval = (key.hashCode() & 0x7FFFFFFF) % tableSize;
-				for (HashElement<K,V> he : harray[hashval]) {
-					if (((Comparable <K>)he.key).compareTo(key) == 0) {
-						he.value = value;
-						return true;
-					}
-				}
+			migrate();
+			HashElement<K,V> he = find(key);
+			if (he == null)
 				return false;
+			he.value = value;
+			return true;
 		}
-		
-		
+
+
 		/**
 		 * Test whether the hash has the entry associated with the key
 		 * @param key the key to look for
 		 * @return whether it is there.
 		 */
 		public boolean contains(K key) {
-			int hashval = (key.hashCode() & 0x7FFFFFFF) % tableSize;
-			if (isEmpty())
-				return false;
-			for (HashElement<K,V> he : harray[hashval])
-				if (((Comparable<K>)he.key).compareTo(key) == 0) {
-					return true;
+			migrate();
+			return find(key) != null;
 		}
-		return false;
-		} 
-		
+
 		/**
-		 * Returns the value associated with the parameter key. 
-		 * Returns null if the key is not found or the dictionary is empty. 
+		 * Returns the value associated with the parameter key.
+		 * Returns null if the key is not found or the dictionary is empty.
 		 * @param key the key to find the value for
 		 * @return the value
 		 */
 		public V getValue(K key) {
-			int hashval = (key.hashCode() & 0x7FFFFFFF) % tableSize;
-				for (HashElement<K,V> he : harray[hashval])
-					if (((Comparable<K>)he.key).compareTo(key) == 0)
-						return he.value;
-						return null;
+			migrate();
+			HashElement<K,V> he = find(key);
+			if (he == null)
+				return null;
+			return he.value;
+		}
+		/**
+		 * Looks up a batch of keys. The slot of every key is worked out first and the
+		 * keys are then visited in slot order, so the table is read from front to back
+		 * in one pass and keys that share a slot are found with one load of its list.
+		 * @param keys the keys to look up
+		 * @param out where the values go, at least as long as keys
+		 * @return the number of values that are not null
+		 */
+		public int getAll(K[] keys, V[] out) {
+			if (out.length < keys.length)
+				throw new IllegalArgumentException("out is shorter than keys");
+			return lookupAll(keys, out);
+		}
+
+		/**
+		 * Test whether the hash has an entry for every key in a batch, visiting
+		 * them in slot order like getAll
+		 * @param keys the keys to look for
+		 * @return whether they are all there
+		 */
+		public boolean containsAll(K[] keys) {
+			return lookupAll(keys, null) == keys.length;
 		}
+
 		/**
-		 * Returns the number of key/value pairs currently stored in the dictionary 
-		 * @return
+		 * Finds every key of the batch, putting the values in out unless it is null
+		 * @return the number of keys found, or with out, of values that are not null
+		 */
+		private int lookupAll(K[] keys, V[] out) {
+			migrate();
+			int n = keys.length;
+			// the slot in the high half, the place in the batch in the low half
+			long[] order = new long[n];
+			for (int i = 0; i < n; i++)
+				order[i] = ((long) indexFor(keys[i], tableSize) << 32) | i;
+			Arrays.sort(order);
+			int found = 0;
+			for (int j = 0; j < n; j++) {
+				int i = (int) order[j];
+				LinkedList<HashElement<K,V>> list = harray[(int) (order[j] >>> 32)];
+				HashElement<K,V> he = find(list, keys[i]);
+				if (he == null && oldArray != null)
+					he = find(oldArray[indexFor(keys[i], oldSize)], keys[i]);
+				if (out != null)
+					out[i] = he == null ? null : he.value;
+				if (he != null && (out == null || he.value != null))
+					found++;
+			}
+			return found;
+		}
+
+		/**
+		 * Returns the number of key/value pairs currently stored in the dictionary
+		 * @return the number of entries
 		 */
 		public int size() {
-			return tableSize;
+			return numElements;
 		}
 
 		/**
-		 * Returns true if the dictionary is empty 
+		 * Returns true if the dictionary is empty
 		 * @return whether the dictionary is empty
 		 */
 		public boolean isEmpty() {
 			return numElements == 0;
 		}
-		
+
 		/**
 		 * Make the dictionary empty
 		 */
-		
+
 		public void makeEmpty(){
-			tableSize = 0;
+			harray = (LinkedList<HashElement<K,V>>[]) new LinkedList[tableSize];
+			oldArray = null;
+			numElements = 0;
 		}
 
 		/**
 		 * Returns the current load factor of the dictionary (lambda)
 		 * @return the loadFactor
 		 */
-		
+
 		public double loadFactor() {
-			return numElements / tableSize;
+			return (double) numElements / tableSize;
 		}
-		
+
 		/**
 		 * Get the maximum load factor (at which point we need to resize)
 		 * @return the maximum load factor of the hash
 		 */
-		
+
 		public double getMaxLoadFactor() {
 			return maxLoadFactor;
 		}
-			
+
 		/**
 		 * Set the maximum load factor (at which point we need to resize)
 		 * @param loadfactor the maximum load factor
-		 * @return 
 		 */
-		
+
 		public void setMaxLoadFActor(double loadfactor) {
 			maxLoadFactor = loadfactor;
 		}
-		
+
 		/**
-		 * Resizes the dictionary
+		 * Resizes the dictionary in one go, moving the existing entries across
 		 * @param newSize the size of the new dictionary
 		 */
-		
+
 		public void resize(int newSize) {
+			finishMigration();
+			newSize = Math.max(newSize, 1);
 			LinkedList<HashElement<K,V>>[] newArray = (LinkedList<HashElement<K,V>>[]) new LinkedList[newSize];
-			for (int i=0; i<newSize; i++) {
-				newArray[i] = new LinkedList<HashElement<K,V>>();
-			}
-			for (K key : this) {
-				V val = getValue(key);
-				HashElement<K,V> he = new HashElement<>(key,val);
-				int hashval = (key.hashCode() & 0x7FFFFFFF) % newSize;
-				newArray[hashval].add(he);
+			for (LinkedList<HashElement<K,V>> list : harray) {
+				if (list == null)
+					continue;
+				for (HashElement<K,V> he : list)
+					insert(newArray, newSize, he);
 			}
 			harray = newArray;
 			tableSize = newSize;
 		}
-		
+
 		/**
-		 * Returns an Iterator of the keys in the dictionary, in ascending 
-		 * sorted order 
+		 * Returns an Iterator of the keys in the dictionary, in table order
 		 */
-		
+
 		public Iterator<K> iterator() {
 			return new IteratorHelper<K>();
 		}
@@ -227,20 +361,26 @@ public class Hash<K, V> implements HashI<K, V> {
 			int position;
 			public IteratorHelper() {
 				Keys = (T[]) new Object [size()];
-				int p = 0;
-				for (int i = 0; i < tableSize; i++) {
-					LinkedList<HashElement<K,V>> list = harray[i];
-					for (HashElement<K,V> h:list)
+				int p = addKeys(harray, 0);
+				if (oldArray != null)
+					addKeys(oldArray, p);
+				position = 0;
+			}
+			private int addKeys(LinkedList<HashElement<K,V>>[] array, int p) {
+				for (LinkedList<HashElement<K,V>> list : array) {
+					if (list == null)
+						continue;
+					for (HashElement<K,V> h : list)
 						Keys[p++] = (T) h.key;
 				}
-				position = 0;
+				return p;
 			}
 			public boolean hasNext() {
 				return position < Keys.length;
 			}
 			public T next() {
 				if (!hasNext())
-				return null;
+					throw new NoSuchElementException();
 				return Keys[position++];
 			}
 
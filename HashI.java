@@ -64,6 +64,36 @@ public interface HashI<K, V> extends Iterable<K> {
 	 */
 	public V getValue(K key);
 
+	/**
+	 * Looks up a batch of keys. out[i] is set to the value of keys[i], or null if
+	 * keys[i] is not in the hash. Hashes that can overlap the lookups of a batch
+	 * override this; by default it calls getValue for each key.
+	 * @param keys the keys to look up
+	 * @param out where the values go, at least as long as keys
+	 * @return the number of values that are not null
+	 */
+	public default int getAll(K[] keys, V[] out) {
+		if (out.length < keys.length)
+			throw new IllegalArgumentException("out is shorter than keys");
+		int found = 0;
+		for (int i = 0; i < keys.length; i++)
+			if ((out[i] = getValue(keys[i])) != null)
+				found++;
+		return found;
+	}
+
+	/**
+	 * Test whether the hash has an entry for every key in a batch
+	 * @param keys the keys to look for
+	 * @return whether they are all there
+	 */
+	public default boolean containsAll(K[] keys) {
+		for (K key : keys)
+			if (!contains(key))
+				return false;
+		return true;
+	}
+
 	/**
 	 * Returns the number of key/value pairs currently stored in the dictionary 
 	 * @return
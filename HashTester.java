@@ -0,0 +1,159 @@
+package RBTester;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+import data_structures.Hash;
+
+/**
+ * Checks Hash against a HashMap with incremental resize both off and on. With it
+ * on, the contents are also checked while a resize is half done, when a key can be
+ * in either table, and a resize has to be spread over many calls. Turning the mode
+ * off, resizing by hand and emptying the hash in the middle of a resize must all
+ * leave a hash that works.
+ * @author Milad Balkhinezhad
+ */
+public class HashTester {
+
+	static boolean error = false;
+
+	public static void main(String[] args) {
+		Random random = new Random(11);
+		for (boolean incremental : new boolean[] { false, true }) {
+			check(random, incremental, 300, 100000);
+			check(random, incremental, 50000, 200000);
+		}
+		checkInterruptedResizes(random);
+
+		if (!error)
+			System.out.println("Hash: all checks passed.");
+	}
+
+	/**
+	 * Random operations on keys from -range / 2 to range / 2, so some hash codes
+	 * are negative
+	 */
+	static void check(Random random, boolean incremental, int range, int operations) {
+		String name = (incremental ? "incremental" : "one-go") + " resize over " + range + " keys";
+		Hash<Integer, Integer> hash = new Hash<>(1);
+		hash.setIncrementalResize(incremental);
+		HashMap<Integer, Integer> map = new HashMap<>();
+		int resizes = 0;
+		int longestResize = 0;
+		int callsInResize = 0;
+		for (int i = 0; i < operations; i++) {
+			int key = random.nextInt(range) - range / 2;
+			switch (random.nextInt(5)) {
+			case 0:
+			case 1:
+				if (hash.add(key, i) != (map.putIfAbsent(key, i) == null))
+					fail(name + ": add(" + key + ") should return true only for a new key.");
+				break;
+			case 2:
+				if (hash.remove(key) != (map.remove(key) != null))
+					fail(name + ": remove(" + key + ") should return true only for a key in the hash.");
+				break;
+			case 3:
+				if (hash.changeValue(key, -i) != (map.replace(key, -i) != null))
+					fail(name + ": changeValue(" + key + ") should return true only for a key in the hash.");
+				break;
+			default:
+				if (!Objects.equals(hash.getValue(key), map.get(key)) || hash.contains(key) != map.containsKey(key))
+					fail(name + ": getValue(" + key + ") should be " + map.get(key) + " but it is " + hash.getValue(key) + ".");
+			}
+			if (hash.size() != map.size())
+				fail(name + ": the size should be " + map.size() + " after " + i + " operations but it is " + hash.size() + ".");
+			if (hash.isResizing()) {
+				if (callsInResize++ == 0) {
+					resizes++;
+					// half way through a resize some keys are in the old table and some in the new
+					checkContents(hash, map, name + " during a resize", false);
+				}
+			} else {
+				longestResize = Math.max(longestResize, callsInResize);
+				callsInResize = 0;
+			}
+			if (i % 10000 == 0)
+				checkContents(hash, map, name + " after " + i + " operations", true);
+		}
+		checkContents(hash, map, name + " after the random operations", true);
+		if (incremental && range > 10000 && (resizes == 0 || longestResize < 2))
+			fail(name + ": growing to " + map.size() + " keys should take resizes spread over several calls, but " + resizes
+					+ " resizes were seen and the longest took " + longestResize + " calls.");
+		if (!incremental && resizes > 0)
+			fail(name + ": a resize should never be left under way with incremental resize off.");
+	}
+
+	/**
+	 * A resize that is under way is finished by turning the mode off or by resize,
+	 * and dropped by makeEmpty
+	 */
+	static void checkInterruptedResizes(Random random) {
+		for (int way = 0; way < 3; way++) {
+			Hash<Integer, Integer> hash = new Hash<>(1);
+			hash.setIncrementalResize(true);
+			HashMap<Integer, Integer> map = new HashMap<>();
+			int key = 0;
+			while (!hash.isResizing() || map.size() < 1000) {
+				hash.add(key, key);
+				map.put(key, key);
+				key += 1 + random.nextInt(5);
+			}
+			String name = way == 0 ? "turning incremental resize off" : way == 1 ? "resize(7)" : "makeEmpty";
+			if (way == 0)
+				hash.setIncrementalResize(false);
+			else if (way == 1)
+				hash.resize(7);
+			else {
+				hash.makeEmpty();
+				map.clear();
+			}
+			if (hash.isResizing())
+				fail(name + " in the middle of a resize should end it.");
+			checkContents(hash, map, name + " in the middle of a resize", true);
+			for (int i = 0; i < 5000; i++, key++) {
+				hash.add(key, key);
+				map.put(key, key);
+			}
+			checkContents(hash, map, "adds after " + name + " in the middle of a resize", true);
+		}
+	}
+
+	/**
+	 * Every key through the batch lookup and the iterator, neither of which finishes
+	 * a resize
+	 * @param oneByOne also look every key up by itself, which moves a few slots each
+	 * time and so can finish a resize under way
+	 */
+	static void checkContents(Hash<Integer, Integer> hash, Map<Integer, Integer> map, String when, boolean oneByOne) {
+		Integer[] keys = map.keySet().toArray(new Integer[0]);
+		Integer[] values = new Integer[keys.length];
+		if (hash.getAll(keys, values) != keys.length || !hash.containsAll(keys))
+			fail(when + ": getAll should find all " + keys.length + " keys.");
+		for (int i = 0; i < keys.length; i++) {
+			if (!map.get(keys[i]).equals(values[i]))
+				fail(when + ": getAll should give " + map.get(keys[i]) + " for " + keys[i] + " but gave " + values[i] + ".");
+		}
+		HashSet<Integer> seen = new HashSet<>();
+		for (int key : hash) {
+			if (!seen.add(key))
+				fail(when + ": the iterator returned " + key + " twice.");
+		}
+		if (!seen.equals(map.keySet()))
+			fail(when + ": the iterator should return exactly the keys in the hash.");
+		if (!oneByOne)
+			return;
+		for (Map.Entry<Integer, Integer> entry : map.entrySet()) {
+			if (!entry.getValue().equals(hash.getValue(entry.getKey())))
+				fail(when + ": getValue(" + entry.getKey() + ") should be " + entry.getValue() + ".");
+		}
+	}
+
+	static void fail(String message) {
+		System.err.println(message);
+		error = true;
+	}
+}
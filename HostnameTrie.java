@@ -0,0 +1,328 @@
+package dns_resolver;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Host names indexed by their labels from the right, the way DNS reads them: the
+ * trie goes com, then example, then www. Everything under a zone sits below one
+ * node, so listing the names in a zone costs the depth of the zone plus the size of
+ * the answer, where the RedBlackTree, ordered from the left, has to look at every
+ * name. A name added as *.zone is a wildcard: match answers with it for any name
+ * under zone that has no closer entry of its own.
+ * <p>
+ * The children of a node are kept in a sorted array and found by binary search on
+ * the label bytes, which is far smaller than a map per node. Names are compared
+ * byte for byte, the same as URL.
+ * @author Milad Balkhinezhad
+ *
+ * @param <V> the value stored for each name
+ */
+public class HostnameTrie<V> implements Iterable<URL> {
+
+	private static final byte[] WILDCARD = { '*' };
+
+	static final class Node<V> {
+		final byte[] label;
+		Node<V>[] children;
+		int childCount;
+		// the name that ends here, or null if none does
+		URL key;
+		V value;
+
+		Node(byte[] label) {
+			this.label = label;
+		}
+
+		/**
+		 * Binary search for the child with bytes from to to of name as its label
+		 * @return the index of the child, or -(insertion point) - 1
+		 */
+		int find(byte[] name, int from, int to) {
+			int lo = 0, hi = childCount - 1;
+			while (lo <= hi) {
+				int mid = (lo + hi) >>> 1;
+				byte[] label = children[mid].label;
+				int cmp = Arrays.compareUnsigned(label, 0, label.length, name, from, to);
+				if (cmp < 0)
+					lo = mid + 1;
+				else if (cmp > 0)
+					hi = mid - 1;
+				else
+					return mid;
+			}
+			return -(lo + 1);
+		}
+
+		Node<V> child(byte[] name, int from, int to) {
+			int i = find(name, from, to);
+			return i < 0 ? null : children[i];
+		}
+
+		Node<V> addChild(int index, byte[] label) {
+			if (children == null)
+				children = (Node<V>[]) new Node[2];
+			else if (childCount == children.length)
+				children = Arrays.copyOf(children, childCount * 2);
+			System.arraycopy(children, index, children, index + 1, childCount - index);
+			Node<V> child = new Node<V>(label);
+			children[index] = child;
+			childCount++;
+			return child;
+		}
+
+		void removeChild(int index) {
+			System.arraycopy(children, index + 1, children, index, childCount - index - 1);
+			children[--childCount] = null;
+			if (childCount == 0)
+				children = null;
+		}
+	}
+
+	Node<V> root;
+	int size;
+	int nodeCount;
+
+	public HostnameTrie() {
+		root = new Node<V>(new byte[0]);
+		nodeCount = 1;
+	}
+
+	/**
+	 * The end of the name, leaving out one trailing dot
+	 */
+	private static int end(byte[] name) {
+		int end = name.length;
+		if (end > 0 && name[end - 1] == '.')
+			end--;
+		return end;
+	}
+
+	/**
+	 * The start of the label that ends at end
+	 */
+	private static int labelStart(byte[] name, int end) {
+		int start = end;
+		while (start > 0 && name[start - 1] != '.')
+			start--;
+		return start;
+	}
+
+	/**
+	 * Walks down the labels of the name from the right
+	 * @return the node for the whole name, or null if it is not in the trie
+	 */
+	private Node<V> findNode(URL url) {
+		byte[] name = url.bytes;
+		Node<V> node = root;
+		int end = end(name);
+		while (node != null && end > 0) {
+			int start = labelStart(name, end);
+			node = node.child(name, start, end);
+			end = start - 1;
+		}
+		return node;
+	}
+
+	/**
+	 * Adds a name and its value. It will not allow duplicate names.
+	 * @param url the host name, or *.zone for a wildcard
+	 * @param value the value for the name
+	 * @return <code>true</code> if the name was added, <code>false</code> if it was already there
+	 */
+	public boolean add(URL url, V value) {
+		byte[] name = url.bytes;
+		Node<V> node = root;
+		int end = end(name);
+		while (end > 0) {
+			int start = labelStart(name, end);
+			int i = node.find(name, start, end);
+			if (i >= 0)
+				node = node.children[i];
+			else {
+				node = node.addChild(-i - 1, Arrays.copyOfRange(name, start, end));
+				nodeCount++;
+			}
+			end = start - 1;
+		}
+		if (node.key != null)
+			return false;
+		node.key = url;
+		node.value = value;
+		size++;
+		return true;
+	}
+
+	/**
+	 * Removes a name, and every node that is left with no name and no children
+	 * @param url the name to remove
+	 * @return whether the name was there
+	 */
+	public boolean remove(URL url) {
+		byte[] name = url.bytes;
+		// the nodes on the path and the index of each in its parent
+		Node<V>[] path = (Node<V>[]) new Node[name.length + 2];
+		int[] index = new int[path.length];
+		int depth = 0;
+		path[0] = root;
+		int end = end(name);
+		while (end > 0) {
+			int start = labelStart(name, end);
+			int i = path[depth].find(name, start, end);
+			if (i < 0)
+				return false;
+			index[depth + 1] = i;
+			path[depth + 1] = path[depth].children[i];
+			depth++;
+			end = start - 1;
+		}
+		Node<V> node = path[depth];
+		if (node.key == null)
+			return false;
+		node.key = null;
+		node.value = null;
+		size--;
+		for (; depth > 0 && path[depth].key == null && path[depth].childCount == 0; depth--) {
+			path[depth - 1].removeChild(index[depth]);
+			nodeCount--;
+		}
+		return true;
+	}
+
+	/**
+	 * Does the trie hold exactly this name
+	 * @param url the name to look for
+	 * @return <code>true</code> if the name is in the trie
+	 */
+	public boolean contains(URL url) {
+		Node<V> node = findNode(url);
+		return node != null && node.key != null;
+	}
+
+	/**
+	 * The value of exactly this name. A wildcard is only found by asking for *.zone.
+	 * @param url the name to look up
+	 * @return the value, or null if the name is not in the trie
+	 */
+	public V getValue(URL url) {
+		Node<V> node = findNode(url);
+		return node == null ? null : node.value;
+	}
+
+	/**
+	 * The value of the name, or of the closest wildcard above it if the name itself
+	 * is not in the trie. A wildcard *.zone matches every name under zone, at any depth.
+	 * @param url the name to look up
+	 * @return the value, or null if neither the name nor a wildcard over it is in the trie
+	 */
+	public V match(URL url) {
+		byte[] name = url.bytes;
+		Node<V> node = root;
+		V wildcard = null;
+		int end = end(name);
+		while (end > 0) {
+			Node<V> star = node.child(WILDCARD, 0, 1);
+			if (star != null && star.key != null)
+				wildcard = star.value;
+			int start = labelStart(name, end);
+			node = node.child(name, start, end);
+			if (node == null)
+				return wildcard;
+			end = start - 1;
+		}
+		return node.key != null ? node.value : wildcard;
+	}
+
+	/**
+	 * Every name in the trie, in order of their labels read from the right
+	 */
+	public Iterator<URL> iterator() {
+		return new IteratorHelper(root);
+	}
+
+	/**
+	 * The zone itself, if it is in the trie, and every name under it, in order of
+	 * their labels read from the right
+	 * @param zone the zone to list
+	 * @return the iterator
+	 */
+	public Iterator<URL> subdomains(URL zone) {
+		return new IteratorHelper(findNode(zone));
+	}
+
+	/**
+	 * A preorder walk, with the children of each node in label order
+	 */
+	private class IteratorHelper implements Iterator<URL> {
+		ArrayDeque<Node<V>> stack;
+		URL next;
+
+		public IteratorHelper(Node<V> start) {
+			stack = new ArrayDeque<Node<V>>();
+			if (start != null)
+				stack.push(start);
+			advance();
+		}
+
+		private void advance() {
+			next = null;
+			while (next == null && !stack.isEmpty()) {
+				Node<V> node = stack.pop();
+				for (int i = node.childCount - 1; i >= 0; i--)
+					stack.push(node.children[i]);
+				next = node.key;
+			}
+		}
+
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		public URL next() {
+			if (next == null)
+				throw new NoSuchElementException();
+			URL url = next;
+			advance();
+			return url;
+		}
+	}
+
+	/**
+	 * The number of names in the trie
+	 * @return the number of names
+	 */
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * The number of nodes, one for every different zone any name is in, and the root
+	 * @return the number of nodes
+	 */
+	public int nodeCount() {
+		return nodeCount;
+	}
+
+	/**
+	 * The bytes taken by the labels stored in the nodes
+	 * @return the total label length
+	 */
+	public long labelBytes() {
+		long bytes = 0;
+		ArrayDeque<Node<V>> stack = new ArrayDeque<Node<V>>();
+		stack.push(root);
+		while (!stack.isEmpty()) {
+			Node<V> node = stack.pop();
+			bytes += node.label.length;
+			for (int i = 0; i < node.childCount; i++)
+				stack.push(node.children[i]);
+		}
+		return bytes;
+	}
+}
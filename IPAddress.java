@@ -1,97 +1,216 @@
 package dns_resolver;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * An IPv4 address held as a single packed int, network in the top byte. The parse
+ * methods read a dotted-decimal address straight from a CharSequence, a range of
+ * bytes or a ByteBuffer without making any objects, and valueOf hands back a shared
+ * instance for addresses it has seen recently instead of a new one.
+ */
 public class IPAddress implements Comparable<IPAddress> {
 
+		// valueOf keeps the last address it made for each of these slots
+		private static final int CACHE_SIZE = 4096;
+		private static final IPAddress[] cache = new IPAddress[CACHE_SIZE];
 
-		int network;
-		int subnet;
-		int subnet2;
-		int host;
+		final int packed;
 
 		/**
 		 * The constructor for the IPAddress class
-		 * 
+		 *
 		 * @param ip the dotted-decimal IP address
+		 * @throws NumberFormatException if ip is not a dotted-decimal IPv4 address
 		 */
-		
+
 		public IPAddress(String ip) {
-			String data[] = ip.split("\\.");
-					
-			network = Integer.parseInt(data[0]);
-			subnet = Integer.parseInt(data[1]);
-			subnet2 = Integer.parseInt(data[2]);
-			host = Integer.parseInt(data[3]);
+			packed = parse(ip, 0, ip.length());
 		}
 
 		/**
-		 * Auto generated by eclipse, produces the hashcode()
+		 * Makes an IPAddress from an address packed into an int by toInt()
+		 *
+		 * @param packed the packed address
 		 */
+		public IPAddress(int packed) {
+			this.packed = packed;
+		}
 
-		@Override
-		public int hashCode() {
-			final int prime = 31;
-			int result = 1;
-			result = prime * result + host;
-			result = prime * result + network;
-			result = prime * result + subnet;
-			result = prime * result + subnet2;
-			return result;
+		/**
+		 * An IPAddress for the packed address, shared with earlier calls when the
+		 * same address was asked for recently. IPAddress never changes, so sharing
+		 * is safe, and a race between threads at worst makes an extra copy.
+		 * @param packed the packed address
+		 * @return the address
+		 */
+		public static IPAddress valueOf(int packed) {
+			int slot = (packed * 0x9E3779B9) >>> 20;
+			IPAddress ip = cache[slot];
+			if (ip == null || ip.packed != packed) {
+				ip = new IPAddress(packed);
+				cache[slot] = ip;
+			}
+			return ip;
 		}
-		
+
+		/**
+		 * Parses a dotted-decimal address, sharing the instance like valueOf(int)
+		 * @param ip the dotted-decimal IP address
+		 * @return the address
+		 * @throws NumberFormatException if ip is not a dotted-decimal IPv4 address
+		 */
+		public static IPAddress valueOf(CharSequence ip) {
+			return valueOf(parse(ip, 0, ip.length()));
+		}
+
 		/**
-		 * Auto generated by eclipse, produces equals(Object obj)
+		 * Parses the dotted-decimal address in chars start to end of a CharSequence
+		 * @param text the characters to read
+		 * @param start the first character of the address
+		 * @param end one past the last character of the address
+		 * @return the packed address
+		 * @throws NumberFormatException if the range is not a dotted-decimal IPv4 address
 		 */
+		public static int parse(CharSequence text, int start, int end) {
+			int packed = 0;
+			int octet = 0;
+			int digits = 0;
+			int dots = 0;
+			for (int i = start; i < end; i++) {
+				char c = text.charAt(i);
+				if (c >= '0' && c <= '9') {
+					octet = octet * 10 + (c - '0');
+					if (++digits > 3 || octet > 255)
+						throw badAddress(text.subSequence(start, end));
+				} else if (c == '.' && digits > 0 && dots < 3) {
+					packed = (packed << 8) | octet;
+					octet = 0;
+					digits = 0;
+					dots++;
+				} else
+					throw badAddress(text.subSequence(start, end));
+			}
+			if (digits == 0 || dots != 3)
+				throw badAddress(text.subSequence(start, end));
+			return (packed << 8) | octet;
+		}
+
+		/**
+		 * Parses the dotted-decimal address in len single byte characters of bytes
+		 * @param bytes the bytes to read
+		 * @param offset the first byte of the address
+		 * @param len the number of bytes in the address
+		 * @return the packed address
+		 * @throws NumberFormatException if the range is not a dotted-decimal IPv4 address
+		 */
+		public static int parse(byte[] bytes, int offset, int len) {
+			int packed = 0;
+			int octet = 0;
+			int digits = 0;
+			int dots = 0;
+			for (int i = offset; i < offset + len; i++) {
+				int c = bytes[i];
+				if (c >= '0' && c <= '9') {
+					octet = octet * 10 + (c - '0');
+					if (++digits > 3 || octet > 255)
+						throw badAddress(bytes, offset, len);
+				} else if (c == '.' && digits > 0 && dots < 3) {
+					packed = (packed << 8) | octet;
+					octet = 0;
+					digits = 0;
+					dots++;
+				} else
+					throw badAddress(bytes, offset, len);
+			}
+			if (digits == 0 || dots != 3)
+				throw badAddress(bytes, offset, len);
+			return (packed << 8) | octet;
+		}
+
+		/**
+		 * Parses the dotted-decimal address in len single byte characters of a buffer,
+		 * reading at absolute positions so the buffer's position is left alone
+		 * @param buffer the buffer to read, for example a mapped file
+		 * @param offset the first byte of the address
+		 * @param len the number of bytes in the address
+		 * @return the packed address
+		 * @throws NumberFormatException if the range is not a dotted-decimal IPv4 address
+		 */
+		public static int parse(ByteBuffer buffer, int offset, int len) {
+			int packed = 0;
+			int octet = 0;
+			int digits = 0;
+			int dots = 0;
+			for (int i = offset; i < offset + len; i++) {
+				int c = buffer.get(i);
+				if (c >= '0' && c <= '9') {
+					octet = octet * 10 + (c - '0');
+					if (++digits > 3 || octet > 255)
+						throw badAddress(buffer, offset, len);
+				} else if (c == '.' && digits > 0 && dots < 3) {
+					packed = (packed << 8) | octet;
+					octet = 0;
+					digits = 0;
+					dots++;
+				} else
+					throw badAddress(buffer, offset, len);
+			}
+			if (digits == 0 || dots != 3)
+				throw badAddress(buffer, offset, len);
+			return (packed << 8) | octet;
+		}
+
+		private static NumberFormatException badAddress(CharSequence text) {
+			return new NumberFormatException("Not an IPv4 address: \"" + text + "\"");
+		}
+
+		private static NumberFormatException badAddress(byte[] bytes, int offset, int len) {
+			return new NumberFormatException("Not an IPv4 address: \"" + new String(bytes, offset, len, StandardCharsets.ISO_8859_1) + "\"");
+		}
+
+		private static NumberFormatException badAddress(ByteBuffer buffer, int offset, int len) {
+			byte[] bytes = new byte[len];
+			buffer.get(offset, bytes);
+			return badAddress(bytes, 0, len);
+		}
+
+		/**
+		 * The address packed into a single int, network in the top byte. Compare
+		 * packed addresses with Integer.compareUnsigned to keep the dotted order.
+		 * @return the packed address
+		 */
+		public int toInt() {
+			return packed;
+		}
+
+		@Override
+		public int hashCode() {
+			return packed;
+		}
 
 		@Override
 		public boolean equals(Object obj) {
 			if (this == obj)
 				return true;
-			if (obj == null)
-				return false;
-			if (getClass() != obj.getClass())
-				return false;
-			IPAddress other = (IPAddress) obj;
-			if (host != other.host)
-				return false;
-			if (network != other.network)
-				return false;
-			if (subnet != other.subnet)
+			if (!(obj instanceof IPAddress))
 				return false;
-			if (subnet2 != other.subnet2)
-				return false;
-			return true;
+			return packed == ((IPAddress) obj).packed;
 		}
-		
-		/**
-		 * Auto generated by eclipse, produces the String class
-		 */
 
 		@Override
 		public String toString() {
-			return "IPAddress [network=" + network + ", subnet=" + subnet + ", subnet2=" + subnet2 + ", host=" + host + "]";
+			return "IPAddress [network=" + (packed >>> 24) + ", subnet=" + ((packed >>> 16) & 0xFF) + ", subnet2=" + ((packed >>> 8) & 0xFF) + ", host=" + (packed & 0xFF) + "]";
 		}
 
 		/**
-		 *Compares IPAddress to the specified object in order 
+		 *Compares IPAddress to the specified object in order
 		 *@return a negative integer, zero, or a positive integer as this object is less than,
-		 *equal to, or greater than the specified object. 
+		 *equal to, or greater than the specified object.
 	     */
-		
+
 		@Override
 	public int compareTo(IPAddress obj) {
-		if (network == obj.network) {
-			if (subnet == obj.subnet) {
-				if (subnet2 == obj.subnet2) {
-					if (host == obj.host) {
-						return 0;
-					} else
-						return host - obj.host;
-				} else
-					return subnet2 - obj.subnet2;
-			} else
-				return subnet - obj.subnet;
-		} else
-			return network - obj.network;
+		return Integer.compareUnsigned(packed, obj.packed);
 	}
 }
-
@@ -0,0 +1,28 @@
+package dns_resolver;
+
+import java.nio.ByteBuffer;
+
+import data_structures.FixedWidthCodec;
+
+/**
+ * Stores an IPAddress off the heap as its four bytes, packed into one int.
+ * @author Milad Balkhinezhad
+ */
+public class IPAddressCodec implements FixedWidthCodec<IPAddress> {
+
+	public int width() {
+		return 4;
+	}
+
+	public void write(ByteBuffer buffer, int offset, IPAddress ip) {
+		buffer.putInt(offset, ip.toInt());
+	}
+
+	public IPAddress read(ByteBuffer buffer, int offset) {
+		return IPAddress.valueOf(buffer.getInt(offset));
+	}
+
+	public int compare(IPAddress ip, ByteBuffer buffer, int offset) {
+		return Integer.compareUnsigned(ip.toInt(), buffer.getInt(offset));
+	}
+}
@@ -0,0 +1,551 @@
+package data_structures;
+
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The Red Black Tree algorithms for trees whose nodes are int indices into some
+ * storage rather than Node objects. Subclasses only decide where the links, colors,
+ * keys and values of a node live; adding, removing, searching and iterating are
+ * all done here. NIL is the index of the empty subtree.
+ * @author Milad Balkhinezhad
+ */
+
+public abstract class IndexedRedBlackTree<K, V> implements RangedRedBlackI<K, V> {
+
+	static final int NIL = -1;
+
+	int root = NIL;
+	int size;
+	int modCount;
+
+	abstract int left(int node);
+
+	abstract int right(int node);
+
+	abstract int parent(int node);
+
+	abstract void setLeft(int node, int child);
+
+	abstract void setRight(int node, int child);
+
+	abstract void setParent(int node, int parent);
+
+	/**
+	 * @return the color of the node; NIL counts as black
+	 */
+	abstract boolean isBlack(int node);
+
+	abstract void setBlack(int node, boolean black);
+
+	abstract K key(int node);
+
+	abstract V value(int node);
+
+	/**
+	 * Compares a key with the key stored at a node
+	 * @return a negative integer, zero, or a positive integer as key is less than,
+	 * equal to, or greater than the key of the node
+	 */
+	abstract int compare(K key, int node);
+
+	/**
+	 * Copies the key and value of one node over those of another
+	 */
+	abstract void copyEntry(int from, int to);
+
+	/**
+	 * Makes a new red leaf holding the key and value, with all links NIL
+	 * @return the index of the node
+	 */
+	abstract int newNode(K key, V value);
+
+	/**
+	 * Gives back the storage of a node that has been unlinked
+	 */
+	abstract void freeNode(int node);
+
+	/**
+	 * The method to add to the RBTree.  It will not allow duplicate additions.
+	 * @param key the key to add
+	 * @param value the value associated with the key
+	 * @return <code>true</code> if the key was added, <code>false</code> if it was a duplicate
+	 */
+	public boolean add(K key, V value) {
+		if (root == NIL) {
+			root = newNode(key, value);
+			setBlack(root, true);
+			size++;
+			modCount++;
+			return true;
+		}
+		int current = root;
+		int cmp;
+		while (true) {
+			cmp = compare(key, current);
+			if (cmp == 0)
+				return false;
+			int next = cmp < 0 ? left(current) : right(current);
+			if (next == NIL)
+				break;
+			current = next;
+		}
+		int node = newNode(key, value);
+		setParent(node, current);
+		if (cmp < 0)
+			setLeft(current, node);
+		else
+			setRight(current, node);
+		size++;
+		modCount++;
+		fixAfterAdd(node);
+		return true;
+	}
+
+	/**
+	 * Restores the red/black rules after a red node has been linked in.
+	 * @param node the newly added (red) node
+	 */
+	private void fixAfterAdd(int node) {
+		while (node != root && !isBlack(parent(node))) {
+			int p = parent(node);
+			int grandparent = parent(p);
+			if (p == left(grandparent)) {
+				int aunt = right(grandparent);
+				if (!isBlack(aunt)) {
+					setBlack(p, true);
+					setBlack(aunt, true);
+					setBlack(grandparent, false);
+					node = grandparent;
+				} else {
+					if (node == right(p)) {
+						leftRotate(p);
+						p = node;
+					}
+					setBlack(p, true);
+					setBlack(grandparent, false);
+					rightRotate(grandparent);
+					break;
+				}
+			} else {
+				int aunt = left(grandparent);
+				if (!isBlack(aunt)) {
+					setBlack(p, true);
+					setBlack(aunt, true);
+					setBlack(grandparent, false);
+					node = grandparent;
+				} else {
+					if (node == left(p)) {
+						rightRotate(p);
+						p = node;
+					}
+					setBlack(p, true);
+					setBlack(grandparent, false);
+					leftRotate(grandparent);
+					break;
+				}
+			}
+		}
+		setBlack(root, true);
+	}
+
+	private void rightRotate(int node) {
+		int temp = left(node);
+		int inner = right(temp);
+		setLeft(node, inner);
+		if (inner != NIL)
+			setParent(inner, node);
+		replaceChild(node, temp);
+		setRight(temp, node);
+		setParent(node, temp);
+	}
+
+	private void leftRotate(int node) {
+		int temp = right(node);
+		int inner = left(temp);
+		setRight(node, inner);
+		if (inner != NIL)
+			setParent(inner, node);
+		replaceChild(node, temp);
+		setLeft(temp, node);
+		setParent(node, temp);
+	}
+
+	/**
+	 * Puts replacement where node hangs off its parent (or at the root).
+	 */
+	private void replaceChild(int node, int replacement) {
+		int p = parent(node);
+		if (replacement != NIL)
+			setParent(replacement, p);
+		if (p == NIL)
+			root = replacement;
+		else if (node == left(p))
+			setLeft(p, replacement);
+		else
+			setRight(p, replacement);
+	}
+
+	/**
+	 * Removes the key and its value from the RBTree.
+	 * @param key the key to remove
+	 * @return <code>true</code> if the key was found and removed
+	 */
+	public boolean remove(K key) {
+		int node = getNode(key);
+		if (node == NIL)
+			return false;
+		deleteNode(node);
+		return true;
+	}
+
+	/**
+	 * Removes the key from the RBTree and returns the value that was associated with it.
+	 * @param key the key to remove
+	 * @return the removed value, or null if the key was not found
+	 */
+	public V removeAndGet(K key) {
+		int node = getNode(key);
+		if (node == NIL)
+			return null;
+		V value = value(node);
+		deleteNode(node);
+		return value;
+	}
+
+	/**
+	 * Unlinks a node and frees its storage, see RedBlackTree.deleteNode
+	 * @param node the node to remove
+	 */
+	void deleteNode(int node) {
+		size--;
+		modCount++;
+		if (left(node) != NIL && right(node) != NIL) {
+			int successor = right(node);
+			while (left(successor) != NIL)
+				successor = left(successor);
+			copyEntry(successor, node);
+			node = successor;
+		}
+
+		int replacement = left(node) != NIL ? left(node) : right(node);
+		if (replacement != NIL) {
+			replaceChild(node, replacement);
+			if (isBlack(node))
+				fixAfterRemove(replacement);
+		} else if (parent(node) == NIL) {
+			root = NIL;
+		} else {
+			if (isBlack(node))
+				fixAfterRemove(node);
+			replaceChild(node, NIL);
+		}
+		freeNode(node);
+	}
+
+	/**
+	 * Restores the red/black rules after a black node was removed above node.
+	 * @param node the node that is one black short
+	 */
+	private void fixAfterRemove(int node) {
+		while (node != root && isBlack(node)) {
+			int p = parent(node);
+			if (node == left(p)) {
+				int sibling = right(p);
+				if (!isBlack(sibling)) {
+					setBlack(sibling, true);
+					setBlack(p, false);
+					leftRotate(p);
+					sibling = right(p);
+				}
+				if (isBlack(left(sibling)) && isBlack(right(sibling))) {
+					setBlack(sibling, false);
+					node = p;
+				} else {
+					if (isBlack(right(sibling))) {
+						setBlack(left(sibling), true);
+						setBlack(sibling, false);
+						rightRotate(sibling);
+						sibling = right(p);
+					}
+					setBlack(sibling, isBlack(p));
+					setBlack(p, true);
+					setBlack(right(sibling), true);
+					leftRotate(p);
+					node = root;
+				}
+			} else {
+				int sibling = left(p);
+				if (!isBlack(sibling)) {
+					setBlack(sibling, true);
+					setBlack(p, false);
+					rightRotate(p);
+					sibling = left(p);
+				}
+				if (isBlack(left(sibling)) && isBlack(right(sibling))) {
+					setBlack(sibling, false);
+					node = p;
+				} else {
+					if (isBlack(left(sibling))) {
+						setBlack(right(sibling), true);
+						setBlack(sibling, false);
+						leftRotate(sibling);
+						sibling = left(p);
+					}
+					setBlack(sibling, isBlack(p));
+					setBlack(p, true);
+					setBlack(left(sibling), true);
+					rightRotate(p);
+					node = root;
+				}
+			}
+		}
+		setBlack(node, true);
+	}
+
+	/**
+	 * Tests whether the RBTree contains the key
+	 * @param key the key to look for
+	 * @return whether the key is found
+	 */
+	public boolean contains(K key) {
+		return getNode(key) != NIL;
+	}
+
+	/**
+	 * Get the value associated with a given key
+	 * @param key the key to get the value for
+	 * @return the current value
+	 */
+	public V getValue(K key) {
+		int node = getNode(key);
+		if (node == NIL)
+			return null;
+		return value(node);
+	}
+
+	int getNode(K key) {
+		int current = root;
+		while (current != NIL) {
+			int cmp = compare(key, current);
+			if (cmp == 0)
+				return current;
+			current = cmp < 0 ? left(current) : right(current);
+		}
+		return NIL;
+	}
+
+	public K firstKey() {
+		return keyOf(firstNode());
+	}
+
+	public K lastKey() {
+		int node = root;
+		if (node != NIL)
+			while (right(node) != NIL)
+				node = right(node);
+		return keyOf(node);
+	}
+
+	public K floorKey(K key) {
+		return keyOf(floorNode(key, true));
+	}
+
+	public K ceilingKey(K key) {
+		return keyOf(ceilingNode(key, true));
+	}
+
+	public K lowerKey(K key) {
+		return keyOf(floorNode(key, false));
+	}
+
+	public K higherKey(K key) {
+		return keyOf(ceilingNode(key, false));
+	}
+
+	private K keyOf(int node) {
+		return node == NIL ? null : key(node);
+	}
+
+	int firstNode() {
+		int node = root;
+		if (node != NIL)
+			while (left(node) != NIL)
+				node = left(node);
+		return node;
+	}
+
+	private int floorNode(K key, boolean inclusive) {
+		int current = root, best = NIL;
+		while (current != NIL) {
+			int cmp = compare(key, current);
+			if (cmp == 0 && inclusive)
+				return current;
+			if (cmp > 0) {
+				best = current;
+				current = right(current);
+			} else
+				current = left(current);
+		}
+		return best;
+	}
+
+	private int ceilingNode(K key, boolean inclusive) {
+		int current = root, best = NIL;
+		while (current != NIL) {
+			int cmp = compare(key, current);
+			if (cmp == 0 && inclusive)
+				return current;
+			if (cmp < 0) {
+				best = current;
+				current = left(current);
+			} else
+				current = right(current);
+		}
+		return best;
+	}
+
+	int successor(int node) {
+		if (right(node) != NIL) {
+			node = right(node);
+			while (left(node) != NIL)
+				node = left(node);
+			return node;
+		}
+		int p = parent(node);
+		while (p != NIL && node == right(p)) {
+			node = p;
+			p = parent(p);
+		}
+		return p;
+	}
+
+	public RedBlackI<K, V> headMap(K toKey, boolean inclusive) {
+		return new RedBlackSubTree<K, V>(this, null, false, toKey, inclusive);
+	}
+
+	public RedBlackI<K, V> tailMap(K fromKey, boolean inclusive) {
+		return new RedBlackSubTree<K, V>(this, fromKey, inclusive, null, false);
+	}
+
+	public RedBlackI<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+		return new RedBlackSubTree<K, V>(this, fromKey, fromInclusive, toKey, toInclusive);
+	}
+
+	/**
+	 * Returns the number of elements in the RBTree
+	 * @return the number of elements in the tree
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Test whether the RBTree is empty
+	 * @return <code>true</code> if the tree is empty
+	 * 		   <code>false</code> if the tree is not empty
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * The height of the tree. Recall that a tree with
+	 * only a root node has height 0
+	 * @return the height of the tree at the root node
+	 */
+	public int height() {
+		if (root == NIL)
+			return 0;
+		return height(root) - 1;
+	}
+
+	private int height(int node) {
+		if (node == NIL)
+			return 0;
+		return Math.max(height(left(node)), height(right(node))) + 1;
+	}
+
+	/**
+	 * An iterator for all the keys in the RBTree. This will
+	 * iterate over the keys using <b>InOrder Traversal</b>
+	 * @see java.lang.Iterable#iterator()
+	 */
+	public Iterator<K> iterator() {
+		return new IteratorHelper(firstNode(), null, false);
+	}
+
+	public Iterator<K> iterator(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+		int first = fromKey == null ? firstNode() : ceilingNode(fromKey, fromInclusive);
+		return new IteratorHelper(first, toKey, toInclusive);
+	}
+
+	private class IteratorHelper implements Iterator<K> {
+		int next;
+		int lastReturned;
+		int expectedModCount;
+		K toKey;
+		boolean toInclusive;
+
+		public IteratorHelper(int first, K toKey, boolean toInclusive) {
+			next = first;
+			lastReturned = NIL;
+			expectedModCount = modCount;
+			this.toKey = toKey;
+			this.toInclusive = toInclusive;
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (next == NIL)
+				return false;
+			if (toKey == null)
+				return true;
+			int cmp = compare(toKey, next);
+			return cmp > 0 || (cmp == 0 && toInclusive);
+		}
+
+		@Override
+		public K next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			lastReturned = next;
+			next = successor(next);
+			return key(lastReturned);
+		}
+
+		@Override
+		public void remove() {
+			if (lastReturned == NIL)
+				throw new IllegalStateException();
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if (left(lastReturned) != NIL && right(lastReturned) != NIL)
+				next = lastReturned;
+			deleteNode(lastReturned);
+			expectedModCount = modCount;
+			lastReturned = NIL;
+		}
+	}
+
+	/**
+	 * Recursively print the tree using <em>Inorder Traversal</em>,
+	 * one node per line, with periods to note the hierarchy of the tree.
+	 */
+	public void print() {
+		print(root, 0);
+	}
+
+	private void print(int node, int levels) {
+		if (node == NIL)
+			return;
+		print(left(node), levels + 1);
+		for (int i = 0; i < levels; i++)
+			System.out.print(".");
+		System.out.println(key(node) + (isBlack(node) ? " : Black" : " : Red"));
+		print(right(node), levels + 1);
+	}
+}
@@ -0,0 +1,176 @@
+package RBTester;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.TreeMap;
+import java.util.function.IntFunction;
+
+import data_structures.ArrayRedBlackTree;
+import data_structures.OffHeapRedBlackTree;
+import data_structures.RangedRedBlackI;
+import dns_resolver.IPAddress;
+import dns_resolver.IPAddressCodec;
+import dns_resolver.URL;
+import dns_resolver.URLCodec;
+
+/**
+ * Checks the trees that keep their nodes as indices instead of Node objects
+ * against a TreeMap: random adds and removes, the navigation methods, range
+ * views, removes through the iterator, and emptying the tree and filling it again,
+ * which has to reuse the freed slots instead of growing.
+ * <p>
+ * The keys are made from ints by a function that keeps their order, so the same
+ * checks run on the Integer keys of ArrayRedBlackTree and on the URL keys of
+ * OffHeapRedBlackTree, which compares them against their encoded bytes.
+ * @author Milad Balkhinezhad
+ */
+public class IndexedRedBlackTreeTester {
+
+	static boolean error = false;
+	static final int RANGE = 20000;
+
+	public static void main(String[] args) {
+		ArrayRedBlackTree<Integer, Integer> array = new ArrayRedBlackTree<>(1);
+		check(array, "ArrayRedBlackTree", Integer::valueOf, Integer::valueOf, 11);
+		int capacity = array.capacity();
+		refill(array, "ArrayRedBlackTree", Integer::valueOf, Integer::valueOf);
+		if (array.capacity() != capacity)
+			fail("ArrayRedBlackTree should reuse its freed slots, but its capacity went from " + capacity + " to " + array.capacity() + ".");
+
+		// small pages, so the tree spans many of them, and URL keys compared against their stored bytes
+		IntFunction<URL> url = key -> new URL("host" + (5000000 + key) + ".com");
+		try (OffHeapRedBlackTree<URL, IPAddress> offHeap = new OffHeapRedBlackTree<>(new URLCodec(16), new IPAddressCodec(), 8)) {
+			check(offHeap, "OffHeapRedBlackTree", url, IPAddress::valueOf, 13);
+			long bytes = offHeap.offHeapBytes();
+			refill(offHeap, "OffHeapRedBlackTree", url, IPAddress::valueOf);
+			if (offHeap.offHeapBytes() != bytes)
+				fail("OffHeapRedBlackTree should reuse its freed records, but its pages went from " + bytes + " to " + offHeap.offHeapBytes()
+						+ " bytes.");
+			offHeap.close();
+			if (!offHeap.isEmpty() || offHeap.offHeapBytes() != 0)
+				fail("OffHeapRedBlackTree should be empty and hold no pages after close.");
+			if (!offHeap.add(url.apply(1), IPAddress.valueOf(1)) || !IPAddress.valueOf(1).equals(offHeap.getValue(url.apply(1))))
+				fail("OffHeapRedBlackTree should take new entries after close.");
+		}
+
+		if (!error)
+			System.out.println("IndexedRedBlackTree: all checks passed.");
+	}
+
+	/**
+	 * Random changes and every lookup against a TreeMap
+	 * @param keyOf makes the key for an int, in the same order as the ints
+	 * @param valueOf makes the value for an int
+	 */
+	static <K, V> void check(RangedRedBlackI<K, V> tree, String name, IntFunction<K> keyOf, IntFunction<V> valueOf, long seed) {
+		Random random = new Random(seed);
+		TreeMap<Integer, V> map = new TreeMap<>();
+		for (int i = 0; i < 200000; i++) {
+			int key = random.nextInt(RANGE);
+			switch (random.nextInt(3)) {
+			case 0:
+				if (!Objects.equals(tree.removeAndGet(keyOf.apply(key)), map.remove(key)))
+					fail(name + ".removeAndGet(" + key + ") should return the value that was removed.");
+				break;
+			case 1:
+				if (tree.remove(keyOf.apply(key)) != (map.remove(key) != null))
+					fail(name + ".remove(" + key + ") should return true only for a key in the tree.");
+				break;
+			default:
+				V value = valueOf.apply(i);
+				if (tree.add(keyOf.apply(key), value) != (map.putIfAbsent(key, value) == null))
+					fail(name + ".add(" + key + ") should return true only for a new key.");
+			}
+			if (i % 40000 == 0)
+				checkContents(tree, map, name, keyOf, i + " changes");
+		}
+		checkContents(tree, map, name, keyOf, "the random changes");
+
+		for (int key = -1; key <= RANGE; key++) {
+			K k = keyOf.apply(key);
+			if (!same(tree.floorKey(k), map.floorKey(key), keyOf) || !same(tree.ceilingKey(k), map.ceilingKey(key), keyOf)
+					|| !same(tree.lowerKey(k), map.lowerKey(key), keyOf) || !same(tree.higherKey(k), map.higherKey(key), keyOf))
+				fail(name + " should find the same neighbours of " + key + " as the TreeMap.");
+		}
+		for (int i = 0; i < 300; i++) {
+			int from = random.nextInt(RANGE + 2) - 1;
+			int to = from + random.nextInt(3000);
+			boolean fromInclusive = random.nextBoolean();
+			boolean toInclusive = random.nextBoolean();
+			if (!sameKeys(tree.subMap(keyOf.apply(from), fromInclusive, keyOf.apply(to), toInclusive),
+					map.subMap(from, fromInclusive, to, toInclusive), keyOf)
+					|| !sameKeys(tree.headMap(keyOf.apply(to), toInclusive), map.headMap(to, toInclusive), keyOf)
+					|| !sameKeys(tree.tailMap(keyOf.apply(from), fromInclusive), map.tailMap(from, fromInclusive), keyOf))
+				fail(name + " should have the same ranges as the TreeMap between " + from + " and " + to + ".");
+		}
+
+		// the tree hands back its keys in the order of the TreeMap's, so walk both together
+		Iterator<Integer> expected = new ArrayList<>(map.keySet()).iterator();
+		for (Iterator<K> it = tree.iterator(); it.hasNext();) {
+			it.next();
+			int key = expected.next();
+			if (key % 3 == 0) {
+				it.remove();
+				map.remove(key);
+			}
+		}
+		checkContents(tree, map, name, keyOf, "removing every key divisible by 3 through the iterator");
+	}
+
+	/**
+	 * Empties the tree and fills it with as many keys as before
+	 */
+	static <K, V> void refill(RangedRedBlackI<K, V> tree, String name, IntFunction<K> keyOf, IntFunction<V> valueOf) {
+		List<K> keys = new ArrayList<>();
+		for (K key : tree)
+			keys.add(key);
+		for (K key : keys)
+			tree.remove(key);
+		if (!tree.isEmpty() || tree.size() != 0 || tree.iterator().hasNext())
+			fail(name + " should be empty after removing every key.");
+		TreeMap<Integer, V> map = new TreeMap<>();
+		for (int key = 0; key < keys.size(); key++) {
+			tree.add(keyOf.apply(key), valueOf.apply(key));
+			map.put(key, valueOf.apply(key));
+		}
+		checkContents(tree, map, name, keyOf, "emptying and filling the tree again");
+	}
+
+	static <K, V> void checkContents(RangedRedBlackI<K, V> tree, TreeMap<Integer, V> map, String name, IntFunction<K> keyOf, String when) {
+		if (tree.size() != map.size() || tree.isEmpty() != map.isEmpty())
+			fail("After " + when + " " + name + " should have " + map.size() + " keys but has " + tree.size() + ".");
+		if (!sameKeys(tree, map, keyOf))
+			fail("After " + when + " " + name + "'s iterator should return the keys of the TreeMap in order.");
+		for (Map.Entry<Integer, V> entry : map.entrySet()) {
+			K key = keyOf.apply(entry.getKey());
+			if (!tree.contains(key) || !entry.getValue().equals(tree.getValue(key)))
+				fail("After " + when + " " + name + " should map " + entry.getKey() + " to " + entry.getValue() + ".");
+		}
+		if (!map.isEmpty() && (!same(tree.firstKey(), map.firstKey(), keyOf) || !same(tree.lastKey(), map.lastKey(), keyOf)))
+			fail("After " + when + " " + name + " should have the first and last keys of the TreeMap.");
+		if (tree.height() > 2 * (32 - Integer.numberOfLeadingZeros(tree.size() + 1)))
+			fail("After " + when + " a " + name + " of " + tree.size() + " keys should not be " + tree.height() + " levels high.");
+	}
+
+	static <K> boolean sameKeys(Iterable<K> actual, Map<Integer, ?> expected, IntFunction<K> keyOf) {
+		Iterator<K> it = actual.iterator();
+		for (int key : expected.keySet()) {
+			if (!it.hasNext() || !keyOf.apply(key).equals(it.next()))
+				return false;
+		}
+		return !it.hasNext();
+	}
+
+	static <K> boolean same(K actual, Integer expected, IntFunction<K> keyOf) {
+		return expected == null ? actual == null : keyOf.apply(expected).equals(actual);
+	}
+
+	static void fail(String message) {
+		System.err.println(message);
+		error = true;
+	}
+}
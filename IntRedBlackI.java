@@ -0,0 +1,91 @@
+package data_structures;
+
+import java.util.PrimitiveIterator;
+
+/**
+ * A Red/Black Balanced Search Tree with primitive int keys. The methods are
+ * the same as in RedBlackI, but the keys are never boxed and are compared
+ * directly, without going through Comparable.
+ */
+
+public interface IntRedBlackI<V> extends Iterable<Integer> {
+
+	/**
+	 * The method to add to the RBTree.  It will not allow duplicate additions.
+	 * @param key the key to add
+	 * @param value the value associated with the key
+	 * @return <code>true</code> if the key was added, <code>false</code> if it was a duplicate
+	 */
+	public boolean add(int key, V value);
+
+	/**
+	 * Removes the key and its value from the RBTree.
+	 * @param key the key to remove
+	 * @return <code>true</code> if the key was found and removed
+	 */
+	public boolean remove(int key);
+
+	/**
+	 * Removes the key from the RBTree and returns the value that was associated with it.
+	 * @param key the key to remove
+	 * @return the removed value, or null if the key was not found
+	 */
+	public V removeAndGet(int key);
+
+	/**
+	 * Change the value associated with an existing key. The tree is not
+	 * restructured, so iterators over it stay valid.
+	 * @param key the key to change
+	 * @param value the new value for the key
+	 * @return <code>true</code> if the key was found and its value changed
+	 */
+	public boolean changeValue(int key, V value);
+
+	/**
+	 * Tests whether the RBTree contains the key
+	 * @param key the key to look for
+	 * @return whether the key is found
+	 */
+	public boolean contains(int key);
+
+	/**
+	 * Get the value associated with a given key
+	 * @param key the key to get the value for
+	 * @return the current value
+	 */
+	public V getValue(int key);
+
+	/**
+	 * Returns the number of elements in the RBTree
+	 * @return the number of elements in the tree
+	 */
+	public int size();
+
+	/**
+	 * Test whether the RBTree is empty
+	 * @return <code>true</code> if the tree is empty
+	 * 		   <code>false</code> if the tree is not empty 
+	 */
+	public boolean isEmpty();
+
+	/**
+	 * The height of the tree. Recall that a tree with 
+	 * only a root node has height 0 
+	 * @return the height of the tree at the root node
+	 */
+	public int height();
+
+	/**
+	 * An iterator for all the keys in the RBTree. This will
+	 * iterate over the keys using <b>InOrder Traversal</b>.
+	 * Use nextInt() to get the keys without boxing them.
+	 * @see java.lang.Iterable#iterator()
+	 */
+	public PrimitiveIterator.OfInt iterator();
+
+	/**
+	 * Recursively print the tree using <em>Inorder Traversal</em>,
+	 * one node per line, with periods to note the hierarchy of the tree.
+	 */
+	public void print();
+}
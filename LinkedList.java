@@ -63,7 +63,12 @@ public class LinkedList<E> implements HashListI<E> {
 		Node<E> current = head , previous = null;
 		while (current != null) {
 			if (((Comparable<E>)current.data).compareTo(obj) == 0) {
-				previous.next = current.next;
+				if (previous == null)
+					head = current.next;
+				else
+					previous.next = current.next;
+				if (current == tail)
+					tail = previous;
 				currentSize--;
 				return current.data;
 			}
@@ -108,7 +113,7 @@ public class LinkedList<E> implements HashListI<E> {
 
 	public boolean contains(E obj) {
 		Node <E> tmp = head;
-		while (tmp.next != null) {
+		while (tmp != null) {
 			if (tmp.data.equals(obj)) {
 				return true;
 			}
@@ -0,0 +1,444 @@
+package data_structures;
+
+import java.util.ConcurrentModificationException;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A Red Black Tree keyed by primitive longs, for keys such as timestamps or packed pairs of ints.
+ * It follows RedBlackTree step for step, but the key is a long field in the node
+ * and is compared with &lt; and &gt;, so lookups neither box the key nor make a
+ * call through Comparable.
+ * @author Milad Balkhinezhad
+ */
+
+public class LongRedBlackTree<V> implements LongRedBlackI<V> {
+
+	Node<V> root;
+	int size;
+	int modCount;
+
+	static class Node<V> {
+		long key;
+		V value;
+		Node<V> left, right, parent;
+		boolean black;
+
+		public Node (long key, V value) {
+			this.key = key;
+			this.value = value;
+		}
+	}
+
+	/**
+	 * The method to add to the RBTree.  It will not allow duplicate additions.
+	 * @param key the key to add
+	 * @param value the value associated with the key
+	 * @return <code>true</code> if the key was added, <code>false</code> if it was a duplicate
+	 */
+	public boolean add(long key, V value) {
+		if (root == null) {
+			root = new Node<V>(key, value);
+			root.black = true;
+			size++;
+			modCount++;
+			return true;
+		}
+		Node<V> parent = root;
+		while (true) {
+			if (key == parent.key)
+				return false;
+			Node<V> next = key < parent.key ? parent.left : parent.right;
+			if (next == null)
+				break;
+			parent = next;
+		}
+		Node<V> node = new Node<V>(key, value);
+		node.parent = parent;
+		if (key < parent.key)
+			parent.left = node;
+		else
+			parent.right = node;
+		size++;
+		modCount++;
+		fixAfterAdd(node);
+		return true;
+	}
+
+	/**
+	 * Restores the red/black rules after a red node has been linked in.
+	 * @param node the newly added (red) node
+	 */
+	private void fixAfterAdd(Node<V> node) {
+		while (node != root && !node.parent.black) {
+			Node<V> parent = node.parent;
+			Node<V> grandparent = parent.parent;
+			if (parent == grandparent.left) {
+				Node<V> aunt = grandparent.right;
+				if (aunt != null && !aunt.black) {
+					parent.black = true;
+					aunt.black = true;
+					grandparent.black = false;
+					node = grandparent;
+				} else {
+					if (node == parent.right) {
+						leftRotate(parent);
+						parent = node;
+					}
+					parent.black = true;
+					grandparent.black = false;
+					rightRotate(grandparent);
+					break;
+				}
+			} else {
+				Node<V> aunt = grandparent.left;
+				if (aunt != null && !aunt.black) {
+					parent.black = true;
+					aunt.black = true;
+					grandparent.black = false;
+					node = grandparent;
+				} else {
+					if (node == parent.left) {
+						rightRotate(parent);
+						parent = node;
+					}
+					parent.black = true;
+					grandparent.black = false;
+					leftRotate(grandparent);
+					break;
+				}
+			}
+		}
+		root.black = true;
+	}
+
+	/**
+	 * Removes the key and its value from the RBTree.
+	 * @param key the key to remove
+	 * @return <code>true</code> if the key was found and removed
+	 */
+	public boolean remove(long key) {
+		Node<V> node = getNode(key);
+		if (node == null)
+			return false;
+		deleteNode(node);
+		return true;
+	}
+
+	/**
+	 * Removes the key from the RBTree and returns the value that was associated with it.
+	 * @param key the key to remove
+	 * @return the removed value, or null if the key was not found
+	 */
+	public V removeAndGet(long key) {
+		Node<V> node = getNode(key);
+		if (node == null)
+			return null;
+		V value = node.value;
+		deleteNode(node);
+		return value;
+	}
+
+	/**
+	 * Unlinks a node from the tree, see RedBlackTree.deleteNode
+	 * @param node the node to remove
+	 */
+	void deleteNode(Node<V> node) {
+		size--;
+		modCount++;
+		if (node.left != null && node.right != null) {
+			Node<V> successor = node.right;
+			while (successor.left != null)
+				successor = successor.left;
+			node.key = successor.key;
+			node.value = successor.value;
+			node = successor;
+		}
+
+		Node<V> replacement = node.left != null ? node.left : node.right;
+		if (replacement != null) {
+			replacement.parent = node.parent;
+			if (node.parent == null)
+				root = replacement;
+			else if (node == node.parent.left)
+				node.parent.left = replacement;
+			else
+				node.parent.right = replacement;
+			node.left = node.right = node.parent = null;
+			if (node.black)
+				fixAfterRemove(replacement);
+		} else if (node.parent == null) {
+			root = null;
+		} else {
+			if (node.black)
+				fixAfterRemove(node);
+			if (node == node.parent.left)
+				node.parent.left = null;
+			else
+				node.parent.right = null;
+			node.parent = null;
+		}
+	}
+
+	/**
+	 * Restores the red/black rules after a black node was removed above node.
+	 * @param node the node that is one black short
+	 */
+	private void fixAfterRemove(Node<V> node) {
+		while (node != root && node.black) {
+			Node<V> parent = node.parent;
+			if (node == parent.left) {
+				Node<V> sibling = parent.right;
+				if (!sibling.black) {
+					sibling.black = true;
+					parent.black = false;
+					leftRotate(parent);
+					sibling = parent.right;
+				}
+				if (isBlack(sibling.left) && isBlack(sibling.right)) {
+					sibling.black = false;
+					node = parent;
+				} else {
+					if (isBlack(sibling.right)) {
+						sibling.left.black = true;
+						sibling.black = false;
+						rightRotate(sibling);
+						sibling = parent.right;
+					}
+					sibling.black = parent.black;
+					parent.black = true;
+					sibling.right.black = true;
+					leftRotate(parent);
+					node = root;
+				}
+			} else {
+				Node<V> sibling = parent.left;
+				if (!sibling.black) {
+					sibling.black = true;
+					parent.black = false;
+					rightRotate(parent);
+					sibling = parent.left;
+				}
+				if (isBlack(sibling.left) && isBlack(sibling.right)) {
+					sibling.black = false;
+					node = parent;
+				} else {
+					if (isBlack(sibling.left)) {
+						sibling.right.black = true;
+						sibling.black = false;
+						leftRotate(sibling);
+						sibling = parent.left;
+					}
+					sibling.black = parent.black;
+					parent.black = true;
+					sibling.left.black = true;
+					rightRotate(parent);
+					node = root;
+				}
+			}
+		}
+		node.black = true;
+	}
+
+	private static boolean isBlack(Node<?> node) {
+		return node == null || node.black;
+	}
+
+	private void rightRotate(Node<V> node) {
+		Node<V> temp = node.left;
+		node.left = temp.right;
+		if (temp.right != null)
+			temp.right.parent = node;
+		temp.parent = node.parent;
+		if (node.parent == null)
+			root = temp;
+		else if (node == node.parent.left)
+			node.parent.left = temp;
+		else
+			node.parent.right = temp;
+		temp.right = node;
+		node.parent = temp;
+	}
+
+	private void leftRotate(Node<V> node) {
+		Node<V> temp = node.right;
+		node.right = temp.left;
+		if (temp.left != null)
+			temp.left.parent = node;
+		temp.parent = node.parent;
+		if (node.parent == null)
+			root = temp;
+		else if (node == node.parent.left)
+			node.parent.left = temp;
+		else
+			node.parent.right = temp;
+		temp.left = node;
+		node.parent = temp;
+	}
+
+	/**
+	 * Change the value associated with an existing key. The tree is not
+	 * restructured, so iterators over it stay valid.
+	 * @param key the key to change
+	 * @param value the new value for the key
+	 * @return <code>true</code> if the key was found and its value changed
+	 */
+	public boolean changeValue(long key, V value) {
+		Node<V> node = getNode(key);
+		if (node == null)
+			return false;
+		node.value = value;
+		return true;
+	}
+
+	/**
+	 * Tests whether the RBTree contains the key
+	 * @param key the key to look for
+	 * @return whether the key is found
+	 */
+	public boolean contains(long key) {
+		return getNode(key) != null;
+	}
+
+	/**
+	 * Get the value associated with a given key
+	 * @param key the key to get the value for
+	 * @return the current value
+	 */
+	public V getValue(long key) {
+		Node<V> node = getNode(key);
+		if (node == null)
+			return null;
+		return node.value;
+	}
+
+	Node<V> getNode(long key) {
+		Node<V> current = root;
+		while (current != null) {
+			if (key == current.key)
+				return current;
+			current = key < current.key ? current.left : current.right;
+		}
+		return null;
+	}
+
+	/**
+	 * Returns the number of elements in the RBTree
+	 * @return the number of elements in the tree
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Test whether the RBTree is empty
+	 * @return <code>true</code> if the tree is empty
+	 * 		   <code>false</code> if the tree is not empty 
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * The height of the tree. Recall that a tree with 
+	 * only a root node has height 0 
+	 * @return the height of the tree at the root node
+	 */
+	public int height() {
+		if (root == null)
+			return 0;
+		return height(root) - 1;
+	}
+
+	private int height(Node<V> node) {
+		if (node == null)
+			return 0;
+		return Math.max(height(node.left), height(node.right)) + 1;
+	}
+
+	/**
+	 * An iterator for all the keys in the RBTree. This will
+	 * iterate over the keys using <b>InOrder Traversal</b>
+	 * @see java.lang.Iterable#iterator()
+	 */
+	public PrimitiveIterator.OfLong iterator() {
+		Node<V> first = root;
+		if (first != null)
+			while (first.left != null)
+				first = first.left;
+		return new IteratorHelper(first);
+	}
+
+	private Node<V> successor(Node<V> node) {
+		if (node.right != null) {
+			node = node.right;
+			while (node.left != null)
+				node = node.left;
+			return node;
+		}
+		Node<V> parent = node.parent;
+		while (parent != null && node == parent.right) {
+			node = parent;
+			parent = parent.parent;
+		}
+		return parent;
+	}
+
+	private class IteratorHelper implements PrimitiveIterator.OfLong {
+		Node<V> next;
+		Node<V> lastReturned;
+		int expectedModCount;
+
+		public IteratorHelper(Node<V> first) {
+			next = first;
+			expectedModCount = modCount;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public long nextLong() {
+			if (next == null)
+				throw new NoSuchElementException();
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			lastReturned = next;
+			next = successor(next);
+			return lastReturned.key;
+		}
+
+		@Override
+		public void remove() {
+			if (lastReturned == null)
+				throw new IllegalStateException();
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			if (lastReturned.left != null && lastReturned.right != null)
+				next = lastReturned;
+			deleteNode(lastReturned);
+			expectedModCount = modCount;
+			lastReturned = null;
+		}
+	}
+
+	/**
+	 * Recursively print the tree using <em>Inorder Traversal</em>,
+	 * one node per line, with periods to note the hierarchy of the tree.
+	 */
+	public void print() {
+		print(root, 0);
+	}
+
+	private void print(Node<V> node, int levels) {
+		if (node == null)
+			return;
+		print(node.left, levels + 1);
+		for (int i = 0; i < levels; i++)
+			System.out.print(".");
+		System.out.println(node.key + (node.black ? " : Black" : " : Red"));
+		print(node.right, levels + 1);
+	}
+}
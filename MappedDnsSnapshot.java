@@ -0,0 +1,379 @@
+package dns_resolver;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import data_structures.RangedRedBlackI;
+import data_structures.RedBlackI;
+import data_structures.RedBlackSubTree;
+import data_structures.RedBlackTree;
+import exceptions.FileFormatException;
+
+/**
+ * A read-only URL to IPAddress table that is used straight from a memory-mapped
+ * snapshot file. save writes the entries of a tree in sorted order, and
+ * openMapped maps the file and answers lookups against the mapped bytes, so
+ * opening a snapshot costs a few milliseconds no matter how many entries it has.
+ * <p>
+ * The file is a header, then the entries in blocks of BLOCK_SIZE, then an index
+ * holding the offset of every block. An entry is a length byte, that many bytes
+ * of the URL, and the four bytes of the IP address. A search does
+ * a binary search on the first URL of every block and then scans one block.
+ * The whole file has to fit in one mapping, so a snapshot is limited to 2GB.
+ * @author Milad Balkhinezhad
+ */
+public class MappedDnsSnapshot implements RangedRedBlackI<URL, IPAddress> {
+
+	private static final int MAGIC = 0x52425331; // "RBS1"
+	private static final int HEADER_SIZE = 24;
+	static final int BLOCK_SIZE = 32;
+
+	MappedByteBuffer buffer;
+	int size;
+	int blockCount;
+	int indexOffset;
+
+	private MappedDnsSnapshot(MappedByteBuffer buffer) throws FileFormatException {
+		this.buffer = buffer;
+		if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC)
+			throw new FileFormatException("Not a DNS snapshot");
+		size = buffer.getInt(4);
+		blockCount = buffer.getInt(8);
+		indexOffset = buffer.getInt(12);
+		if (buffer.getInt(16) != BLOCK_SIZE || (long) indexOffset + 4L * blockCount > buffer.capacity())
+			throw new FileFormatException("Corrupt DNS snapshot");
+	}
+
+	/**
+	 * Writes the entries of a tree to a snapshot file, replacing the file if it exists.
+	 * @param tree the table to save
+	 * @param path the file to write
+	 * @throws IOException if the file cannot be written or is too large
+	 * @throws IllegalArgumentException if a URL is longer than 255 bytes
+	 */
+	public static void save(RedBlackI<URL, IPAddress> tree, Path path) throws IOException {
+		int blockCount = (tree.size() + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+			EntryWriter writer = new EntryWriter(channel, blockCount);
+			if (tree instanceof RedBlackTree) {
+				// walk the nodes so each value comes with its key instead of from a search
+				try {
+					((RedBlackTree<URL, IPAddress>) tree).forEachEntry((url, ip) -> {
+						try {
+							writer.put(url, ip);
+						} catch (IOException e) {
+							throw new UncheckedIOException(e);
+						}
+					});
+				} catch (UncheckedIOException e) {
+					throw e.getCause();
+				}
+			} else {
+				for (URL url : tree)
+					writer.put(url, tree.getValue(url));
+			}
+			long indexOffset = writer.position + flush(channel, writer.out);
+			if (indexOffset + 4L * blockCount > Integer.MAX_VALUE)
+				throw new IOException("snapshot larger than 2GB");
+
+			ByteBuffer index = ByteBuffer.allocate(4 * blockCount);
+			for (int offset : writer.blockOffsets)
+				index.putInt(offset);
+			flush(channel, index);
+
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			header.putInt(MAGIC).putInt(writer.count).putInt(blockCount).putInt((int) indexOffset).putInt(BLOCK_SIZE).putInt(0);
+			channel.position(0);
+			flush(channel, header);
+		}
+	}
+
+	/**
+	 * Writes the entries of save one after another after the header, noting where
+	 * each block starts
+	 */
+	private static class EntryWriter {
+		final FileChannel channel;
+		final ByteBuffer out = ByteBuffer.allocate(1 << 16);
+		final int[] blockOffsets;
+		long position = HEADER_SIZE;
+		int count;
+
+		EntryWriter(FileChannel channel, int blockCount) throws IOException {
+			this.channel = channel;
+			blockOffsets = new int[blockCount];
+			channel.position(HEADER_SIZE);
+		}
+
+		void put(URL url, IPAddress ip) throws IOException {
+			if (url.bytes.length > 255)
+				throw new IllegalArgumentException("URL longer than 255 bytes: " + url);
+			if (out.remaining() < 1 + url.bytes.length + 4)
+				position += flush(channel, out);
+			if (count % BLOCK_SIZE == 0) {
+				if (position + out.position() > Integer.MAX_VALUE)
+					throw new IOException("snapshot larger than 2GB");
+				blockOffsets[count / BLOCK_SIZE] = (int) (position + out.position());
+			}
+			out.put((byte) url.bytes.length);
+			out.put(url.bytes);
+			out.putInt(ip.toInt());
+			count++;
+		}
+	}
+
+	/**
+	 * Writes out what has been put in the buffer and empties it
+	 * @return the number of bytes written
+	 */
+	private static int flush(FileChannel channel, ByteBuffer buffer) throws IOException {
+		buffer.flip();
+		int written = buffer.remaining();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+		return written;
+	}
+
+	/**
+	 * Maps a snapshot file written by save. Nothing is read up front apart from
+	 * the header; the pages of the file are loaded as lookups touch them.
+	 * @param path the snapshot file
+	 * @return the table
+	 * @throws IOException if the file cannot be mapped
+	 * @throws FileFormatException if the file is not a snapshot
+	 */
+	public static MappedDnsSnapshot openMapped(Path path) throws IOException, FileFormatException {
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException("snapshot larger than 2GB");
+			return new MappedDnsSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		}
+	}
+
+	/**
+	 * Compares a URL with the one stored at offset, in the order of URL.compareTo
+	 */
+	private int compare(URL url, int offset) {
+		return url.compareTo(buffer, offset + 1, buffer.get(offset) & 0xFF);
+	}
+
+	private int blockOffset(int block) {
+		return buffer.getInt(indexOffset + 4 * block);
+	}
+
+	private int nextEntry(int offset) {
+		return offset + 1 + (buffer.get(offset) & 0xFF) + 4;
+	}
+
+	private URL keyAt(int offset) {
+		return URL.read(buffer, offset + 1, buffer.get(offset) & 0xFF);
+	}
+
+	private IPAddress valueAt(int offset) {
+		return IPAddress.valueOf(buffer.getInt(offset + 1 + (buffer.get(offset) & 0xFF)));
+	}
+
+	/**
+	 * Finds the first entry whose URL is greater than (or equal to, if inclusive)
+	 * the given one.
+	 * @return the position of the entry in the upper half and its file offset in the
+	 * lower half; the position is size if there is no such entry
+	 */
+	private long ceiling(URL url, boolean inclusive) {
+		// the last block whose first URL is below the search (or at it, when exclusive)
+		int lo = 0, hi = blockCount - 1, block = -1;
+		while (lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			int cmp = compare(url, blockOffset(mid));
+			if (cmp > 0 || (cmp == 0 && !inclusive)) {
+				block = mid;
+				lo = mid + 1;
+			} else
+				hi = mid - 1;
+		}
+		if (block < 0)
+			return blockCount == 0 ? position(0, indexOffset) : position(0, blockOffset(0));
+		int index = block * BLOCK_SIZE;
+		int end = Math.min(size, index + BLOCK_SIZE);
+		int offset = blockOffset(block);
+		while (index < end) {
+			int cmp = compare(url, offset);
+			if (cmp < 0 || (cmp == 0 && inclusive))
+				break;
+			offset = nextEntry(offset);
+			index++;
+		}
+		return position(index, offset);
+	}
+
+	private static long position(int index, int offset) {
+		return ((long) index << 32) | (offset & 0xFFFFFFFFL);
+	}
+
+	private static int indexOf(long position) {
+		return (int) (position >>> 32);
+	}
+
+	private static int offsetOf(long position) {
+		return (int) position;
+	}
+
+	/**
+	 * The file offset of the entry at a position
+	 */
+	private int offsetAt(int index) {
+		int offset = blockOffset(index / BLOCK_SIZE);
+		for (int i = index % BLOCK_SIZE; i > 0; i--)
+			offset = nextEntry(offset);
+		return offset;
+	}
+
+	public boolean contains(URL key) {
+		long position = ceiling(key, true);
+		return indexOf(position) < size && compare(key, offsetOf(position)) == 0;
+	}
+
+	public IPAddress getValue(URL key) {
+		long position = ceiling(key, true);
+		if (indexOf(position) == size || compare(key, offsetOf(position)) != 0)
+			return null;
+		return valueAt(offsetOf(position));
+	}
+
+	public URL firstKey() {
+		return size == 0 ? null : keyAt(blockOffset(0));
+	}
+
+	public URL lastKey() {
+		return size == 0 ? null : keyAt(offsetAt(size - 1));
+	}
+
+	public URL ceilingKey(URL key) {
+		long position = ceiling(key, true);
+		return indexOf(position) == size ? null : keyAt(offsetOf(position));
+	}
+
+	public URL higherKey(URL key) {
+		long position = ceiling(key, false);
+		return indexOf(position) == size ? null : keyAt(offsetOf(position));
+	}
+
+	public URL floorKey(URL key) {
+		int index = indexOf(ceiling(key, false)) - 1;
+		return index < 0 ? null : keyAt(offsetAt(index));
+	}
+
+	public URL lowerKey(URL key) {
+		int index = indexOf(ceiling(key, true)) - 1;
+		return index < 0 ? null : keyAt(offsetAt(index));
+	}
+
+	public RedBlackI<URL, IPAddress> headMap(URL toKey, boolean inclusive) {
+		return new RedBlackSubTree<URL, IPAddress>(this, null, false, toKey, inclusive);
+	}
+
+	public RedBlackI<URL, IPAddress> tailMap(URL fromKey, boolean inclusive) {
+		return new RedBlackSubTree<URL, IPAddress>(this, fromKey, inclusive, null, false);
+	}
+
+	public RedBlackI<URL, IPAddress> subMap(URL fromKey, boolean fromInclusive, URL toKey, boolean toInclusive) {
+		return new RedBlackSubTree<URL, IPAddress>(this, fromKey, fromInclusive, toKey, toInclusive);
+	}
+
+	/**
+	 * A snapshot cannot be changed
+	 * @throws UnsupportedOperationException always
+	 */
+	public boolean add(URL key, IPAddress value) {
+		throw new UnsupportedOperationException("snapshot is read-only");
+	}
+
+	/**
+	 * A snapshot cannot be changed
+	 * @throws UnsupportedOperationException always
+	 */
+	public boolean remove(URL key) {
+		throw new UnsupportedOperationException("snapshot is read-only");
+	}
+
+	/**
+	 * A snapshot cannot be changed
+	 * @throws UnsupportedOperationException always
+	 */
+	public IPAddress removeAndGet(URL key) {
+		throw new UnsupportedOperationException("snapshot is read-only");
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * The snapshot is a sorted array rather than a tree; this is the height of a
+	 * balanced tree holding the same number of entries.
+	 * @return the height
+	 */
+	public int height() {
+		return size == 0 ? 0 : 31 - Integer.numberOfLeadingZeros(size);
+	}
+
+	public Iterator<URL> iterator() {
+		return new IteratorHelper(0, size == 0 ? 0 : blockOffset(0), size);
+	}
+
+	public Iterator<URL> iterator(URL fromKey, boolean fromInclusive, URL toKey, boolean toInclusive) {
+		long first = fromKey == null ? position(0, size == 0 ? 0 : blockOffset(0)) : ceiling(fromKey, fromInclusive);
+		int end = toKey == null ? size : indexOf(ceiling(toKey, !toInclusive));
+		return new IteratorHelper(indexOf(first), offsetOf(first), end);
+	}
+
+	private class IteratorHelper implements Iterator<URL> {
+		int index;
+		int offset;
+		int end;
+
+		public IteratorHelper(int index, int offset, int end) {
+			this.index = index;
+			this.offset = offset;
+			this.end = end;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return index < end;
+		}
+
+		@Override
+		public URL next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			URL url = keyAt(offset);
+			offset = nextEntry(offset);
+			index++;
+			return url;
+		}
+	}
+
+	/**
+	 * Prints the URLs and their addresses in order, one per line.
+	 */
+	public void print() {
+		int offset = size == 0 ? 0 : blockOffset(0);
+		for (int i = 0; i < size; i++) {
+			System.out.println(keyAt(offset) + " " + valueAt(offset));
+			offset = nextEntry(offset);
+		}
+	}
+}
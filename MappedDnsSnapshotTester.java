@@ -0,0 +1,160 @@
+package RBTester;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.Random;
+
+import data_structures.RedBlackI;
+import data_structures.RedBlackTree;
+import dns_resolver.IPAddress;
+import dns_resolver.MappedDnsSnapshot;
+import dns_resolver.URL;
+import exceptions.FileFormatException;
+
+/**
+ * Saves trees of random URLs to snapshot files, maps them back and checks every
+ * lookup of the snapshot against the tree it was saved from. The sizes are picked
+ * around the block size of 32, so entries on both sides of a block boundary are
+ * looked up, and the empty tree is saved too. The last checks break the header of
+ * a snapshot and make sure it is not opened.
+ * @author Milad Balkhinezhad
+ */
+public class MappedDnsSnapshotTester {
+
+	static boolean error = false;
+	static int[] sizes = { 0, 1, 31, 32, 33, 64, 65, 1000, 20000 };
+
+	public static void main(String[] args) throws IOException {
+		for (int size : sizes) {
+			Random random = new Random(size);
+			RedBlackTree<URL, IPAddress> tree = new RedBlackTree<>();
+			while (tree.size() < size)
+				tree.add(randomURL(random), IPAddress.valueOf(random.nextInt()));
+
+			Path path = Files.createTempFile("snapshot", ".rbs");
+			try {
+				MappedDnsSnapshot.save(tree, path);
+				MappedDnsSnapshot snapshot = MappedDnsSnapshot.openMapped(path);
+				checkSnapshot(tree, snapshot, random);
+			} catch (FileFormatException e) {
+				fail("A snapshot of " + size + " entries should open: " + e.getMessage());
+			} finally {
+				Files.deleteIfExists(path);
+			}
+		}
+		checkCorruptHeaders();
+
+		if (!error)
+			System.out.println("MappedDnsSnapshot: all checks passed.");
+	}
+
+	/**
+	 * Checks the size, the order, every entry, and the navigation and range
+	 * lookups of random keys against the tree the snapshot was saved from
+	 */
+	static void checkSnapshot(RedBlackTree<URL, IPAddress> tree, MappedDnsSnapshot snapshot, Random random) {
+		int size = tree.size();
+		if (snapshot.size() != size || snapshot.isEmpty() != tree.isEmpty())
+			fail("The snapshot of " + size + " entries has size " + snapshot.size() + ".");
+		if (!sameKeys(tree, snapshot))
+			fail("The snapshot of " + size + " entries should iterate the keys of the tree in order.");
+		for (URL url : tree) {
+			if (!tree.getValue(url).equals(snapshot.getValue(url)) || !snapshot.contains(url))
+				fail("The snapshot of " + size + " entries should find " + url + " -> " + tree.getValue(url) + ".");
+		}
+		if (size > 0 && (!tree.firstKey().equals(snapshot.firstKey()) || !tree.lastKey().equals(snapshot.lastKey())))
+			fail("The snapshot of " + size + " entries should have the first and last keys of the tree.");
+
+		for (int i = 0; i < 2000; i++) {
+			URL url = randomURL(random);
+			if (snapshot.contains(url) != tree.contains(url) || !same(snapshot.getValue(url), tree.getValue(url)))
+				fail("The snapshot of " + size + " entries and the tree disagree on " + url + ".");
+			if (!same(snapshot.floorKey(url), tree.floorKey(url)) || !same(snapshot.ceilingKey(url), tree.ceilingKey(url))
+					|| !same(snapshot.lowerKey(url), tree.lowerKey(url)) || !same(snapshot.higherKey(url), tree.higherKey(url)))
+				fail("The snapshot of " + size + " entries should find the same neighbours of " + url + " as the tree.");
+
+			URL to = randomURL(random);
+			URL from = url;
+			if (to.compareTo(from) < 0) {
+				from = to;
+				to = url;
+			}
+			boolean fromInclusive = random.nextBoolean();
+			boolean toInclusive = random.nextBoolean();
+			if (!sameKeys(tree.subMap(from, fromInclusive, to, toInclusive), snapshot.subMap(from, fromInclusive, to, toInclusive))
+					|| !sameKeys(tree.headMap(to, toInclusive), snapshot.headMap(to, toInclusive))
+					|| !sameKeys(tree.tailMap(from, fromInclusive), snapshot.tailMap(from, fromInclusive)))
+				fail("The snapshot of " + size + " entries should have the same ranges as the tree between " + from + " and " + to + ".");
+		}
+	}
+
+	/**
+	 * A snapshot with a broken header must be refused with a FileFormatException
+	 */
+	static void checkCorruptHeaders() throws IOException {
+		RedBlackTree<URL, IPAddress> tree = new RedBlackTree<>();
+		Random random = new Random(7);
+		while (tree.size() < 100)
+			tree.add(randomURL(random), IPAddress.valueOf(random.nextInt()));
+
+		// the magic number, the index offset past the end, the block size, and a file shorter than the header
+		int[][] corruptions = { { 0, 0x12345678 }, { 12, Integer.MAX_VALUE }, { 16, 16 } };
+		for (int[] corruption : corruptions) {
+			Path path = Files.createTempFile("snapshot", ".rbs");
+			try {
+				MappedDnsSnapshot.save(tree, path);
+				try (RandomAccessFile file = new RandomAccessFile(path.toFile(), "rw")) {
+					file.seek(corruption[0]);
+					file.writeInt(corruption[1]);
+				}
+				expectRefused(path, "a header with " + corruption[1] + " at byte " + corruption[0]);
+			} finally {
+				Files.deleteIfExists(path);
+			}
+		}
+		Path path = Files.createTempFile("snapshot", ".rbs");
+		try {
+			Files.write(path, new byte[10]);
+			expectRefused(path, "a file shorter than the header");
+		} finally {
+			Files.deleteIfExists(path);
+		}
+	}
+
+	static void expectRefused(Path path, String what) throws IOException {
+		try {
+			MappedDnsSnapshot.openMapped(path);
+			fail("A snapshot with " + what + " should not open.");
+		} catch (FileFormatException e) {
+			// expected
+		}
+	}
+
+	static boolean sameKeys(RedBlackI<URL, IPAddress> expected, RedBlackI<URL, IPAddress> actual) {
+		Iterator<URL> it = actual.iterator();
+		for (URL url : expected) {
+			if (!it.hasNext() || !url.equals(it.next()))
+				return false;
+		}
+		return !it.hasNext();
+	}
+
+	static boolean same(Object a, Object b) {
+		return a == null ? b == null : a.equals(b);
+	}
+
+	/**
+	 * A host name from a small enough space that random lookups often hit
+	 */
+	static URL randomURL(Random random) {
+		return new URL("host" + Integer.toString(random.nextInt(50000), 36) + (random.nextBoolean() ? ".com" : ".net"));
+	}
+
+	static void fail(String message) {
+		System.err.println(message);
+		error = true;
+	}
+}
@@ -0,0 +1,168 @@
+package data_structures;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A Red Black Tree whose nodes live in direct ByteBuffers, outside the Java heap.
+ * Each node is a fixed size record of its left, right and parent indices, a color
+ * byte, and the key and value written by their codecs. The records are kept in
+ * pages of 2^pageShift nodes so the tree can grow past the 2GB limit of a single
+ * buffer. Only the page objects are on the heap, so the garbage collector has the
+ * same small amount of work to do however many entries the tree holds.
+ * Freed records go on a free list chained through the left index.
+ * @author Milad Balkhinezhad
+ */
+
+public class OffHeapRedBlackTree<K, V> extends IndexedRedBlackTree<K, V> implements AutoCloseable {
+
+	private static final int LEFT = 0;
+	private static final int RIGHT = 4;
+	private static final int PARENT = 8;
+	private static final int COLOR = 12;
+	private static final int KEY = 13;
+
+	FixedWidthCodec<K> keyCodec;
+	FixedWidthCodec<V> valueCodec;
+	int valueOffset;
+	int stride;
+	int pageShift;
+	int pageMask;
+	ByteBuffer[] pages;
+	int pageCount;
+	// nodes below used have been handed out at least once
+	int used;
+	int freeHead;
+
+	public OffHeapRedBlackTree(FixedWidthCodec<K> keyCodec, FixedWidthCodec<V> valueCodec) {
+		this(keyCodec, valueCodec, 16);
+	}
+
+	/**
+	 * @param keyCodec writes and compares the keys
+	 * @param valueCodec writes the values
+	 * @param pageShift each page holds 2^pageShift nodes
+	 */
+	public OffHeapRedBlackTree(FixedWidthCodec<K> keyCodec, FixedWidthCodec<V> valueCodec, int pageShift) {
+		this.keyCodec = keyCodec;
+		this.valueCodec = valueCodec;
+		valueOffset = KEY + keyCodec.width();
+		stride = valueOffset + valueCodec.width();
+		if (((long) stride << pageShift) > Integer.MAX_VALUE)
+			throw new IllegalArgumentException("pages of 2^" + pageShift + " nodes do not fit in a buffer");
+		this.pageShift = pageShift;
+		pageMask = (1 << pageShift) - 1;
+		pages = new ByteBuffer[4];
+		freeHead = NIL;
+	}
+
+	private ByteBuffer page(int node) {
+		return pages[node >>> pageShift];
+	}
+
+	private int offset(int node) {
+		return (node & pageMask) * stride;
+	}
+
+	int left(int node) {
+		return page(node).getInt(offset(node) + LEFT);
+	}
+
+	int right(int node) {
+		return page(node).getInt(offset(node) + RIGHT);
+	}
+
+	int parent(int node) {
+		return page(node).getInt(offset(node) + PARENT);
+	}
+
+	void setLeft(int node, int child) {
+		page(node).putInt(offset(node) + LEFT, child);
+	}
+
+	void setRight(int node, int child) {
+		page(node).putInt(offset(node) + RIGHT, child);
+	}
+
+	void setParent(int node, int parent) {
+		page(node).putInt(offset(node) + PARENT, parent);
+	}
+
+	boolean isBlack(int node) {
+		return node == NIL || page(node).get(offset(node) + COLOR) != 0;
+	}
+
+	void setBlack(int node, boolean black) {
+		page(node).put(offset(node) + COLOR, (byte) (black ? 1 : 0));
+	}
+
+	K key(int node) {
+		return keyCodec.read(page(node), offset(node) + KEY);
+	}
+
+	V value(int node) {
+		return valueCodec.read(page(node), offset(node) + valueOffset);
+	}
+
+	int compare(K key, int node) {
+		return keyCodec.compare(key, page(node), offset(node) + KEY);
+	}
+
+	void copyEntry(int from, int to) {
+		page(to).put(offset(to) + KEY, page(from), offset(from) + KEY, stride - KEY);
+	}
+
+	int newNode(K key, V value) {
+		int node;
+		if (freeHead != NIL) {
+			node = freeHead;
+			freeHead = left(node);
+		} else {
+			if ((used >>> pageShift) == pageCount)
+				addPage();
+			node = used++;
+		}
+		ByteBuffer page = page(node);
+		int offset = offset(node);
+		page.putInt(offset + LEFT, NIL);
+		page.putInt(offset + RIGHT, NIL);
+		page.putInt(offset + PARENT, NIL);
+		page.put(offset + COLOR, (byte) 0);
+		keyCodec.write(page, offset + KEY, key);
+		valueCodec.write(page, offset + valueOffset, value);
+		return node;
+	}
+
+	void freeNode(int node) {
+		setLeft(node, freeHead);
+		freeHead = node;
+	}
+
+	private void addPage() {
+		if (pageCount == pages.length)
+			pages = Arrays.copyOf(pages, pages.length * 2);
+		pages[pageCount++] = ByteBuffer.allocateDirect(stride << pageShift);
+	}
+
+	/**
+	 * The number of bytes of direct memory the pages take
+	 * @return the off-heap size of the tree
+	 */
+	public long offHeapBytes() {
+		return (long) pageCount * (stride << pageShift);
+	}
+
+	/**
+	 * Empties the tree and lets go of the pages. The direct memory is given back
+	 * once the page buffers are garbage collected.
+	 */
+	public void close() {
+		Arrays.fill(pages, null);
+		pageCount = 0;
+		used = 0;
+		freeHead = NIL;
+		root = NIL;
+		size = 0;
+		modCount++;
+	}
+}
@@ -0,0 +1,337 @@
+package data_structures;
+
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A Hash that stores its entries directly in flat arrays instead of a Linked List
+ * per slot. A key goes in the first free slot at or after its home slot (linear
+ * probing), so a lookup reads neighbouring slots rather than following list nodes.
+ * The table size is a power of two and the home slot is found with a mask instead
+ * of %. The hash code of every key is kept next to it, so keys are only compared
+ * when the hash codes match. Removing a key shifts the entries after it back
+ * towards their home slots, so there are no tombstones and lookups never slow down
+ * after many removes.
+ * <p>
+ * Keys are matched with compareTo, the same as Hash.
+ * @author Milad Balkhinezhad
+ *
+ * @param <K> The key for entries in the hash
+ * @param <V> The value for entries in the hash
+ */
+
+public class OpenHash<K, V> implements HashI<K, V> {
+
+	Object[] keys;
+	Object[] values;
+	int[] hashes;
+	int mask;
+	int numElements;
+	double maxLoadFactor;
+	int modCount;
+
+	public OpenHash(int tableSize) {
+		maxLoadFactor = 0.75;
+		allocate(tableSizeFor(tableSize));
+	}
+
+	private void allocate(int capacity) {
+		keys = new Object[capacity];
+		values = new Object[capacity];
+		hashes = new int[capacity];
+		mask = capacity - 1;
+	}
+
+	/**
+	 * The smallest power of two that is at least size
+	 */
+	private static int tableSizeFor(int size) {
+		if (size <= 2)
+			return 2;
+		if (size > (1 << 30))
+			return 1 << 30;
+		return Integer.highestOneBit(size - 1) << 1;
+	}
+
+	/**
+	 * Mixes the hash code so that keys whose codes differ only in the high bits
+	 * still land in different slots once the code is masked.
+	 */
+	private static int spread(int hashCode) {
+		int h = hashCode * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	/**
+	 * Finds the slot holding the key
+	 * @return the slot, or -1 if the key is not in the hash
+	 */
+	private int find(K key, int hash) {
+		Comparable<K> k = (Comparable<K>) key;
+		for (int i = hash & mask; keys[i] != null; i = (i + 1) & mask)
+			if (hashes[i] == hash && k.compareTo((K) keys[i]) == 0)
+				return i;
+		return -1;
+	}
+
+	/**
+	 * Adds the given key/value pair to the dictionary.  Returns
+	 * false if the key is a duplicate.
+	 * Returns true if addition succeeded.
+	 *
+	 * @param key the key to add
+	 * @param value the value associated with the key
+	 * @return true if the key/value are added to the hash.
+	 */
+	public boolean add(K key, V value) {
+		int hash = spread(key.hashCode());
+		if (find(key, hash) >= 0)
+			return false;
+		if (numElements + 1 > maxLoadFactor * keys.length)
+			resize(keys.length * 2);
+		int i = hash & mask;
+		while (keys[i] != null)
+			i = (i + 1) & mask;
+		keys[i] = key;
+		values[i] = value;
+		hashes[i] = hash;
+		numElements++;
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * Deletes the key/value pair identified by the key parameter.
+	 * Returns true if the key/value pair was found and removed,
+	 * otherwise returns false.
+	 *
+	 * @param key the key to remove
+	 * @return whether the key was removed
+	 */
+	public boolean remove(K key) {
+		int i = find(key, spread(key.hashCode()));
+		if (i < 0)
+			return false;
+		// shift back every following entry that is allowed to sit in the hole
+		int hole = i;
+		for (int j = (i + 1) & mask; keys[j] != null; j = (j + 1) & mask) {
+			int home = hashes[j] & mask;
+			// the entry at j may move to hole if its home is not between hole and j
+			if (((j - home) & mask) >= ((j - hole) & mask)) {
+				keys[hole] = keys[j];
+				values[hole] = values[j];
+				hashes[hole] = hashes[j];
+				hole = j;
+			}
+		}
+		keys[hole] = null;
+		values[hole] = null;
+		numElements--;
+		modCount++;
+		return true;
+	}
+
+	/**
+	 * Change the value associated with an existing key.
+	 * @param key The key to change
+	 * @param value the new value
+	 * @return whether the key was found
+	 */
+	public boolean changeValue(K key, V value) {
+		int i = find(key, spread(key.hashCode()));
+		if (i < 0)
+			return false;
+		values[i] = value;
+		return true;
+	}
+
+	/**
+	 * Test whether the hash has the entry associated with the key
+	 * @param key the key to look for
+	 * @return whether it is there.
+	 */
+	public boolean contains(K key) {
+		return find(key, spread(key.hashCode())) >= 0;
+	}
+
+	/**
+	 * Returns the value associated with the parameter key.
+	 * Returns null if the key is not found or the dictionary is empty.
+	 * @param key the key to find the value for
+	 * @return the value
+	 */
+	public V getValue(K key) {
+		int i = find(key, spread(key.hashCode()));
+		if (i < 0)
+			return null;
+		return (V) values[i];
+	}
+
+	/**
+	 * Looks up a batch of keys. The hash and home slot of every key is worked out
+	 * first and the probes are then run in slot order, so the table is read from
+	 * front to back in one pass instead of jumping about once per key.
+	 * @param keys the keys to look up
+	 * @param out where the values go, at least as long as keys
+	 * @return the number of values that are not null
+	 */
+	public int getAll(K[] keys, V[] out) {
+		if (out.length < keys.length)
+			throw new IllegalArgumentException("out is shorter than keys");
+		return lookupAll(keys, out);
+	}
+
+	/**
+	 * Test whether the hash has an entry for every key in a batch, probing in slot
+	 * order like getAll
+	 * @param keys the keys to look for
+	 * @return whether they are all there
+	 */
+	public boolean containsAll(K[] keys) {
+		return lookupAll(keys, null) == keys.length;
+	}
+
+	/**
+	 * Finds every key of the batch, putting the values in out unless it is null
+	 * @return the number of keys found, or with out, of values that are not null
+	 */
+	private int lookupAll(K[] keys, V[] out) {
+		int n = keys.length;
+		int[] hash = new int[n];
+		// the home slot in the high half, the place in the batch in the low half
+		long[] order = new long[n];
+		for (int i = 0; i < n; i++) {
+			hash[i] = spread(keys[i].hashCode());
+			order[i] = ((long) (hash[i] & mask) << 32) | i;
+		}
+		Arrays.sort(order);
+		int found = 0;
+		for (int j = 0; j < n; j++) {
+			int i = (int) order[j];
+			int slot = find(keys[i], hash[i]);
+			Object value = slot < 0 ? null : values[slot];
+			if (out != null)
+				out[i] = (V) value;
+			if (slot >= 0 && (out == null || value != null))
+				found++;
+		}
+		return found;
+	}
+
+	/**
+	 * Returns the number of key/value pairs currently stored in the dictionary
+	 * @return the number of entries
+	 */
+	public int size() {
+		return numElements;
+	}
+
+	/**
+	 * Returns true if the dictionary is empty
+	 * @return whether the dictionary is empty
+	 */
+	public boolean isEmpty() {
+		return numElements == 0;
+	}
+
+	/**
+	 * Make the dictionary empty
+	 */
+	public void makeEmpty() {
+		for (int i = 0; i < keys.length; i++) {
+			keys[i] = null;
+			values[i] = null;
+		}
+		numElements = 0;
+		modCount++;
+	}
+
+	/**
+	 * Returns the current load factor of the dictionary (lambda)
+	 * @return the loadFactor
+	 */
+	public double loadFactor() {
+		return (double) numElements / keys.length;
+	}
+
+	/**
+	 * Get the maximum load factor (at which point we need to resize)
+	 * @return the maximum load factor of the hash
+	 */
+	public double getMaxLoadFactor() {
+		return maxLoadFactor;
+	}
+
+	/**
+	 * Set the maximum load factor (at which point we need to resize). Probing
+	 * needs free slots, so it has to be below 1.
+	 * @param loadfactor the maximum load factor
+	 */
+	public void setMaxLoadFActor(double loadfactor) {
+		if (loadfactor <= 0 || loadfactor >= 1)
+			throw new IllegalArgumentException("load factor must be between 0 and 1: " + loadfactor);
+		maxLoadFactor = loadfactor;
+	}
+
+	/**
+	 * Resizes the dictionary. The size is rounded up to a power of two, and to
+	 * at least what the current entries need.
+	 * @param newSize the size of the new dictionary
+	 */
+	public void resize(int newSize) {
+		Object[] oldKeys = keys;
+		Object[] oldValues = values;
+		int[] oldHashes = hashes;
+		allocate(tableSizeFor(Math.max(newSize, (int) (numElements / maxLoadFactor) + 1)));
+		for (int j = 0; j < oldKeys.length; j++) {
+			if (oldKeys[j] == null)
+				continue;
+			int i = oldHashes[j] & mask;
+			while (keys[i] != null)
+				i = (i + 1) & mask;
+			keys[i] = oldKeys[j];
+			values[i] = oldValues[j];
+			hashes[i] = oldHashes[j];
+		}
+		modCount++;
+	}
+
+	/**
+	 * Returns an Iterator of the keys in the dictionary, in table order
+	 */
+	public Iterator<K> iterator() {
+		return new IteratorHelper();
+	}
+
+	class IteratorHelper implements Iterator<K> {
+		int position;
+		int expectedModCount;
+
+		public IteratorHelper() {
+			expectedModCount = modCount;
+			position = skipEmpty(0);
+		}
+
+		private int skipEmpty(int i) {
+			while (i < keys.length && keys[i] == null)
+				i++;
+			return i;
+		}
+
+		public boolean hasNext() {
+			return position < keys.length;
+		}
+
+		public K next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			K key = (K) keys[position];
+			position = skipEmpty(position + 1);
+			return key;
+		}
+	}
+}
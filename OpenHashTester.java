@@ -0,0 +1,155 @@
+package RBTester;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+
+import data_structures.OpenHash;
+
+/**
+ * Checks OpenHash against a HashMap. Besides keys with ordinary hash codes it uses
+ * keys that share a handful of hash codes, so nearly every key sits away from its
+ * home slot in long runs, which can wrap around the end of the table. Every remove
+ * then has to shift the entries after it back, and any entry shifted wrongly is
+ * lost to the lookups after it.
+ * @author Milad Balkhinezhad
+ */
+public class OpenHashTester {
+
+	static boolean error = false;
+
+	/**
+	 * A key whose hash code is chosen by the tester. Keys are equal when their ids are.
+	 */
+	static final class Key implements Comparable<Key> {
+		final int id;
+		final int hash;
+
+		Key(int id, int hash) {
+			this.id = id;
+			this.hash = hash;
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o instanceof Key && ((Key) o).id == id;
+		}
+
+		@Override
+		public int compareTo(Key o) {
+			return Integer.compare(id, o.id);
+		}
+
+		@Override
+		public String toString() {
+			return id + "#" + hash;
+		}
+	}
+
+	public static void main(String[] args) {
+		// ordinary keys, a few colliding keys in a small table, and many colliding keys at a high load factor
+		check("Integer keys", new Random(7), 100000, 0.75, id -> new Key(id, Integer.hashCode(id)));
+		check("4 hash codes", new Random(8), 200, 0.75, id -> new Key(id, id % 4));
+		check("16 hash codes at load 0.9", new Random(9), 3000, 0.9, id -> new Key(id, id % 16));
+
+		if (!error)
+			System.out.println("OpenHash: all checks passed.");
+	}
+
+	interface KeyMaker {
+		Key make(int id);
+	}
+
+	static void check(String name, Random random, int range, double loadFactor, KeyMaker keyOf) {
+		OpenHash<Key, Integer> hash = new OpenHash<>(1);
+		hash.setMaxLoadFActor(loadFactor);
+		HashMap<Key, Integer> map = new HashMap<>();
+		for (int i = 0; i < 200000; i++) {
+			Key key = keyOf.make(random.nextInt(range));
+			switch (random.nextInt(5)) {
+			case 0:
+			case 1:
+				if (hash.add(key, i) != (map.putIfAbsent(key, i) == null))
+					fail(name + ": add(" + key + ") should return true only for a new key.");
+				break;
+			case 2:
+				if (hash.remove(key) != (map.remove(key) != null))
+					fail(name + ": remove(" + key + ") should return true only for a key in the table.");
+				break;
+			case 3:
+				if (hash.changeValue(key, -i) != (map.replace(key, -i) != null))
+					fail(name + ": changeValue(" + key + ") should return true only for a key in the table.");
+				break;
+			default:
+				if (!Objects.equals(hash.getValue(key), map.get(key)) || hash.contains(key) != map.containsKey(key))
+					fail(name + ": getValue(" + key + ") should be " + map.get(key) + " but it is " + hash.getValue(key) + ".");
+			}
+			if (hash.size() != map.size())
+				fail(name + ": the size should be " + map.size() + " after " + i + " operations but it is " + hash.size() + ".");
+			if (i % 10000 == 0)
+				checkContents(hash, map, name, keyOf, range, i + " operations");
+		}
+		checkContents(hash, map, name, keyOf, range, "the random operations");
+		if (hash.loadFactor() > loadFactor)
+			fail(name + ": the load factor should stay under " + loadFactor + " but it is " + hash.loadFactor() + ".");
+
+		// remove everything in an order unrelated to the slots, checking the rest each time
+		Key[] left = map.keySet().toArray(new Key[0]);
+		for (int i = 0; i < left.length; i++) {
+			int j = i + random.nextInt(left.length - i);
+			Key key = left[j];
+			left[j] = left[i];
+			left[i] = key;
+			if (!hash.remove(key))
+				fail(name + ": remove(" + key + ") should find the key while emptying the table.");
+			map.remove(key);
+			if (i % (1 + left.length / 20) == 0)
+				checkContents(hash, map, name, keyOf, range, "removing " + (i + 1) + " of " + left.length + " keys");
+		}
+		if (!hash.isEmpty() || hash.iterator().hasNext())
+			fail(name + ": the table should be empty after removing every key.");
+	}
+
+	/**
+	 * Every key in the range, the batch lookups, and the keys from the iterator
+	 */
+	static void checkContents(OpenHash<Key, Integer> hash, Map<Key, Integer> map, String name, KeyMaker keyOf, int range, String when) {
+		Key[] batch = new Key[range];
+		for (int id = 0; id < range; id++) {
+			batch[id] = keyOf.make(id);
+			if (!Objects.equals(hash.getValue(batch[id]), map.get(batch[id]))) {
+				fail(name + ": after " + when + " getValue(" + batch[id] + ") should be " + map.get(batch[id]) + " but it is "
+						+ hash.getValue(batch[id]) + ".");
+				return;
+			}
+		}
+		Integer[] values = new Integer[range];
+		if (hash.getAll(batch, values) != map.size())
+			fail(name + ": after " + when + " getAll should find " + map.size() + " keys.");
+		for (int id = 0; id < range; id++) {
+			if (!Objects.equals(values[id], map.get(batch[id])))
+				fail(name + ": after " + when + " getAll should give " + map.get(batch[id]) + " for " + batch[id] + ".");
+		}
+		if (!hash.containsAll(map.keySet().toArray(new Key[0])) || (map.size() < range && hash.containsAll(batch)))
+			fail(name + ": after " + when + " containsAll should be true only for keys that are all in the table.");
+		HashSet<Key> seen = new HashSet<>();
+		for (Key key : hash) {
+			if (!seen.add(key))
+				fail(name + ": after " + when + " the iterator returned " + key + " twice.");
+		}
+		if (!seen.equals(map.keySet()))
+			fail(name + ": after " + when + " the iterator should return exactly the keys in the table.");
+	}
+
+	static void fail(String message) {
+		System.err.println(message);
+		error = true;
+	}
+}
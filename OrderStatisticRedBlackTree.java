@@ -0,0 +1,174 @@
+package data_structures;
+
+import java.util.Iterator;
+
+/**
+ * A RedBlackTree where every node also knows how many nodes are in its subtree.
+ * That lets us find the position of a key, the key at a position, and the number
+ * of keys in a range with a single descent, O(log n), instead of walking the keys.
+ * The sizes cost one extra int per node, so they live in this subclass and the
+ * plain RedBlackTree keeps its smaller nodes.
+ * @author Milad Balkhinezhad
+ */
+public class OrderStatisticRedBlackTree<K, V> extends RedBlackTree<K, V> {
+
+	class SizedNode extends Node<K,V> {
+		int size;
+
+		public SizedNode(K key, V value) {
+			super(key, value);
+			size = 1;
+		}
+	}
+
+	@Override
+	Node<K,V> newNode(K key, V value) {
+		return new SizedNode(key, value);
+	}
+
+	/**
+	 * The new leaf adds one to every subtree it is now part of.
+	 */
+	@Override
+	void nodeAdded(Node<K,V> node) {
+		for (Node<K,V> parent = node.parent; parent != null; parent = parent.parent)
+			((SizedNode) parent).size++;
+	}
+
+	/**
+	 * The node leaves every subtree above it. Its own size drops to zero because a
+	 * leaf stays linked in during the delete fix-up, and rotations must not count it.
+	 */
+	@Override
+	void nodeRemoved(Node<K,V> node) {
+		for (Node<K,V> parent = node.parent; parent != null; parent = parent.parent)
+			((SizedNode) parent).size--;
+		((SizedNode) node).size = 0;
+	}
+
+	/**
+	 * A bulk build links the nodes without going through nodeAdded, so the sizes
+	 * are all worked out again bottom up.
+	 */
+	@Override
+	void treeRebuilt() {
+		resizeAll(root);
+	}
+
+	private int resizeAll(Node<K,V> node) {
+		if (node == null)
+			return 0;
+		int size = resizeAll(node.left) + resizeAll(node.right) + 1;
+		((SizedNode) node).size = size;
+		return size;
+	}
+
+	/**
+	 * Builds an order statistic tree from keys that are already in strictly
+	 * ascending order, in O(n).
+	 * @param keys the keys in ascending order
+	 * @param values the values in the same order as the keys, or null for null values
+	 * @param size the number of keys
+	 * @return the new tree
+	 * @see RedBlackTree#fromSorted(Iterator, Iterator, int)
+	 */
+	public static <K, V> OrderStatisticRedBlackTree<K, V> fromSorted(Iterator<K> keys, Iterator<V> values, int size) {
+		OrderStatisticRedBlackTree<K, V> tree = new OrderStatisticRedBlackTree<K, V>();
+		tree.buildFromSorted(keys, values, size);
+		return tree;
+	}
+
+	/**
+	 * Left rotation that also fixes the sizes of the two nodes that moved.
+	 * @param node
+	 */
+	@Override
+	public void leftRotate(Node<K,V> node) {
+		super.leftRotate(node);
+		resize(node);
+		resize(node.parent);
+	}
+
+	/**
+	 * Right rotation that also fixes the sizes of the two nodes that moved.
+	 * @param node
+	 */
+	@Override
+	public void rightRotate(Node<K,V> node) {
+		super.rightRotate(node);
+		resize(node);
+		resize(node.parent);
+	}
+
+	private void resize(Node<K,V> node) {
+		((SizedNode) node).size = sizeOf(node.left) + sizeOf(node.right) + 1;
+	}
+
+	private int sizeOf(Node<K,V> node) {
+		return node == null ? 0 : ((SizedNode) node).size;
+	}
+
+	/**
+	 * The number of keys in the tree that are strictly less than the given key.
+	 * The key itself does not have to be in the tree.
+	 * @param key the key to rank
+	 * @return the rank of the key
+	 */
+	public int rank(K key) {
+		return rank(key, false);
+	}
+
+	private int rank(K key, boolean inclusive) {
+		Comparable<K> k = (Comparable<K>) key;
+		Node<K,V> current = root;
+		int rank = 0;
+		while (current != null) {
+			int cmp = k.compareTo(current.key);
+			if (cmp < 0) {
+				current = current.left;
+			} else if (cmp > 0) {
+				rank += sizeOf(current.left) + 1;
+				current = current.right;
+			} else {
+				rank += sizeOf(current.left);
+				return inclusive ? rank + 1 : rank;
+			}
+		}
+		return rank;
+	}
+
+	/**
+	 * The key at the given position in sorted order, counting from 0
+	 * @param index the position of the key
+	 * @return the key
+	 * @throws IndexOutOfBoundsException if index is not between 0 and size() - 1
+	 */
+	public K select(int index) {
+		if (index < 0 || index >= size)
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		Node<K,V> current = root;
+		while (true) {
+			int leftSize = sizeOf(current.left);
+			if (index < leftSize) {
+				current = current.left;
+			} else if (index > leftSize) {
+				index -= leftSize + 1;
+				current = current.right;
+			} else {
+				return current.key;
+			}
+		}
+	}
+
+	/**
+	 * The number of keys between fromKey and toKey, both ends included
+	 * @param fromKey the lower bound
+	 * @param toKey the upper bound
+	 * @return the number of keys in the range
+	 */
+	public int countInRange(K fromKey, K toKey) {
+		if (((Comparable<K>) fromKey).compareTo(toKey) > 0)
+			return 0;
+		return rank(toKey, true) - rank(fromKey, false);
+	}
+}
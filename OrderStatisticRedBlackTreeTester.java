@@ -0,0 +1,138 @@
+package RBTester;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeMap;
+
+import data_structures.OrderStatisticRedBlackTree;
+
+/**
+ * Checks rank, select and countInRange against a TreeMap while the tree is changed
+ * every way that has to keep the subtree sizes right: adds and removes that rotate,
+ * removes of nodes with two children, which copy the successor's entry, removes
+ * through the iterator, batches added with addAll, which relink the whole tree,
+ * and a tree built with fromSorted that is then changed further.
+ * @author Milad Balkhinezhad
+ */
+public class OrderStatisticRedBlackTreeTester {
+
+	static boolean error = false;
+	static final int RANGE = 4000;
+
+	public static void main(String[] args) {
+		Random random = new Random(5);
+		OrderStatisticRedBlackTree<Integer, Integer> tree = new OrderStatisticRedBlackTree<>();
+		TreeMap<Integer, Integer> map = new TreeMap<>();
+
+		randomChanges(tree, map, random, 100000, "random adds and removes");
+
+		for (Iterator<Integer> it = tree.iterator(); it.hasNext();) {
+			int key = it.next();
+			if (key % 3 == 0) {
+				it.remove();
+				map.remove(key);
+			}
+		}
+		checkRanks(tree, map, random, "removing every key divisible by 3 through the iterator");
+
+		// a batch small enough to go in key by key, then one large enough to be merged
+		for (int count : new int[] { 20, 3000 }) {
+			List<Integer> batch = new ArrayList<>();
+			for (int i = 0; i < count; i++)
+				batch.add(random.nextInt(RANGE));
+			batch.sort(null);
+			for (int key : batch)
+				map.putIfAbsent(key, -key);
+			tree.addAll(batch.iterator(), batch.stream().map(key -> -key).iterator(), count);
+			checkRanks(tree, map, random, "addAll of " + count + " keys");
+			randomChanges(tree, map, random, 5000, "changes after addAll of " + count + " keys");
+		}
+
+		List<Integer> sorted = new ArrayList<>();
+		map.clear();
+		for (int key = 0; key < RANGE; key += 2) {
+			sorted.add(key);
+			map.put(key, key);
+		}
+		tree = OrderStatisticRedBlackTree.fromSorted(sorted.iterator(), sorted.iterator(), sorted.size());
+		checkRanks(tree, map, random, "fromSorted");
+		randomChanges(tree, map, random, 20000, "changes after fromSorted");
+
+		for (int index : new int[] { -1, tree.size() }) {
+			try {
+				tree.select(index);
+				fail("select(" + index + ") should throw IndexOutOfBoundsException for a tree of " + tree.size() + " keys.");
+			} catch (IndexOutOfBoundsException e) {
+				// expected
+			}
+		}
+
+		if (!error)
+			System.out.println("OrderStatisticRedBlackTree: all checks passed.");
+	}
+
+	/**
+	 * Random adds, removes and removeAndGets on both, checking the ranks now and then
+	 */
+	static void randomChanges(OrderStatisticRedBlackTree<Integer, Integer> tree, TreeMap<Integer, Integer> map, Random random,
+			int changes, String what) {
+		for (int i = 0; i < changes; i++) {
+			int key = random.nextInt(RANGE);
+			switch (random.nextInt(3)) {
+			case 0:
+				tree.add(key, key);
+				map.putIfAbsent(key, key);
+				break;
+			case 1:
+				tree.remove(key);
+				map.remove(key);
+				break;
+			default:
+				tree.removeAndGet(key);
+				map.remove(key);
+			}
+			if (i % 1000 == 0)
+				checkRanks(tree, map, random, what);
+		}
+		checkRanks(tree, map, random, what);
+	}
+
+	/**
+	 * Every key's rank and select, the rank of keys that are not in the tree, and
+	 * random ranges, against the TreeMap
+	 */
+	static void checkRanks(OrderStatisticRedBlackTree<Integer, Integer> tree, TreeMap<Integer, Integer> map, Random random, String when) {
+		if (tree.size() != map.size()) {
+			fail("After " + when + " the size should be " + map.size() + " but it is " + tree.size() + ".");
+			return;
+		}
+		int index = 0;
+		for (int key : map.keySet()) {
+			if (tree.rank(key) != index || tree.select(index) != key) {
+				fail("After " + when + " the key " + key + " should have rank " + index + " but rank gives " + tree.rank(key)
+						+ " and select(" + index + ") gives " + tree.select(index) + ".");
+				return;
+			}
+			index++;
+		}
+		for (int i = 0; i < 200; i++) {
+			int key = random.nextInt(RANGE + 200) - 100;
+			if (tree.rank(key) != map.headMap(key).size())
+				fail("After " + when + " rank(" + key + ") should be " + map.headMap(key).size() + " but it is " + tree.rank(key) + ".");
+			int to = key + random.nextInt(1000) - 100;
+			int expected = key > to ? 0 : map.subMap(key, true, to, true).size();
+			if (tree.countInRange(key, to) != expected)
+				fail("After " + when + " countInRange(" + key + ", " + to + ") should be " + expected + " but it is "
+						+ tree.countInRange(key, to) + ".");
+		}
+		if (tree.height() > 2 * (32 - Integer.numberOfLeadingZeros(tree.size() + 1)))
+			fail("After " + when + " a tree of " + tree.size() + " keys should not be " + tree.height() + " levels high.");
+	}
+
+	static void fail(String message) {
+		System.err.println(message);
+		error = true;
+	}
+}
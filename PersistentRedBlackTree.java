@@ -0,0 +1,455 @@
+package data_structures;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A Red Black Tree that never changes once it is made. with and without hand back
+ * a new tree and leave this one as it was: only the nodes on the path to the key
+ * are copied, O(log n) of them, and the new tree shares every other node with the
+ * old one. A reference to a tree is therefore a snapshot that costs nothing to take
+ * and that no writer can disturb, so it can be handed to any number of reader
+ * threads while the writer builds the next version.
+ * <p>
+ * The tree is a left-leaning Red Black Tree (every red node is a left child), which
+ * keeps the copying insert and delete short. The nodes have no parent pointers,
+ * since a node can be in many trees at once. add, remove and removeAndGet from
+ * RedBlackI would change the tree and throw UnsupportedOperationException; the rest
+ * of RedBlackI works as it does on RedBlackTree.
+ * @author Milad Balkhinezhad
+ */
+
+public class PersistentRedBlackTree<K, V> implements RangedRedBlackI<K, V> {
+
+	static final class Node<K, V> {
+		final K key;
+		final V value;
+		final Node<K, V> left, right;
+		final boolean black;
+
+		Node(K key, V value, Node<K, V> left, Node<K, V> right, boolean black) {
+			this.key = key;
+			this.value = value;
+			this.left = left;
+			this.right = right;
+			this.black = black;
+		}
+	}
+
+	private static final PersistentRedBlackTree<?, ?> EMPTY = new PersistentRedBlackTree<Object, Object>(null, 0);
+
+	final Node<K, V> root;
+	final int size;
+
+	private PersistentRedBlackTree(Node<K, V> root, int size) {
+		this.root = root;
+		this.size = size;
+	}
+
+	/**
+	 * The tree with no entries
+	 * @return the empty tree
+	 */
+	public static <K, V> PersistentRedBlackTree<K, V> empty() {
+		return (PersistentRedBlackTree<K, V>) EMPTY;
+	}
+
+	/**
+	 * A tree with the same entries as the given one
+	 * @param tree the entries to copy
+	 * @return the new tree
+	 */
+	public static <K, V> PersistentRedBlackTree<K, V> copyOf(RedBlackI<K, V> tree) {
+		if (tree instanceof PersistentRedBlackTree)
+			return (PersistentRedBlackTree<K, V>) tree;
+		PersistentRedBlackTree<K, V> copy = empty();
+		for (K key : tree)
+			copy = copy.with(key, tree.getValue(key));
+		return copy;
+	}
+
+	/**
+	 * A tree with the key mapped to the value. If the key is already in this tree
+	 * its value is replaced in the new tree.
+	 * @param key the key to add
+	 * @param value the value associated with the key
+	 * @return the new tree, or this one if it already maps key to value
+	 */
+	public PersistentRedBlackTree<K, V> with(K key, V value) {
+		Node<K, V> node = getNode(key);
+		if (node != null && node.value == value)
+			return this;
+		Node<K, V> newRoot = insert(root, (Comparable<K>) key, key, value);
+		return new PersistentRedBlackTree<K, V>(blacken(newRoot), node == null ? size + 1 : size);
+	}
+
+	/**
+	 * A tree without the key
+	 * @param key the key to remove
+	 * @return the new tree, or this one if the key is not in it
+	 */
+	public PersistentRedBlackTree<K, V> without(K key) {
+		if (getNode(key) == null)
+			return this;
+		Node<K, V> h = root;
+		if (!isRed(h.left) && !isRed(h.right))
+			h = recolor(h, false);
+		return new PersistentRedBlackTree<K, V>(blacken(delete(h, (Comparable<K>) key)), size - 1);
+	}
+
+	private static boolean isRed(Node<?, ?> node) {
+		return node != null && !node.black;
+	}
+
+	private static <K, V> Node<K, V> recolor(Node<K, V> node, boolean black) {
+		if (node.black == black)
+			return node;
+		return new Node<K, V>(node.key, node.value, node.left, node.right, black);
+	}
+
+	private static <K, V> Node<K, V> blacken(Node<K, V> node) {
+		return node == null ? null : recolor(node, true);
+	}
+
+	private static <K, V> Node<K, V> withLeft(Node<K, V> node, Node<K, V> left) {
+		return new Node<K, V>(node.key, node.value, left, node.right, node.black);
+	}
+
+	private static <K, V> Node<K, V> withRight(Node<K, V> node, Node<K, V> right) {
+		return new Node<K, V>(node.key, node.value, node.left, right, node.black);
+	}
+
+	private static <K, V> Node<K, V> rotateLeft(Node<K, V> h) {
+		Node<K, V> x = h.right;
+		Node<K, V> lowered = new Node<K, V>(h.key, h.value, h.left, x.left, false);
+		return new Node<K, V>(x.key, x.value, lowered, x.right, h.black);
+	}
+
+	private static <K, V> Node<K, V> rotateRight(Node<K, V> h) {
+		Node<K, V> x = h.left;
+		Node<K, V> lowered = new Node<K, V>(h.key, h.value, x.right, h.right, false);
+		return new Node<K, V>(x.key, x.value, x.left, lowered, h.black);
+	}
+
+	/**
+	 * Flips the color of a node and both its children
+	 */
+	private static <K, V> Node<K, V> flipColors(Node<K, V> h) {
+		return new Node<K, V>(h.key, h.value, recolor(h.left, !h.left.black), recolor(h.right, !h.right.black), !h.black);
+	}
+
+	/**
+	 * Restores the left-leaning rules on the way back up
+	 */
+	private static <K, V> Node<K, V> balance(Node<K, V> h) {
+		if (isRed(h.right) && !isRed(h.left))
+			h = rotateLeft(h);
+		if (isRed(h.left) && isRed(h.left.left))
+			h = rotateRight(h);
+		if (isRed(h.left) && isRed(h.right))
+			h = flipColors(h);
+		return h;
+	}
+
+	private static <K, V> Node<K, V> insert(Node<K, V> h, Comparable<K> k, K key, V value) {
+		if (h == null)
+			return new Node<K, V>(key, value, null, null, false);
+		int cmp = k.compareTo(h.key);
+		if (cmp < 0)
+			h = withLeft(h, insert(h.left, k, key, value));
+		else if (cmp > 0)
+			h = withRight(h, insert(h.right, k, key, value));
+		else
+			return new Node<K, V>(key, value, h.left, h.right, h.black);
+		return balance(h);
+	}
+
+	/**
+	 * Makes h.left or one of its children red, so a node can be taken out of the
+	 * left subtree without leaving a black gap
+	 */
+	private static <K, V> Node<K, V> moveRedLeft(Node<K, V> h) {
+		h = flipColors(h);
+		if (isRed(h.right.left)) {
+			h = rotateLeft(withRight(h, rotateRight(h.right)));
+			h = flipColors(h);
+		}
+		return h;
+	}
+
+	private static <K, V> Node<K, V> moveRedRight(Node<K, V> h) {
+		h = flipColors(h);
+		if (isRed(h.left.left)) {
+			h = rotateRight(h);
+			h = flipColors(h);
+		}
+		return h;
+	}
+
+	private static <K, V> Node<K, V> deleteMin(Node<K, V> h) {
+		if (h.left == null)
+			return null;
+		if (!isRed(h.left) && !isRed(h.left.left))
+			h = moveRedLeft(h);
+		return balance(withLeft(h, deleteMin(h.left)));
+	}
+
+	/**
+	 * Removes the key from the subtree at h. The key has to be in it.
+	 */
+	private static <K, V> Node<K, V> delete(Node<K, V> h, Comparable<K> k) {
+		if (k.compareTo(h.key) < 0) {
+			if (!isRed(h.left) && !isRed(h.left.left))
+				h = moveRedLeft(h);
+			h = withLeft(h, delete(h.left, k));
+		} else {
+			if (isRed(h.left))
+				h = rotateRight(h);
+			if (k.compareTo(h.key) == 0 && h.right == null)
+				return null;
+			if (!isRed(h.right) && !isRed(h.right.left))
+				h = moveRedRight(h);
+			if (k.compareTo(h.key) == 0) {
+				Node<K, V> min = h.right;
+				while (min.left != null)
+					min = min.left;
+				h = new Node<K, V>(min.key, min.value, h.left, deleteMin(h.right), h.black);
+			} else
+				h = withRight(h, delete(h.right, k));
+		}
+		return balance(h);
+	}
+
+	/**
+	 * A persistent tree cannot be changed in place, use with instead
+	 * @throws UnsupportedOperationException always
+	 */
+	public boolean add(K key, V value) {
+		throw new UnsupportedOperationException("persistent tree, use with");
+	}
+
+	/**
+	 * A persistent tree cannot be changed in place, use without instead
+	 * @throws UnsupportedOperationException always
+	 */
+	public boolean remove(K key) {
+		throw new UnsupportedOperationException("persistent tree, use without");
+	}
+
+	/**
+	 * A persistent tree cannot be changed in place, use without instead
+	 * @throws UnsupportedOperationException always
+	 */
+	public V removeAndGet(K key) {
+		throw new UnsupportedOperationException("persistent tree, use without");
+	}
+
+	private Node<K, V> getNode(K key) {
+		Comparable<K> k = (Comparable<K>) key;
+		Node<K, V> current = root;
+		while (current != null) {
+			int cmp = k.compareTo(current.key);
+			if (cmp == 0)
+				return current;
+			current = cmp < 0 ? current.left : current.right;
+		}
+		return null;
+	}
+
+	public boolean contains(K key) {
+		return getNode(key) != null;
+	}
+
+	public V getValue(K key) {
+		Node<K, V> node = getNode(key);
+		return node == null ? null : node.value;
+	}
+
+	public K firstKey() {
+		Node<K, V> node = root;
+		if (node != null)
+			while (node.left != null)
+				node = node.left;
+		return keyOf(node);
+	}
+
+	public K lastKey() {
+		Node<K, V> node = root;
+		if (node != null)
+			while (node.right != null)
+				node = node.right;
+		return keyOf(node);
+	}
+
+	public K floorKey(K key) {
+		return keyOf(floorNode(key, true));
+	}
+
+	public K ceilingKey(K key) {
+		return keyOf(ceilingNode(key, true));
+	}
+
+	public K lowerKey(K key) {
+		return keyOf(floorNode(key, false));
+	}
+
+	public K higherKey(K key) {
+		return keyOf(ceilingNode(key, false));
+	}
+
+	private K keyOf(Node<K, V> node) {
+		return node == null ? null : node.key;
+	}
+
+	private Node<K, V> floorNode(K key, boolean inclusive) {
+		Comparable<K> k = (Comparable<K>) key;
+		Node<K, V> current = root, best = null;
+		while (current != null) {
+			int cmp = k.compareTo(current.key);
+			if (cmp == 0 && inclusive)
+				return current;
+			if (cmp > 0) {
+				best = current;
+				current = current.right;
+			} else
+				current = current.left;
+		}
+		return best;
+	}
+
+	private Node<K, V> ceilingNode(K key, boolean inclusive) {
+		Comparable<K> k = (Comparable<K>) key;
+		Node<K, V> current = root, best = null;
+		while (current != null) {
+			int cmp = k.compareTo(current.key);
+			if (cmp == 0 && inclusive)
+				return current;
+			if (cmp < 0) {
+				best = current;
+				current = current.left;
+			} else
+				current = current.right;
+		}
+		return best;
+	}
+
+	public RedBlackI<K, V> headMap(K toKey, boolean inclusive) {
+		return new RedBlackSubTree<K, V>(this, null, false, toKey, inclusive);
+	}
+
+	public RedBlackI<K, V> tailMap(K fromKey, boolean inclusive) {
+		return new RedBlackSubTree<K, V>(this, fromKey, inclusive, null, false);
+	}
+
+	public RedBlackI<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+		return new RedBlackSubTree<K, V>(this, fromKey, fromInclusive, toKey, toInclusive);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * The height of the tree. Recall that a tree with
+	 * only a root node has height 0
+	 * @return the height of the tree at the root node
+	 */
+	public int height() {
+		if (root == null)
+			return 0;
+		return height(root) - 1;
+	}
+
+	private int height(Node<K, V> node) {
+		if (node == null)
+			return 0;
+		return Math.max(height(node.left), height(node.right)) + 1;
+	}
+
+	/**
+	 * An iterator for all the keys in the tree using <b>InOrder Traversal</b>.
+	 * The tree never changes, so the iterator never fails.
+	 */
+	public Iterator<K> iterator() {
+		return new IteratorHelper(null, false, null, false);
+	}
+
+	public Iterator<K> iterator(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+		return new IteratorHelper(fromKey, fromInclusive, toKey, toInclusive);
+	}
+
+	/**
+	 * Keeps the path of nodes still to visit on a stack, since there are no parent
+	 * pointers to walk back up.
+	 */
+	private class IteratorHelper implements Iterator<K> {
+		ArrayDeque<Node<K, V>> path;
+		K toKey;
+		boolean toInclusive;
+
+		public IteratorHelper(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+			path = new ArrayDeque<Node<K, V>>();
+			this.toKey = toKey;
+			this.toInclusive = toInclusive;
+			Comparable<K> k = (Comparable<K>) fromKey;
+			Node<K, V> current = root;
+			while (current != null) {
+				// keep every node at or above the lower bound, they are still to come
+				if (k == null) {
+					path.push(current);
+					current = current.left;
+					continue;
+				}
+				int cmp = k.compareTo(current.key);
+				if (cmp < 0 || (cmp == 0 && fromInclusive)) {
+					path.push(current);
+					current = cmp == 0 ? null : current.left;
+				} else
+					current = current.right;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			if (path.isEmpty())
+				return false;
+			if (toKey == null)
+				return true;
+			int cmp = ((Comparable<K>) path.peek().key).compareTo(toKey);
+			return cmp < 0 || (cmp == 0 && toInclusive);
+		}
+
+		@Override
+		public K next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			Node<K, V> node = path.pop();
+			for (Node<K, V> current = node.right; current != null; current = current.left)
+				path.push(current);
+			return node.key;
+		}
+	}
+
+	/**
+	 * Recursively print the tree, one node per line using <em>Inorder Traversal</em>,
+	 * with periods to note the hierarchy of the tree.
+	 */
+	public void print() {
+		print(root, 0);
+	}
+
+	private void print(Node<K, V> node, int levels) {
+		if (node == null)
+			return;
+		print(node.left, levels + 1);
+		for (int i = 0; i < levels; i++)
+			System.out.print(".");
+		System.out.println(node.key + (node.black ? " : Black" : " : Red"));
+		print(node.right, levels + 1);
+	}
+}
@@ -0,0 +1,195 @@
+package RBTester;
+
+import java.util.ConcurrentModificationException;
+import java.util.Map;
+import java.util.Objects;
+import java.util.PrimitiveIterator;
+import java.util.Random;
+import java.util.TreeMap;
+
+import data_structures.IntRedBlackTree;
+import data_structures.LongRedBlackTree;
+
+/**
+ * Checks IntRedBlackTree and LongRedBlackTree against a TreeMap through random
+ * adds, removes and value changes, removes through the iterator, and keys at both
+ * ends of the range of int and long, where a compare done by subtraction would
+ * overflow.
+ * @author Milad Balkhinezhad
+ */
+public class PrimitiveRedBlackTreeTester {
+
+	static boolean error = false;
+	static final int RANGE = 20000;
+
+	public static void main(String[] args) {
+		checkInt(new Random(2));
+		checkLong(new Random(3));
+
+		if (!error)
+			System.out.println("IntRedBlackTree and LongRedBlackTree: all checks passed.");
+	}
+
+	/**
+	 * Mostly keys from a small range so they repeat, and now and then a key at
+	 * either end of int
+	 */
+	static int intKey(Random random) {
+		switch (random.nextInt(20)) {
+		case 0:
+			return Integer.MIN_VALUE + random.nextInt(10);
+		case 1:
+			return Integer.MAX_VALUE - random.nextInt(10);
+		default:
+			return random.nextInt(RANGE) - RANGE / 2;
+		}
+	}
+
+	static long longKey(Random random) {
+		switch (random.nextInt(20)) {
+		case 0:
+			return Long.MIN_VALUE + random.nextInt(10);
+		case 1:
+			return Long.MAX_VALUE - random.nextInt(10);
+		default:
+			// spread over the high half so keys that are equal as ints are not equal as longs
+			return ((long) (random.nextInt(RANGE) - RANGE / 2) << 32) + random.nextInt(3);
+		}
+	}
+
+	static void checkInt(Random random) {
+		IntRedBlackTree<Integer> tree = new IntRedBlackTree<>();
+		TreeMap<Integer, Integer> map = new TreeMap<>();
+		for (int i = 0; i < 200000; i++) {
+			int key = intKey(random);
+			switch (random.nextInt(4)) {
+			case 0:
+				if (tree.add(key, i) != (map.putIfAbsent(key, i) == null))
+					fail("IntRedBlackTree.add(" + key + ") should return true only for a new key.");
+				break;
+			case 3:
+				if (tree.changeValue(key, -i) != (map.replace(key, -i) != null))
+					fail("IntRedBlackTree.changeValue(" + key + ") should return true only for a key in the tree.");
+				break;
+			case 1:
+				if (!Objects.equals(tree.removeAndGet(key), map.remove(key)))
+					fail("IntRedBlackTree.removeAndGet(" + key + ") should return the value that was removed.");
+				break;
+			default:
+				if (tree.remove(key) != (map.remove(key) != null))
+					fail("IntRedBlackTree.remove(" + key + ") should return true only for a key in the tree.");
+			}
+			if (i % 20000 == 0)
+				checkInt(tree, map, i + " changes");
+		}
+		checkInt(tree, map, "the random changes");
+
+		for (PrimitiveIterator.OfInt it = tree.iterator(); it.hasNext();) {
+			int key = it.nextInt();
+			if (key % 3 == 0) {
+				it.remove();
+				map.remove(key);
+			}
+		}
+		checkInt(tree, map, "removing every key divisible by 3 through the iterator");
+
+		PrimitiveIterator.OfInt it = tree.iterator();
+		it.nextInt();
+		tree.add(RANGE, 0);
+		try {
+			it.nextInt();
+			fail("IntRedBlackTree's iterator should fail fast after the tree is changed.");
+		} catch (ConcurrentModificationException e) {
+			// expected
+		}
+	}
+
+	static void checkInt(IntRedBlackTree<Integer> tree, TreeMap<Integer, Integer> map, String when) {
+		if (tree.size() != map.size() || tree.isEmpty() != map.isEmpty())
+			fail("After " + when + " IntRedBlackTree should have " + map.size() + " keys but has " + tree.size() + ".");
+		PrimitiveIterator.OfInt keys = tree.iterator();
+		for (Map.Entry<Integer, Integer> entry : map.entrySet()) {
+			if (!keys.hasNext() || keys.nextInt() != entry.getKey()) {
+				fail("After " + when + " IntRedBlackTree's iterator should return the keys of the TreeMap in order.");
+				return;
+			}
+			if (!tree.contains(entry.getKey()) || !entry.getValue().equals(tree.getValue(entry.getKey())))
+				fail("After " + when + " IntRedBlackTree should map " + entry.getKey() + " to " + entry.getValue() + ".");
+		}
+		if (keys.hasNext())
+			fail("After " + when + " IntRedBlackTree's iterator returned more keys than the TreeMap has.");
+		for (int key = -RANGE / 2 - 5; key < -RANGE / 2 + 100; key++) {
+			if (tree.contains(key) != map.containsKey(key))
+				fail("After " + when + " IntRedBlackTree.contains(" + key + ") should be " + map.containsKey(key) + ".");
+		}
+		checkHeight(tree.height(), tree.size(), "IntRedBlackTree", when);
+	}
+
+	static void checkLong(Random random) {
+		LongRedBlackTree<Integer> tree = new LongRedBlackTree<>();
+		TreeMap<Long, Integer> map = new TreeMap<>();
+		for (int i = 0; i < 200000; i++) {
+			long key = longKey(random);
+			switch (random.nextInt(4)) {
+			case 0:
+				if (tree.add(key, i) != (map.putIfAbsent(key, i) == null))
+					fail("LongRedBlackTree.add(" + key + ") should return true only for a new key.");
+				break;
+			case 3:
+				if (tree.changeValue(key, -i) != (map.replace(key, -i) != null))
+					fail("LongRedBlackTree.changeValue(" + key + ") should return true only for a key in the tree.");
+				break;
+			case 1:
+				if (!Objects.equals(tree.removeAndGet(key), map.remove(key)))
+					fail("LongRedBlackTree.removeAndGet(" + key + ") should return the value that was removed.");
+				break;
+			default:
+				if (tree.remove(key) != (map.remove(key) != null))
+					fail("LongRedBlackTree.remove(" + key + ") should return true only for a key in the tree.");
+			}
+			if (i % 20000 == 0)
+				checkLong(tree, map, i + " changes");
+		}
+		checkLong(tree, map, "the random changes");
+
+		for (PrimitiveIterator.OfLong it = tree.iterator(); it.hasNext();) {
+			long key = it.nextLong();
+			if (key % 3 == 0) {
+				it.remove();
+				map.remove(key);
+			}
+		}
+		checkLong(tree, map, "removing every key divisible by 3 through the iterator");
+	}
+
+	static void checkLong(LongRedBlackTree<Integer> tree, TreeMap<Long, Integer> map, String when) {
+		if (tree.size() != map.size() || tree.isEmpty() != map.isEmpty())
+			fail("After " + when + " LongRedBlackTree should have " + map.size() + " keys but has " + tree.size() + ".");
+		PrimitiveIterator.OfLong keys = tree.iterator();
+		for (Map.Entry<Long, Integer> entry : map.entrySet()) {
+			if (!keys.hasNext() || keys.nextLong() != entry.getKey()) {
+				fail("After " + when + " LongRedBlackTree's iterator should return the keys of the TreeMap in order.");
+				return;
+			}
+			if (!tree.contains(entry.getKey()) || !entry.getValue().equals(tree.getValue(entry.getKey())))
+				fail("After " + when + " LongRedBlackTree should map " + entry.getKey() + " to " + entry.getValue() + ".");
+		}
+		if (keys.hasNext())
+			fail("After " + when + " LongRedBlackTree's iterator returned more keys than the TreeMap has.");
+		for (long key : map.keySet()) {
+			if (tree.contains(key + 3) != map.containsKey(key + 3))
+				fail("After " + when + " LongRedBlackTree.contains(" + (key + 3) + ") should be " + map.containsKey(key + 3) + ".");
+		}
+		checkHeight(tree.height(), tree.size(), "LongRedBlackTree", when);
+	}
+
+	static void checkHeight(int height, int size, String tree, String when) {
+		if (height > 2 * (32 - Integer.numberOfLeadingZeros(size + 1)))
+			fail("After " + when + " a " + tree + " of " + size + " keys should not be " + height + " levels high.");
+	}
+
+	static void fail(String message) {
+		System.err.println(message);
+		error = true;
+	}
+}
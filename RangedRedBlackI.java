@@ -0,0 +1,22 @@
+package data_structures;
+
+import java.util.Iterator;
+
+/**
+ * A RedBlackI that can iterate over a range of its keys in place. This is all
+ * a tree has to provide for RedBlackSubTree to give it headMap, tailMap and
+ * subMap views.
+ */
+public interface RangedRedBlackI<K, V> extends RedBlackI<K, V> {
+
+	/**
+	 * An iterator over the keys between the two bounds using <b>InOrder Traversal</b>.
+	 * A null bound means the range is open at that end.
+	 * @param fromKey the lower bound, or null
+	 * @param fromInclusive whether fromKey itself is included
+	 * @param toKey the upper bound, or null
+	 * @param toInclusive whether toKey itself is included
+	 * @return the iterator
+	 */
+	public Iterator<K> iterator(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive);
+}
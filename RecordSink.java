@@ -0,0 +1,80 @@
+package dns_resolver;
+
+import data_structures.HashI;
+import data_structures.RedBlackI;
+
+/**
+ * Where DnsFileLoader puts the records it reads. The loader parses on many threads
+ * but hands the records over on one thread, in the order they are in the file, so
+ * a sink does not have to be thread safe and the first record for a URL is the one
+ * that is kept, the same as reading the file line by line.
+ * @author Milad Balkhinezhad
+ */
+public interface RecordSink {
+
+	/**
+	 * Takes one record
+	 * @param url the host name
+	 * @param ip its address
+	 */
+	public void accept(URL url, IPAddress ip);
+
+	/**
+	 * Takes the first count records of the arrays, which are not used again by the
+	 * loader. Sinks that can take a batch at a time faster than one record at a time
+	 * override this.
+	 * @param urls the host names
+	 * @param ips their addresses
+	 * @param count the number of records
+	 */
+	public default void acceptAll(URL[] urls, IPAddress[] ips, int count) {
+		for (int i = 0; i < count; i++)
+			accept(urls[i], ips[i]);
+	}
+
+	/**
+	 * A sink that adds every record to a table. Repeated URLs are skipped, as add does.
+	 * @param table the table to fill
+	 * @return the sink
+	 */
+	public static RecordSink into(HashI<URL, IPAddress> table) {
+		return (url, ip) -> table.add(url, ip);
+	}
+
+	/**
+	 * A sink that adds every record to a tree. Repeated URLs are skipped, as add does.
+	 * @param tree the tree to fill
+	 * @return the sink
+	 */
+	public static RecordSink into(RedBlackI<URL, IPAddress> tree) {
+		return (url, ip) -> tree.add(url, ip);
+	}
+
+	/**
+	 * A sink for updates: a record for a URL that is already in the table changes
+	 * its address, so the last record for a URL is the one that is kept.
+	 * @param table the table to update
+	 * @return the sink
+	 */
+	public static RecordSink replacing(HashI<URL, IPAddress> table) {
+		return (url, ip) -> {
+			if (!table.add(url, ip))
+				table.changeValue(url, ip);
+		};
+	}
+
+	/**
+	 * A sink for updates into a tree, which has no way to change a value in place,
+	 * so a URL that is already there is removed and added again.
+	 * @param tree the tree to update
+	 * @return the sink
+	 */
+	public static RecordSink replacing(RedBlackI<URL, IPAddress> tree) {
+		return (url, ip) -> {
+			if (!tree.add(url, ip)) {
+				tree.remove(url);
+				tree.add(url, ip);
+			}
+		};
+	}
+}
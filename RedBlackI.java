@@ -15,8 +15,23 @@ public interface RedBlackI<K, V> extends Iterable<K> {
 	 * The method to add to the RBTree.  It will not allow duplicate additions.
 	 * @param key the key to add
 	 * @param value the value associated with the key
+	 * @return <code>true</code> if the key was added, <code>false</code> if it was a duplicate
 	 */
-	public void add(K key, V value);
+	public boolean add(K key, V value);
+
+	/**
+	 * Removes the key and its value from the RBTree.
+	 * @param key the key to remove
+	 * @return <code>true</code> if the key was found and removed
+	 */
+	public boolean remove(K key);
+
+	/**
+	 * Removes the key from the RBTree and returns the value that was associated with it.
+	 * @param key the key to remove
+	 * @return the removed value, or null if the key was not found
+	 */
+	public V removeAndGet(K key);
 
 	/**
 	 * Tests whether the RBTree contains the key
@@ -32,6 +47,106 @@ public interface RedBlackI<K, V> extends Iterable<K> {
 	 */
 	public V getValue(K key);
 
+	/**
+	 * Looks up a batch of keys. out[i] is set to the value of keys[i], or null if
+	 * keys[i] is not in the tree. Trees that can share the work of neighbouring keys
+	 * override this; by default it calls getValue for each key.
+	 * @param keys the keys to look up
+	 * @param out where the values go, at least as long as keys
+	 * @return the number of values that are not null
+	 */
+	public default int getAll(K[] keys, V[] out) {
+		if (out.length < keys.length)
+			throw new IllegalArgumentException("out is shorter than keys");
+		int found = 0;
+		for (int i = 0; i < keys.length; i++)
+			if ((out[i] = getValue(keys[i])) != null)
+				found++;
+		return found;
+	}
+
+	/**
+	 * Tests whether the RBTree contains every key in a batch
+	 * @param keys the keys to look for
+	 * @return whether they are all found
+	 */
+	public default boolean containsAll(K[] keys) {
+		for (K key : keys)
+			if (!contains(key))
+				return false;
+		return true;
+	}
+
+	/**
+	 * The smallest key in the RBTree
+	 * @return the first key, or null if the tree is empty
+	 */
+	public K firstKey();
+
+	/**
+	 * The largest key in the RBTree
+	 * @return the last key, or null if the tree is empty
+	 */
+	public K lastKey();
+
+	/**
+	 * The largest key less than or equal to the given key
+	 * @param key the key to search from
+	 * @return the floor key, or null if there is none
+	 */
+	public K floorKey(K key);
+
+	/**
+	 * The smallest key greater than or equal to the given key
+	 * @param key the key to search from
+	 * @return the ceiling key, or null if there is none
+	 */
+	public K ceilingKey(K key);
+
+	/**
+	 * The largest key strictly less than the given key
+	 * @param key the key to search from
+	 * @return the lower key, or null if there is none
+	 */
+	public K lowerKey(K key);
+
+	/**
+	 * The smallest key strictly greater than the given key
+	 * @param key the key to search from
+	 * @return the higher key, or null if there is none
+	 */
+	public K higherKey(K key);
+
+	/**
+	 * A view of the part of the RBTree whose keys are less than (or equal to, if
+	 * inclusive) toKey. The view is backed by the tree, so nothing is copied and
+	 * changes show through in both directions.
+	 * @param toKey the upper bound of the view
+	 * @param inclusive whether toKey itself is in the view
+	 * @return the view
+	 */
+	public RedBlackI<K, V> headMap(K toKey, boolean inclusive);
+
+	/**
+	 * A view of the part of the RBTree whose keys are greater than (or equal to, if
+	 * inclusive) fromKey. The view is backed by the tree.
+	 * @param fromKey the lower bound of the view
+	 * @param inclusive whether fromKey itself is in the view
+	 * @return the view
+	 */
+	public RedBlackI<K, V> tailMap(K fromKey, boolean inclusive);
+
+	/**
+	 * A view of the part of the RBTree whose keys range from fromKey to toKey.
+	 * The view is backed by the tree.
+	 * @param fromKey the lower bound of the view
+	 * @param fromInclusive whether fromKey itself is in the view
+	 * @param toKey the upper bound of the view
+	 * @param toInclusive whether toKey itself is in the view
+	 * @return the view
+	 */
+	public RedBlackI<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive);
+
 	/**
 	 * Returns the number of elements in the RBTree
 	 * @return the number of elements in the tree
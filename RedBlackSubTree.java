@@ -0,0 +1,194 @@
+package data_structures;
+
+import java.util.Iterator;
+
+/**
+ * A range view over a RedBlackI. The view holds no keys of its own: lookups
+ * check the bounds and go to the backing tree, and iteration walks the
+ * backing tree between the bounds, so a range of k keys costs O(log n + k).
+ * A null bound means the view is open at that end.
+ * @author Milad Balkhinezhad
+ */
+public class RedBlackSubTree<K, V> implements RedBlackI<K, V> {
+
+	RangedRedBlackI<K, V> tree;
+	K fromKey, toKey;
+	boolean fromInclusive, toInclusive;
+
+	public RedBlackSubTree(RangedRedBlackI<K, V> tree, K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+		if (fromKey != null && toKey != null && ((Comparable<K>) fromKey).compareTo(toKey) > 0)
+			throw new IllegalArgumentException("fromKey > toKey");
+		this.tree = tree;
+		this.fromKey = fromKey;
+		this.fromInclusive = fromInclusive;
+		this.toKey = toKey;
+		this.toInclusive = toInclusive;
+	}
+
+	private boolean tooLow(K key) {
+		if (fromKey == null)
+			return false;
+		int cmp = ((Comparable<K>) key).compareTo(fromKey);
+		return cmp < 0 || (cmp == 0 && !fromInclusive);
+	}
+
+	private boolean tooHigh(K key) {
+		if (toKey == null)
+			return false;
+		int cmp = ((Comparable<K>) key).compareTo(toKey);
+		return cmp > 0 || (cmp == 0 && !toInclusive);
+	}
+
+	private boolean startsInside(K key, boolean inclusive) {
+		if (fromKey == null)
+			return true;
+		if (key == null)
+			return false;
+		int cmp = ((Comparable<K>) key).compareTo(fromKey);
+		return cmp > 0 || (cmp == 0 && (fromInclusive || !inclusive));
+	}
+
+	private boolean endsInside(K key, boolean inclusive) {
+		if (toKey == null)
+			return true;
+		if (key == null)
+			return false;
+		int cmp = ((Comparable<K>) key).compareTo(toKey);
+		return cmp < 0 || (cmp == 0 && (toInclusive || !inclusive));
+	}
+
+	private boolean inRange(K key) {
+		return !tooLow(key) && !tooHigh(key);
+	}
+
+	/**
+	 * Adds to the backing tree. The key has to be inside the view.
+	 * @param key the key to add
+	 * @param value the value associated with the key
+	 * @return <code>true</code> if the key was added, <code>false</code> if it was a duplicate
+	 */
+	public boolean add(K key, V value) {
+		if (!inRange(key))
+			throw new IllegalArgumentException("key out of range");
+		return tree.add(key, value);
+	}
+
+	public boolean remove(K key) {
+		return inRange(key) && tree.remove(key);
+	}
+
+	public V removeAndGet(K key) {
+		if (!inRange(key))
+			return null;
+		return tree.removeAndGet(key);
+	}
+
+	public boolean contains(K key) {
+		return inRange(key) && tree.contains(key);
+	}
+
+	public V getValue(K key) {
+		if (!inRange(key))
+			return null;
+		return tree.getValue(key);
+	}
+
+	public K firstKey() {
+		K key;
+		if (fromKey == null)
+			key = tree.firstKey();
+		else
+			key = fromInclusive ? tree.ceilingKey(fromKey) : tree.higherKey(fromKey);
+		return key == null || tooHigh(key) ? null : key;
+	}
+
+	public K lastKey() {
+		K key;
+		if (toKey == null)
+			key = tree.lastKey();
+		else
+			key = toInclusive ? tree.floorKey(toKey) : tree.lowerKey(toKey);
+		return key == null || tooLow(key) ? null : key;
+	}
+
+	public K floorKey(K key) {
+		if (tooHigh(key))
+			return lastKey();
+		K floor = tree.floorKey(key);
+		return floor == null || tooLow(floor) ? null : floor;
+	}
+
+	public K ceilingKey(K key) {
+		if (tooLow(key))
+			return firstKey();
+		K ceiling = tree.ceilingKey(key);
+		return ceiling == null || tooHigh(ceiling) ? null : ceiling;
+	}
+
+	public K lowerKey(K key) {
+		if (tooHigh(key))
+			return lastKey();
+		K lower = tree.lowerKey(key);
+		return lower == null || tooLow(lower) ? null : lower;
+	}
+
+	public K higherKey(K key) {
+		if (tooLow(key))
+			return firstKey();
+		K higher = tree.higherKey(key);
+		return higher == null || tooHigh(higher) ? null : higher;
+	}
+
+	public RedBlackI<K, V> headMap(K toKey, boolean inclusive) {
+		return subMap(fromKey, fromInclusive, toKey, inclusive);
+	}
+
+	public RedBlackI<K, V> tailMap(K fromKey, boolean inclusive) {
+		return subMap(fromKey, inclusive, toKey, toInclusive);
+	}
+
+	/**
+	 * A view of part of this view. The new bounds have to lie inside this view.
+	 */
+	public RedBlackI<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+		if (!startsInside(fromKey, fromInclusive) || !endsInside(toKey, toInclusive))
+			throw new IllegalArgumentException("key out of range");
+		return new RedBlackSubTree<K, V>(tree, fromKey, fromInclusive, toKey, toInclusive);
+	}
+
+	/**
+	 * The number of keys in the view. The keys are counted by walking the range,
+	 * so this costs O(log n + k).
+	 * @return the number of keys in the view
+	 */
+	public int size() {
+		int count = 0;
+		for (Iterator<K> it = iterator(); it.hasNext(); it.next())
+			count++;
+		return count;
+	}
+
+	public boolean isEmpty() {
+		return firstKey() == null;
+	}
+
+	/**
+	 * The height of the backing tree
+	 * @return the height of the tree at the root node
+	 */
+	public int height() {
+		return tree.height();
+	}
+
+	public Iterator<K> iterator() {
+		return tree.iterator(fromKey, fromInclusive, toKey, toInclusive);
+	}
+
+	/**
+	 * Prints the keys in the view, one per line, using <em>Inorder Traversal</em>.
+	 */
+	public void print() {
+		for (K key : this)
+			System.out.println(key);
+	}
+}
@@ -1,160 +1,522 @@
 package data_structures;
 
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
 
 /**
  * Main class for a Red Black Tree. A type of binary tree which must follow specific guidelines, while each node must be labeled as Red or Black, and the root is always black.
  * @author Milad Balkhinezhad
  */
 
-public class RedBlackTree<K, V> implements RedBlackI<K, V> {
+public class RedBlackTree<K, V> implements RangedRedBlackI<K, V> {
 
 	Node<K,V> root;
 	int size;
+	// bumped on every structural change so iterators can fail fast
+	int modCount;
 
 	class Node <K,V> {
 		K key;
 		V value;
 		Node<K,V> left, right, parent;
-		boolean isLeftChild, black;
+		boolean black;
 
 		public Node (K key, V value) {
 			this.key = key;
 			this.value = value;
 			left = right = parent = null;
 			black = false;
-			isLeftChild = false;
 		}
 	}
 
 	/**
 	 * The method to add to the RBTree.  It will not allow duplicate additions.
+	 * The insert walks down the tree iteratively and then makes a single
+	 * fix-up pass back towards the root, which stops as soon as the red/black
+	 * rules hold again and performs at most two rotations.
 	 * @param key the key to add
 	 * @param value the value associated with the key
+	 * @return <code>true</code> if the key was added, <code>false</code> if it was a duplicate
 	 */
-	public void add(K key, V value) {
-		Node<K,V> node = new Node<K,V>(key,value);
+	public boolean add(K key, V value) {
 		if (root == null) {
-			root = node;
+			root = newNode(key, value);
 			root.black = true;
+			nodeAdded(root);
 			size++;
-			return;
+			modCount++;
+			return true;
+		}
+		Comparable<K> k = (Comparable<K>) key;
+		Node<K,V> parent = root;
+		int cmp;
+		while (true) {
+			cmp = k.compareTo(parent.key);
+			if (cmp == 0)
+				return false;
+			Node<K,V> next = cmp < 0 ? parent.left : parent.right;
+			if (next == null)
+				break;
+			parent = next;
 		}
-		add(root,node);
+		Node<K,V> node = newNode(key, value);
+		node.parent = parent;
+		if (cmp < 0)
+			parent.left = node;
+		else
+			parent.right = node;
+		nodeAdded(node);
 		size++;
+		modCount++;
+		fixAfterAdd(node);
+		return true;
 	}
 
-	private void add(Node<K, V> parent, Node<K, V> newNode) {
-		if (((Comparable<K>) newNode.key).compareTo(parent.key) > 0) {
-			if (parent.right == null) {
-				parent.right = newNode;
-				newNode.parent = parent;
-				newNode.isLeftChild = false;
-				return;
-			} else
-				add(parent.right, newNode);
-		} else {
-			if (parent.left == null) {
-				parent.left = newNode;
-				newNode.parent = parent;
-				newNode.isLeftChild = true;
-				return;
-			} else
-				add(parent.left, newNode);
+	/**
+	 * Creates the node for a new entry. Subclasses that keep extra data in the
+	 * nodes override this to hand back their own node type.
+	 * @param key the key of the entry
+	 * @param value the value of the entry
+	 * @return the new (red) node
+	 */
+	Node<K,V> newNode(K key, V value) {
+		return new Node<K,V>(key, value);
+	}
+
+	/**
+	 * Called once a new node has been linked in as a leaf, before any rotation.
+	 * @param node the new node
+	 */
+	void nodeAdded(Node<K,V> node) {
+	}
+
+	/**
+	 * Called just before a node with at most one child is unlinked, while it is
+	 * still in the tree.
+	 * @param node the node about to be removed
+	 */
+	void nodeRemoved(Node<K,V> node) {
+	}
+
+	/**
+	 * Called after the whole tree has been rebuilt by a bulk operation.
+	 */
+	void treeRebuilt() {
+	}
+
+	/**
+	 * Restores the red/black rules after a red node has been linked in. A red aunt
+	 * is handled by recoloring and moving two levels up; a black aunt is handled by
+	 * one or two rotations, after which the tree is valid and we stop.
+	 * @param node the newly added (red) node
+	 */
+	private void fixAfterAdd(Node<K,V> node) {
+		while (node != root && !node.parent.black) {
+			Node<K,V> parent = node.parent;
+			// parent is red, so it is not the root and the grandparent exists
+			Node<K,V> grandparent = parent.parent;
+			if (parent == grandparent.left) {
+				Node<K,V> aunt = grandparent.right;
+				if (aunt != null && !aunt.black) {
+					parent.black = true;
+					aunt.black = true;
+					grandparent.black = false;
+					node = grandparent;
+				} else {
+					if (node == parent.right) {
+						leftRotate(parent);
+						parent = node;
+					}
+					parent.black = true;
+					grandparent.black = false;
+					rightRotate(grandparent);
+					break;
+				}
+			} else {
+				Node<K,V> aunt = grandparent.left;
+				if (aunt != null && !aunt.black) {
+					parent.black = true;
+					aunt.black = true;
+					grandparent.black = false;
+					node = grandparent;
+				} else {
+					if (node == parent.left) {
+						rightRotate(parent);
+						parent = node;
+					}
+					parent.black = true;
+					grandparent.black = false;
+					leftRotate(grandparent);
+					break;
+				}
+			}
 		}
+		root.black = true;
+	}
+
+	/**
+	 * Builds a tree from keys that are already in strictly ascending order. The tree
+	 * is built perfectly balanced in O(n) without any compares against the tree or
+	 * rotations: every level is black except the deepest one when it is not full,
+	 * which is red.
+	 * @param keys the keys in ascending order
+	 * @param values the values in the same order as the keys, or null for null values
+	 * @param size the number of keys
+	 * @return the new tree
+	 * @throws IllegalArgumentException if the keys are not strictly ascending or there are fewer than size
+	 */
+	public static <K, V> RedBlackTree<K, V> fromSorted(Iterator<K> keys, Iterator<V> values, int size) {
+		RedBlackTree<K, V> tree = new RedBlackTree<K, V>();
+		tree.buildFromSorted(keys, values, size);
+		return tree;
+	}
 
-		checkColor(newNode);
+	/**
+	 * Sorts the indexes of the first count keys by the keys they point at, so keys
+	 * can be taken in order without moving them, for example to feed fromSorted. The
+	 * merge sort is stable, so of equal keys the one given first stays first, and
+	 * runs that are already in order are not merged again.
+	 * @param keys the keys, which must be Comparable
+	 * @param count the number of keys to sort
+	 * @return the indexes 0 to count - 1 in ascending order of their keys
+	 */
+	public static <K> int[] sortedOrder(K[] keys, int count) {
+		int[] order = new int[count];
+		for (int i = 0; i < count; i++)
+			order[i] = i;
+		sortOrder(keys, order, new int[count], 0, count);
+		return order;
 	}
+
 	/**
-	 * Method to check if the root node is black, and to fix nodes if they do not meet the requirements for the RBTree.
-	 * @param node
+	 * Merge sorts order[from..to) by the keys the indexes point at
 	 */
-	public void checkColor(Node<K, V> node) {
-		if (node == root) {
-			node.black = true;
+	private static <K> void sortOrder(K[] keys, int[] order, int[] scratch, int from, int to) {
+		if (to - from < 2)
+			return;
+		int mid = (from + to) >>> 1;
+		sortOrder(keys, order, scratch, from, mid);
+		sortOrder(keys, order, scratch, mid, to);
+		if (((Comparable<K>) keys[order[mid - 1]]).compareTo(keys[order[mid]]) <= 0)
 			return;
+		System.arraycopy(order, from, scratch, from, to - from);
+		int i = from, j = mid, k = from;
+		while (i < mid && j < to)
+			order[k++] = ((Comparable<K>) keys[scratch[j]]).compareTo(keys[scratch[i]]) < 0 ? scratch[j++] : scratch[i++];
+		while (i < mid)
+			order[k++] = scratch[i++];
+		while (j < to)
+			order[k++] = scratch[j++];
+	}
+
+	/**
+	 * Replaces the contents of the tree with the sorted keys and values.
+	 */
+	void buildFromSorted(Iterator<K> keys, Iterator<V> values, int size) {
+		BuildState<K, V> state = new BuildState<K, V>(keys, values);
+		root = build(state, 0, 0, size - 1, redLevel(size));
+		this.size = size;
+		modCount++;
+		treeRebuilt();
+	}
+
+	/**
+	 * The iterators and the last key seen while building from sorted input.
+	 */
+	private static class BuildState<K, V> {
+		Iterator<K> keys;
+		Iterator<V> values;
+		K last;
+
+		BuildState(Iterator<K> keys, Iterator<V> values) {
+			this.keys = keys;
+			this.values = values;
 		}
-		if (!node.black && !node.parent.black) {
-			correctTree(node);
+
+		K nextKey() {
+			if (!keys.hasNext())
+				throw new IllegalArgumentException("fewer keys than size");
+			K key = keys.next();
+			if (last != null && ((Comparable<K>) key).compareTo(last) <= 0)
+				throw new IllegalArgumentException("keys are not in ascending order");
+			last = key;
+			return key;
 		}
-		if (node.parent != null) {
-			checkColor(node.parent);
+
+		V nextValue() {
+			return values == null ? null : values.next();
 		}
 	}
+
 	/**
-	 * A method to correct the tree if two consecutive red nodes appear on the tree. Rotates tree accordingly and applies RBTree rules.
-	 * @param node
+	 * Builds the subtree for positions lo to hi. The left subtree is built first so
+	 * the keys are consumed in order.
 	 */
-	public void correctTree(Node<K,V> node) {
-		if (node.parent.isLeftChild) {
-			// aunt is parent.right
-			if (node.parent.parent.right == null || node.parent.parent.right.black) {
-				//black aunt, rotate
-				rotate(node);
-			} else {
-				if (node.parent.parent.right != null)
-					node.parent.parent.right.black = true;
-				node.parent.parent.black = false;
-				node.parent.black =  true;		
+	private Node<K,V> build(BuildState<K, V> state, int level, int lo, int hi, int redLevel) {
+		if (hi < lo)
+			return null;
+		int mid = (lo + hi) >>> 1;
+		Node<K,V> left = build(state, level + 1, lo, mid - 1, redLevel);
+		Node<K,V> node = newNode(state.nextKey(), state.nextValue());
+		node.black = level != redLevel;
+		node.left = left;
+		if (left != null)
+			left.parent = node;
+		node.right = build(state, level + 1, mid + 1, hi, redLevel);
+		if (node.right != null)
+			node.right.parent = node;
+		return node;
+	}
+
+	/**
+	 * Relinks nodes lo to hi of an array in ascending order into a balanced subtree,
+	 * reusing the node objects.
+	 */
+	private Node<K,V> link(Node<K,V>[] nodes, int level, int lo, int hi, int redLevel) {
+		if (hi < lo)
+			return null;
+		int mid = (lo + hi) >>> 1;
+		Node<K,V> node = nodes[mid];
+		node.black = level != redLevel;
+		node.left = link(nodes, level + 1, lo, mid - 1, redLevel);
+		if (node.left != null)
+			node.left.parent = node;
+		node.right = link(nodes, level + 1, mid + 1, hi, redLevel);
+		if (node.right != null)
+			node.right.parent = node;
+		return node;
+	}
+
+	/**
+	 * The depth of the bottom level of a balanced tree holding size nodes when that
+	 * level is only partly full. Those nodes are colored red so every path has the
+	 * same number of black nodes. For a full tree this is one past the bottom.
+	 */
+	private static int redLevel(int size) {
+		int level = 0;
+		for (int m = size - 1; m >= 0; m = m / 2 - 1)
+			level++;
+		return level;
+	}
+
+	/**
+	 * Adds a batch of keys that are in ascending order. Keys already in the tree,
+	 * and repeats within the batch, are skipped just like add does. A batch that is
+	 * large compared to the tree is merged with the existing nodes in one in-order
+	 * pass and the tree is relinked balanced in O(n + count); a small batch is added
+	 * key by key. Either way the order of the whole batch is checked before the tree
+	 * is changed, so a batch that is out of order leaves the tree as it was.
+	 * @param keys the keys in ascending order
+	 * @param values the values in the same order as the keys, or null for null values
+	 * @param count the number of keys in the batch
+	 * @return the number of keys that were added
+	 * @throws IllegalArgumentException if the keys are not in ascending order
+	 */
+	public int addAll(Iterator<K> keys, Iterator<V> values, int count) {
+		if (count <= 0)
+			return 0;
+		if (size > 0 && count < (size >>> 4)) {
+			// read and check the whole batch before the first add, so a bad batch changes nothing
+			K[] batchKeys = (K[]) new Object[count];
+			V[] batchValues = (V[]) new Object[count];
+			for (int i = 0; i < count; i++) {
+				batchKeys[i] = keys.next();
+				batchValues[i] = values == null ? null : values.next();
+				if (i > 0 && ((Comparable<K>) batchKeys[i]).compareTo(batchKeys[i - 1]) < 0)
+					throw new IllegalArgumentException("keys are not in ascending order");
 			}
-		} else {
-			// aunt is parent.left
-			if (node.parent.parent.left == null || node.parent.parent.left.black) {
-				//black aunt, rotate
-				rotate(node);
-			} else {
-				if (node.parent.parent.left != null)
-					node.parent.parent.left.black = true;
-				node.parent.parent.black = false;
-				node.parent.black =  true;		
+			int added = 0;
+			for (int i = 0; i < count; i++) {
+				if (add(batchKeys[i], batchValues[i]))
+					added++;
+			}
+			return added;
+		}
+
+		Node<K,V>[] nodes = (Node<K,V>[]) new Node[size + count];
+		int n = 0;
+		Node<K,V> existing = firstNode();
+		K last = null;
+		for (int i = 0; i < count; i++) {
+			K key = keys.next();
+			V value = values == null ? null : values.next();
+			Comparable<K> k = (Comparable<K>) key;
+			if (last != null) {
+				int cmp = k.compareTo(last);
+				if (cmp < 0)
+					throw new IllegalArgumentException("keys are not in ascending order");
+				if (cmp == 0)
+					continue;
 			}
+			last = key;
+			int cmp = -1;
+			while (existing != null && (cmp = k.compareTo(existing.key)) > 0) {
+				nodes[n++] = existing;
+				existing = successor(existing);
+			}
+			if (existing != null && cmp == 0)
+				continue;
+			nodes[n++] = newNode(key, value);
+		}
+		while (existing != null) {
+			nodes[n++] = existing;
+			existing = successor(existing);
 		}
+
+		int added = n - size;
+		root = link(nodes, 0, 0, n - 1, redLevel(n));
+		root.parent = null;
+		size = n;
+		modCount++;
+		treeRebuilt();
+		return added;
 	}
+
 	/**
-	 * General rotation for the tree, implemented when tree needs to be balanced.
-	 * @param node
+	 * Removes the key and its value from the RBTree.
+	 * @param key the key to remove
+	 * @return <code>true</code> if the key was found and removed
 	 */
-	public void rotate(Node<K,V> node) {
-		if (node.isLeftChild) {
-			// parent is a left child
-			if (node.parent.isLeftChild) {
-				rightRotate(node.parent.parent);
-				// after a right rotate, we become red, our parent becomes black, and our sibling (node.parent.right) is red
-				// we become red
-				node.black = false;
-				// our parent becomes black
-				node.parent.black = true;
-				// Change sibling to be red
-				if (node.parent.right != null)
-					node.parent.right.black = false;
-				// else, parent is a right child
-			} else {
-				rightLeftRotate(node.parent.parent);
-				// after a right left, the node we start at is the new parent
-				// and is black
-				node.black = true;
-				node.right.black = false;
-				if(node.left != null)
-					node.left.black = false;
-			}
+	public boolean remove(K key) {
+		Node<K,V> node = getNode(key);
+		if (node == null)
+			return false;
+		deleteNode(node);
+		return true;
+	}
+
+	/**
+	 * Removes the key from the RBTree and returns the value that was associated with it.
+	 * @param key the key to remove
+	 * @return the removed value, or null if the key was not found
+	 */
+	public V removeAndGet(K key) {
+		Node<K,V> node = getNode(key);
+		if (node == null)
+			return null;
+		V value = node.value;
+		deleteNode(node);
+		return value;
+	}
+
+	/**
+	 * Unlinks a node from the tree. A node with two children takes over the key and
+	 * value of its in-order successor, and the successor (which has at most one child)
+	 * is unlinked instead. Removing a black node leaves one path a black short, which
+	 * fixAfterRemove repairs.
+	 * @param node the node to remove
+	 */
+	void deleteNode(Node<K,V> node) {
+		size--;
+		modCount++;
+		if (node.left != null && node.right != null) {
+			Node<K,V> successor = node.right;
+			while (successor.left != null)
+				successor = successor.left;
+			node.key = successor.key;
+			node.value = successor.value;
+			node = successor;
+		}
+
+		nodeRemoved(node);
+		Node<K,V> replacement = node.left != null ? node.left : node.right;
+		if (replacement != null) {
+			replacement.parent = node.parent;
+			if (node.parent == null)
+				root = replacement;
+			else if (node == node.parent.left)
+				node.parent.left = replacement;
+			else
+				node.parent.right = replacement;
+			node.left = node.right = node.parent = null;
+			if (node.black)
+				fixAfterRemove(replacement);
+		} else if (node.parent == null) {
+			root = null;
 		} else {
-			if (node.parent.isLeftChild) {
-				leftRightRotate(node.parent.parent);
-				// after a left right, the node w0e start at is the new parent
-				// and is black
-				node.black = true;
-				node.right.black = false;
-				node.left.black = false;
+			// no children: fix up while the node still holds its place, then unlink it
+			if (node.black)
+				fixAfterRemove(node);
+			if (node == node.parent.left)
+				node.parent.left = null;
+			else
+				node.parent.right = null;
+			node.parent = null;
+		}
+	}
+
+	/**
+	 * Restores the red/black rules after a black node was removed above node. The
+	 * missing black is pushed up the tree by recoloring, or absorbed by at most three
+	 * rotations.
+	 * @param node the node that is one black short
+	 */
+	private void fixAfterRemove(Node<K,V> node) {
+		while (node != root && node.black) {
+			Node<K,V> parent = node.parent;
+			if (node == parent.left) {
+				Node<K,V> sibling = parent.right;
+				if (!sibling.black) {
+					sibling.black = true;
+					parent.black = false;
+					leftRotate(parent);
+					sibling = parent.right;
+				}
+				if (isBlack(sibling.left) && isBlack(sibling.right)) {
+					sibling.black = false;
+					node = parent;
+				} else {
+					if (isBlack(sibling.right)) {
+						sibling.left.black = true;
+						sibling.black = false;
+						rightRotate(sibling);
+						sibling = parent.right;
+					}
+					sibling.black = parent.black;
+					parent.black = true;
+					sibling.right.black = true;
+					leftRotate(parent);
+					node = root;
+				}
 			} else {
-				leftRotate(node.parent.parent);
-				// after a left rotate, we become red, our parent becomes black, and our sibling (node.parent.left) is red
-				node.black = false;
-				node.parent.black = true;
-				if (node.parent.left != null)
-					node.parent.left.black = false;
+				Node<K,V> sibling = parent.left;
+				if (!sibling.black) {
+					sibling.black = true;
+					parent.black = false;
+					rightRotate(parent);
+					sibling = parent.left;
+				}
+				if (isBlack(sibling.left) && isBlack(sibling.right)) {
+					sibling.black = false;
+					node = parent;
+				} else {
+					if (isBlack(sibling.left)) {
+						sibling.right.black = true;
+						sibling.black = false;
+						leftRotate(sibling);
+						sibling = parent.left;
+					}
+					sibling.black = parent.black;
+					parent.black = true;
+					sibling.left.black = true;
+					rightRotate(parent);
+					node = root;
+				}
 			}
 		}
+		node.black = true;
 	}
+
+	/**
+	 * Empty subtrees count as black.
+	 */
+	private boolean isBlack(Node<K,V> node) {
+		return node == null || node.black;
+	}
+
 	/**
 	 * General right rotation for the tree when it needs to be balanced.
 	 * @param node
@@ -162,76 +524,42 @@ public class RedBlackTree<K, V> implements RedBlackI<K, V> {
 	public void rightRotate(Node<K,V> node) {
 		Node<K,V> temp = node.left;
 		node.left = temp.right;
-
-		if (node.left != null) {
-			node.left.parent = node;
-			node.left.isLeftChild = true;
-		}
+		if (temp.right != null)
+			temp.right.parent = node;
 
 		// check if we are the root node
-		if (node.parent == null) {
+		temp.parent = node.parent;
+		if (node.parent == null)
 			root = temp;
-			temp.parent = null;
-		} else {
-			temp.parent = node.parent;
-			if (node.isLeftChild) {
-				temp.isLeftChild = true;
-				temp.parent.left = temp;
-			} else {
-				temp.isLeftChild = false;
-				temp.parent.right = temp;
-			}
-		}
+		else if (node == node.parent.left)
+			node.parent.left = temp;
+		else
+			node.parent.right = temp;
 
 		temp.right = node;
-		node.isLeftChild = false;
 		node.parent = temp;
 	}
+
 	/**
 	 * General left rotation for the tree when it needs to be balanced.
 	 * @param node
 	 */
 	public void leftRotate(Node<K,V> node) {
-		Node <K,V> temp = node.right;
+		Node<K,V> temp = node.right;
 		node.right = temp.left;
-		if (node.right != null) {
-			node.right.parent = node;
-			node.right.isLeftChild = false;
-		}
-		if (node.parent == null) {
-			root = temp;
-			temp.parent = null;
-		}
-		else {
-			temp.parent = node.parent;
-			if (node.isLeftChild) {
-				temp.isLeftChild = true;
-				temp.parent.left = temp;
-			}
-			else {
-				temp.isLeftChild = false;
-				temp.parent.right = temp;
-			}
-			temp.left = node;
-			node.isLeftChild = true;
-			node.parent = temp;
-		}
-	}
+		if (temp.left != null)
+			temp.left.parent = node;
 
-	/**
-	 * Implements the leftRotate and rightRotate to generate a leftRightRotate when tree needs balancing.
-	 */
-	public void leftRightRotate(Node<K,V> node) {
-		leftRotate(node.left);
-		rightRotate(node);
-	}
+		temp.parent = node.parent;
+		if (node.parent == null)
+			root = temp;
+		else if (node == node.parent.left)
+			node.parent.left = temp;
+		else
+			node.parent.right = temp;
 
-	/**
-	 * Implements the rightRotate and leftRotate to generate a rightLeftRotate when tree needs balancing.
-	 */
-	public void rightLeftRotate(Node<K,V> node) {
-		rightRotate(node.right);
-		leftRotate(node);
+		temp.left = node;
+		node.parent = temp;
 	}
 
 	/**
@@ -260,23 +588,7 @@ public class RedBlackTree<K, V> implements RedBlackI<K, V> {
 	 * @return whether the key is found
 	 */
 	public boolean contains(K key) {
-		Node<K, V> tmp = root;
-		if (isEmpty()) {
-			return false;
-		}
-		while (tmp.right != null && tmp.left != null) {
-			if (((Comparable<K>) tmp.key).compareTo(key) == 0) {
-				return true;
-			}
-			if (((Comparable<K>) tmp.key).compareTo(key) > 0) {
-				tmp = tmp.left;
-				return true;
-			} else {
-				tmp = tmp.right;
-				return true;
-			}
-		}
-		return false;
+		return getNode(key) != null;
 	}
 
 	/**
@@ -285,19 +597,240 @@ public class RedBlackTree<K, V> implements RedBlackI<K, V> {
 	 * @return the current value
 	 */
 	public V getValue(K key) {
-		if (root == null) {
+		Node<K,V> node = getNode(key);
+		if (node == null)
 			return null;
+		return node.value;
+	}
+
+	/**
+	 * Looks up a batch of keys. The batch is sorted and then taken down the tree as
+	 * a whole: at each node the sorted keys are split into those that go left and
+	 * those that go right, so neighbouring keys share the top of their paths and
+	 * every node on a shared path is read and compared against once for the group
+	 * rather than once per key. A batch that is already in order is not moved.
+	 * @param keys the keys to look up
+	 * @param out where the values go, at least as long as keys
+	 * @return the number of values that are not null
+	 */
+	public int getAll(K[] keys, V[] out) {
+		if (out.length < keys.length)
+			throw new IllegalArgumentException("out is shorter than keys");
+		return lookupSorted(keys, sortedOrder(keys, keys.length), out, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * Tests whether the RBTree contains every key in a batch, walking the sorted
+	 * batch down the tree like getAll
+	 * @param keys the keys to look for
+	 * @return whether they are all found
+	 */
+	public boolean containsAll(K[] keys) {
+		return lookupSorted(keys, sortedOrder(keys, keys.length), null, Integer.MAX_VALUE) == keys.length;
+	}
+
+	/**
+	 * Takes a batch down the tree like getAll, putting the values in out unless it is
+	 * null, but gives up on a path longer than maxDepth nodes, which only happens to a
+	 * reader walking the tree while a writer is changing it
+	 * @param order the indexes of keys in ascending order of key, from sortedOrder
+	 * @return the number of keys found, or with out, of values that are not null, or -1 if it gave up
+	 */
+	int lookupSorted(K[] keys, int[] order, V[] out, int maxDepth) {
+		if (out != null)
+			Arrays.fill(out, 0, keys.length, null);
+		return lookupAll(root, keys, order, 0, keys.length, out, maxDepth);
+	}
+
+	/**
+	 * Finds the keys order[lo..hi), which are in ascending order, under node, going
+	 * at most depth nodes further down
+	 */
+	private int lookupAll(Node<K,V> node, K[] keys, int[] order, int lo, int hi, V[] out, int depth) {
+		int found = 0;
+		while (node != null && lo < hi) {
+			if (depth-- == 0)
+				return -1;
+			// the first key of the range that is not below node.key
+			int a = lo, b = hi;
+			while (a < b) {
+				int mid = (a + b) >>> 1;
+				if (((Comparable<K>) keys[order[mid]]).compareTo(node.key) < 0)
+					a = mid + 1;
+				else
+					b = mid;
+			}
+			int equal = a;
+			while (equal < hi && ((Comparable<K>) keys[order[equal]]).compareTo(node.key) == 0) {
+				if (out != null)
+					out[order[equal]] = node.value;
+				if (out == null || node.value != null)
+					found++;
+				equal++;
+			}
+			int left = lookupAll(node.left, keys, order, lo, a, out, depth);
+			if (left < 0)
+				return -1;
+			found += left;
+			node = node.right;
+			lo = equal;
 		}
+		return found;
+	}
+
+	/**
+	 * Finds the node holding the key
+	 * @param key the key to look for
+	 * @return the node, or null if the key is not in the tree
+	 */
+	Node<K,V> getNode(K key) {
+		Comparable<K> k = (Comparable<K>) key;
 		Node<K,V> current = root;
-		while (((Comparable<K>)current.key).compareTo(key) != 0) {
-			if (((Comparable<K>)key).compareTo((K)current.key) < 0)
+		while (current != null) {
+			int cmp = k.compareTo(current.key);
+			if (cmp == 0)
+				return current;
+			current = cmp < 0 ? current.left : current.right;
+		}
+		return null;
+	}
+
+	/**
+	 * The smallest key in the RBTree
+	 * @return the first key, or null if the tree is empty
+	 */
+	public K firstKey() {
+		return keyOf(firstNode());
+	}
+
+	/**
+	 * The largest key in the RBTree
+	 * @return the last key, or null if the tree is empty
+	 */
+	public K lastKey() {
+		Node<K,V> node = root;
+		if (node != null)
+			while (node.right != null)
+				node = node.right;
+		return keyOf(node);
+	}
+
+	/**
+	 * The largest key less than or equal to the given key
+	 * @param key the key to search from
+	 * @return the floor key, or null if there is none
+	 */
+	public K floorKey(K key) {
+		return keyOf(floorNode(key, true));
+	}
+
+	/**
+	 * The smallest key greater than or equal to the given key
+	 * @param key the key to search from
+	 * @return the ceiling key, or null if there is none
+	 */
+	public K ceilingKey(K key) {
+		return keyOf(ceilingNode(key, true));
+	}
+
+	/**
+	 * The largest key strictly less than the given key
+	 * @param key the key to search from
+	 * @return the lower key, or null if there is none
+	 */
+	public K lowerKey(K key) {
+		return keyOf(floorNode(key, false));
+	}
+
+	/**
+	 * The smallest key strictly greater than the given key
+	 * @param key the key to search from
+	 * @return the higher key, or null if there is none
+	 */
+	public K higherKey(K key) {
+		return keyOf(ceilingNode(key, false));
+	}
+
+	private K keyOf(Node<K,V> node) {
+		return node == null ? null : node.key;
+	}
+
+	/**
+	 * Finds the node with the largest key below the given key in a single descent
+	 * @param key the key to search from
+	 * @param inclusive whether a node holding key itself counts
+	 * @return the node, or null if every key is larger
+	 */
+	Node<K,V> floorNode(K key, boolean inclusive) {
+		Comparable<K> k = (Comparable<K>) key;
+		Node<K,V> current = root, best = null;
+		while (current != null) {
+			int cmp = k.compareTo(current.key);
+			if (cmp == 0 && inclusive)
+				return current;
+			if (cmp > 0) {
+				best = current;
+				current = current.right;
+			} else
 				current = current.left;
-			else 
+		}
+		return best;
+	}
+
+	/**
+	 * Finds the node with the smallest key above the given key in a single descent
+	 * @param key the key to search from
+	 * @param inclusive whether a node holding key itself counts
+	 * @return the node, or null if every key is smaller
+	 */
+	Node<K,V> ceilingNode(K key, boolean inclusive) {
+		Comparable<K> k = (Comparable<K>) key;
+		Node<K,V> current = root, best = null;
+		while (current != null) {
+			int cmp = k.compareTo(current.key);
+			if (cmp == 0 && inclusive)
+				return current;
+			if (cmp < 0) {
+				best = current;
+				current = current.left;
+			} else
 				current = current.right;
-			if (current == null)
-				return null;
 		}
-		return current.value;
+		return best;
+	}
+
+	/**
+	 * A view of the keys less than (or equal to, if inclusive) toKey. The view is
+	 * backed by this tree, and walking it costs O(log n + k) for k keys.
+	 * @param toKey the upper bound of the view
+	 * @param inclusive whether toKey itself is in the view
+	 * @return the view
+	 */
+	public RedBlackI<K, V> headMap(K toKey, boolean inclusive) {
+		return new RedBlackSubTree<K, V>(this, null, false, toKey, inclusive);
+	}
+
+	/**
+	 * A view of the keys greater than (or equal to, if inclusive) fromKey. The view
+	 * is backed by this tree.
+	 * @param fromKey the lower bound of the view
+	 * @param inclusive whether fromKey itself is in the view
+	 * @return the view
+	 */
+	public RedBlackI<K, V> tailMap(K fromKey, boolean inclusive) {
+		return new RedBlackSubTree<K, V>(this, fromKey, inclusive, null, false);
+	}
+
+	/**
+	 * A view of the keys from fromKey to toKey. The view is backed by this tree.
+	 * @param fromKey the lower bound of the view
+	 * @param fromInclusive whether fromKey itself is in the view
+	 * @param toKey the upper bound of the view
+	 * @param toInclusive whether toKey itself is in the view
+	 * @return the view
+	 */
+	public RedBlackI<K, V> subMap(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+		return new RedBlackSubTree<K, V>(this, fromKey, fromInclusive, toKey, toInclusive);
 	}
 
 	/**
@@ -355,48 +888,119 @@ public class RedBlackTree<K, V> implements RedBlackI<K, V> {
 
 	@Override
 	public Iterator<K> iterator() {
-		return new IteratorHelper<K>(root);
+		return new IteratorHelper(firstNode(), null, false);
+	}
+
+	/**
+	 * An iterator over the keys between the two bounds using <b>InOrder Traversal</b>.
+	 * A null bound means the range is open at that end.
+	 */
+	public Iterator<K> iterator(K fromKey, boolean fromInclusive, K toKey, boolean toInclusive) {
+		Node<K,V> first = fromKey == null ? firstNode() : ceilingNode(fromKey, fromInclusive);
+		return new IteratorHelper(first, toKey, toInclusive);
 	}
 
-	private class IteratorHelper<K> implements Iterator<K> {
-		K[] keys; //
-		Node<K, V> tmp;
-		int position;
+	/**
+	 * Hands every key and its value to action using <b>InOrder Traversal</b>, so a
+	 * caller that needs both does not search the tree again for each value.
+	 * @param action called with each key and value, smallest key first
+	 * @throws ConcurrentModificationException if action changes the tree
+	 */
+	public void forEachEntry(BiConsumer<? super K, ? super V> action) {
+		int expectedModCount = modCount;
+		for (Node<K,V> node = firstNode(); node != null; node = successor(node)) {
+			action.accept(node.key, node.value);
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+		}
+	}
+
+	/**
+	 * The leftmost node of the tree
+	 * @return the node with the smallest key, or null if the tree is empty
+	 */
+	Node<K,V> firstNode() {
+		Node<K,V> node = root;
+		if (node != null)
+			while (node.left != null)
+				node = node.left;
+		return node;
+	}
 
-		public IteratorHelper(Node<K, V> root) {
-			keys = (K[]) new Object [size];
-			position = 0;
-			traversal((Node<K,V>) root);
-			
+	/**
+	 * The next node in InOrder Traversal, found by following the parent pointers.
+	 * @param node the current node
+	 * @return the node with the next larger key, or null if node is the last one
+	 */
+	Node<K,V> successor(Node<K,V> node) {
+		if (node.right != null) {
+			node = node.right;
+			while (node.left != null)
+				node = node.left;
+			return node;
 		}
-		
-		public void traversal(Node<K, V> node) {
-			tmp = node;
-			if (node == null)
-				return;
-			if(node.left != null)
-				traversal(node.left);
-			keys[position++] = node.key;
-			if(node.right != null)
-				traversal(node.right);
+		Node<K,V> parent = node.parent;
+		while (parent != null && node == parent.right) {
+			node = parent;
+			parent = parent.parent;
+		}
+		return parent;
+	}
+
+	/**
+	 * Walks the tree lazily from node to node, so building the iterator costs one
+	 * descent and no copy of the keys is made. An upper bound stops the walk early
+	 * for range views. Any change to the tree that is not
+	 * made through this iterator makes the next call fail fast.
+	 */
+	private class IteratorHelper implements Iterator<K> {
+		Node<K, V> next;
+		Node<K, V> lastReturned;
+		int expectedModCount;
+		K toKey;
+		boolean toInclusive;
+
+		public IteratorHelper(Node<K, V> first, K toKey, boolean toInclusive) {
+			next = first;
+			lastReturned = null;
+			expectedModCount = modCount;
+			this.toKey = toKey;
+			this.toInclusive = toInclusive;
 		}
 
 		@Override
 		public boolean hasNext() {
-			if (keys.length > position)
-				return true;
-			else
+			if (next == null)
 				return false;
+			if (toKey == null)
+				return true;
+			int cmp = ((Comparable<K>) next.key).compareTo(toKey);
+			return cmp < 0 || (cmp == 0 && toInclusive);
 		}
 
 		@Override
 		public K next() {
 			if (!hasNext())
-			return null;
-			return keys[position++];
+				throw new NoSuchElementException();
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			lastReturned = next;
+			next = successor(next);
+			return lastReturned.key;
 		}
+
+		@Override
 		public void remove() {
-			System.out.println("Unsupported Operation");
+			if (lastReturned == null)
+				throw new IllegalStateException();
+			if (modCount != expectedModCount)
+				throw new ConcurrentModificationException();
+			// a node with two children takes over its successor's entry, which is our next
+			if (lastReturned.left != null && lastReturned.right != null)
+				next = lastReturned;
+			deleteNode(lastReturned);
+			expectedModCount = modCount;
+			lastReturned = null;
 		}
 	}
 
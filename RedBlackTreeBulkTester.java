@@ -0,0 +1,163 @@
+package RBTester;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import data_structures.RedBlackTree;
+
+/**
+ * Checks the bulk loading of RedBlackTree against a TreeMap. fromSorted must give
+ * the keys and values in order in a tree no higher than a perfectly balanced one,
+ * and the tree must stay a valid red black tree when it is changed afterwards.
+ * addAll must add the same keys a TreeMap would, skipping keys already there and
+ * repeats within the batch, both for small batches that go in key by key and for
+ * large ones that are merged, and a batch out of order must leave the tree as it was.
+ * @author Milad Balkhinezhad
+ */
+public class RedBlackTreeBulkTester {
+
+	static boolean error = false;
+
+	public static void main(String[] args) {
+		Random random = new Random(9);
+		checkFromSorted(random);
+		checkAddAll(random);
+		checkBadInput();
+
+		if (!error)
+			System.out.println("RedBlackTree bulk loading: all checks passed.");
+	}
+
+	static void checkFromSorted(Random random) {
+		for (int size = 0; size < 300; size++) {
+			List<Integer> keys = new ArrayList<>();
+			List<Integer> values = new ArrayList<>();
+			TreeMap<Integer, Integer> map = new TreeMap<>();
+			for (int i = 0; i < size; i++) {
+				keys.add(2 * i);
+				values.add(-i);
+				map.put(2 * i, -i);
+			}
+			RedBlackTree<Integer, Integer> tree = RedBlackTree.fromSorted(keys.iterator(), values.iterator(), size);
+			checkContents(tree, map, "fromSorted of " + size + " keys");
+			int balanced = 32 - Integer.numberOfLeadingZeros(size) - 1;
+			if (size > 0 && tree.height() != balanced)
+				fail("fromSorted of " + size + " keys should build a tree of height " + balanced + " but it is " + tree.height() + ".");
+
+			// the colors have to be right for later adds and removes to keep it balanced
+			for (int i = 0; i < 2 * size; i++) {
+				int key = random.nextInt(2 * size + 2) - 1;
+				if (random.nextBoolean()) {
+					tree.add(key, key);
+					map.putIfAbsent(key, key);
+				} else {
+					tree.remove(key);
+					map.remove(key);
+				}
+			}
+			checkContents(tree, map, "changes to a fromSorted tree of " + size + " keys");
+		}
+	}
+
+	static void checkAddAll(Random random) {
+		for (int round = 0; round < 300; round++) {
+			RedBlackTree<Integer, Integer> tree = new RedBlackTree<>();
+			TreeMap<Integer, Integer> map = new TreeMap<>();
+			int size = random.nextInt(3000);
+			for (int i = 0; i < size; i++) {
+				int key = random.nextInt(10000);
+				tree.add(key, key);
+				map.putIfAbsent(key, key);
+			}
+			// small batches go in key by key, large ones are merged with the tree
+			int count = random.nextBoolean() ? random.nextInt(1 + map.size() / 16) : random.nextInt(5000);
+			List<Integer> batch = new ArrayList<>();
+			for (int i = 0; i < count; i++)
+				batch.add(random.nextInt(10000));
+			batch.sort(null);
+			List<Integer> values = new ArrayList<>();
+			int expected = 0;
+			for (int key : batch) {
+				values.add(-key);
+				if (map.putIfAbsent(key, -key) == null)
+					expected++;
+			}
+			int added = tree.addAll(batch.iterator(), values.iterator(), count);
+			String what = "addAll of " + count + " keys to a tree of " + size;
+			if (added != expected)
+				fail(what + " should add " + expected + " keys but says it added " + added + ".");
+			checkContents(tree, map, what);
+
+			for (int i = 0; i < 500; i++) {
+				int key = random.nextInt(10000);
+				if (tree.remove(key) != (map.remove(key) != null))
+					fail("After " + what + ", remove(" + key + ") should return whether the key was there.");
+			}
+			checkContents(tree, map, "removes after " + what);
+		}
+	}
+
+	/**
+	 * Keys out of order or fewer keys than promised are refused, and addAll does
+	 * not change the tree when it refuses a batch
+	 */
+	static void checkBadInput() {
+		expectRefused(() -> RedBlackTree.fromSorted(Arrays.asList(1, 3, 2).iterator(), null, 3), "fromSorted of keys out of order");
+		expectRefused(() -> RedBlackTree.fromSorted(Arrays.asList(1, 1, 2).iterator(), null, 3), "fromSorted of a repeated key");
+		expectRefused(() -> RedBlackTree.fromSorted(Arrays.asList(1, 2).iterator(), null, 3), "fromSorted of fewer keys than size");
+
+		for (int size : new int[] { 1000, 10 }) {
+			RedBlackTree<Integer, Integer> tree = new RedBlackTree<>();
+			TreeMap<Integer, Integer> map = new TreeMap<>();
+			for (int key = 0; key < size; key++) {
+				tree.add(2 * key, key);
+				map.put(2 * key, key);
+			}
+			// 3 keys is key by key next to 1000, and merged next to 10
+			List<Integer> batch = Arrays.asList(5, 7, 3);
+			expectRefused(() -> tree.addAll(batch.iterator(), null, batch.size()), "addAll of keys out of order to a tree of " + size);
+			checkContents(tree, map, "a refused addAll to a tree of " + size);
+		}
+	}
+
+	static void expectRefused(Runnable bulkLoad, String what) {
+		try {
+			bulkLoad.run();
+			fail(what + " should throw IllegalArgumentException.");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * The size, the keys and values in order, and a height a red black tree can have
+	 */
+	static void checkContents(RedBlackTree<Integer, Integer> tree, TreeMap<Integer, Integer> map, String when) {
+		if (tree.size() != map.size())
+			fail("After " + when + " the size should be " + map.size() + " but it is " + tree.size() + ".");
+		Iterator<Integer> keys = tree.iterator();
+		for (Map.Entry<Integer, Integer> entry : map.entrySet()) {
+			if (!keys.hasNext() || !entry.getKey().equals(keys.next())) {
+				fail("After " + when + " the iterator should return the keys of the TreeMap in order.");
+				return;
+			}
+			if (!entry.getValue().equals(tree.getValue(entry.getKey())))
+				fail("After " + when + " the value of " + entry.getKey() + " should be " + entry.getValue() + " but it is "
+						+ tree.getValue(entry.getKey()) + ".");
+		}
+		if (keys.hasNext())
+			fail("After " + when + " the iterator returned more keys than the TreeMap has.");
+		if (tree.height() > 2 * (32 - Integer.numberOfLeadingZeros(tree.size() + 1)))
+			fail("After " + when + " a tree of " + tree.size() + " keys should not be " + tree.height() + " levels high.");
+	}
+
+	static void fail(String message) {
+		System.err.println(message);
+		error = true;
+	}
+}
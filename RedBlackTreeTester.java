@@ -48,6 +48,36 @@ package RBTester;
 					}
 				}
 
+				// Remove the even numbers and check the odd ones are still there
+				for (int i = 2; i <= 10; i += 2)	{
+					if (!testValue.equals(treeTest.removeAndGet(i)) || treeTest.contains(i))	{
+						System.err.println("The even numbers should have been removed from the Tree.");
+						error = true;
+					}
+				}
+				for (int i = 1; i < 10; i += 2)	{
+					if (!treeTest.contains(i) || treeTest.remove(i + 1))	{
+						System.err.println("Only the odd numbers should be left on the Tree.");
+						error = true;
+					}
+				}
+
+				// The iterator should hand back the odd numbers in order
+				int expected = 1;
+				for (int key : treeTest)	{
+					if (key != expected)	{
+						System.err.println("The iterator should return the keys in order.");
+						error = true;
+					}
+					expected += 2;
+				}
+
+				// Floor, ceiling and a range view over the odd numbers
+				if (treeTest.floorKey(4) != 3 || treeTest.ceilingKey(4) != 5 || treeTest.subMap(3, true, 7, false).size() != 2)	{
+					System.err.println("The navigation methods should find the neighbouring odd numbers.");
+					error = true;
+				}
+
 				//treeTest.print();
 		}
 	}
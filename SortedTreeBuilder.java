@@ -0,0 +1,84 @@
+package dns_resolver;
+
+import java.util.Arrays;
+
+import data_structures.RedBlackTree;
+
+/**
+ * A RecordSink that only collects the records and then builds a RedBlackTree of
+ * them in one go. build sorts the records and hands them to RedBlackTree.fromSorted,
+ * which links a balanced tree in O(n) with no rotations, so loading a whole file
+ * costs one sort instead of a search and a rebalance for every record.
+ * @author Milad Balkhinezhad
+ */
+public class SortedTreeBuilder implements RecordSink {
+
+	URL[] urls;
+	IPAddress[] ips;
+	int count;
+
+	public SortedTreeBuilder() {
+		this(1024);
+	}
+
+	/**
+	 * @param expected roughly how many records there will be
+	 */
+	public SortedTreeBuilder(int expected) {
+		urls = new URL[Math.max(expected, 16)];
+		ips = new IPAddress[urls.length];
+	}
+
+	private void ensureCapacity(int needed) {
+		if (needed > urls.length) {
+			int length = Math.max(needed, urls.length + (urls.length >> 1));
+			urls = Arrays.copyOf(urls, length);
+			ips = Arrays.copyOf(ips, length);
+		}
+	}
+
+	public void accept(URL url, IPAddress ip) {
+		ensureCapacity(count + 1);
+		urls[count] = url;
+		ips[count] = ip;
+		count++;
+	}
+
+	@Override
+	public void acceptAll(URL[] urls, IPAddress[] ips, int count) {
+		ensureCapacity(this.count + count);
+		System.arraycopy(urls, 0, this.urls, this.count, count);
+		System.arraycopy(ips, 0, this.ips, this.count, count);
+		this.count += count;
+	}
+
+	/**
+	 * The number of records collected so far, repeats included
+	 * @return the number of records
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Builds a tree of the records collected so far. When a URL was given more than
+	 * once the first address given for it is kept, as add does.
+	 * @return the new tree
+	 */
+	public RedBlackTree<URL, IPAddress> build() {
+		// stable, so the first of equal URLs stays first
+		int[] order = RedBlackTree.sortedOrder(urls, count);
+		int unique = 0;
+		URL[] sortedUrls = new URL[count];
+		IPAddress[] sortedIps = new IPAddress[count];
+		for (int i = 0; i < count; i++) {
+			URL url = urls[order[i]];
+			if (unique > 0 && sortedUrls[unique - 1].compareTo(url) == 0)
+				continue;
+			sortedUrls[unique] = url;
+			sortedIps[unique] = ips[order[i]];
+			unique++;
+		}
+		return RedBlackTree.fromSorted(Arrays.asList(sortedUrls).iterator(), Arrays.asList(sortedIps).iterator(), unique);
+	}
+}
@@ -1,28 +1,45 @@
 package timeDataStructures;
 
 import java.io.BufferedReader;
-import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.TreeMap;
+import java.util.function.BiConsumer;
 
 import data_structures.Hash;
 import data_structures.HashI;
-import data_structures.LinkedList;
 import data_structures.RedBlackTree;
 import dns_resolver.IPAddress;
 import dns_resolver.URL;
 import exceptions.FileFormatException;
 
 /**
- * A class to time my RedBlackTree and Hash versus the Java API RedBlackTree and Hash
+ * A quick smoke run of my RedBlackTree and Hash versus the Java API RedBlackTree and
+ * Hash on the edoras files: each is loaded and searched once, with no warm up, and
+ * every lookup is checked. The numbers to rely on come from the JMH benchmarks in
+ * the jmh module, which need no downloads:
+ * <ul>
+ * <li>DnsJmhBenchmark: Hash, OpenHash, RedBlackTree, HashMap and TreeMap</li>
+ * <li>DnsLoadBenchmark and DnsPipelineBenchmark: reading files and streams</li>
+ * <li>DnsAddressBenchmark: parsing addresses, CidrTrie, IntRedBlackTree and the
+ * reverse index of DnsResolver</li>
+ * <li>DnsNameBenchmark: URL against String keys, and HostnameTrie</li>
+ * <li>DnsTreeBenchmark: RedBlackTree, ArrayRedBlackTree and OffHeapRedBlackTree
+ * loads, heap, lookups and churn</li>
+ * <li>DnsBulkBenchmark: fromSorted and addAll</li>
+ * <li>DnsSnapshotBenchmark: MappedDnsSnapshot</li>
+ * <li>DnsConcurrentBenchmark: ConcurrentHash and ConcurrentRedBlackTree</li>
+ * <li>DnsResizeBenchmark: the latency of adds with incremental resize</li>
+ * <li>DnsCacheBenchmark: BoundedCache</li>
+ * </ul>
  * @author Milad Balkhinezhad
  */
 class TimeHashRBTree {
 	private static final String SMALL_FILE = "src/data/top-250k.ip";
 	private static final String LARGE_FILE = "src/data/top-1m.ip";
 	private static long start, stop;
+	private static long treeLoadTime;
 
 	public static void main(String[] args) {
 		try {
@@ -36,53 +53,56 @@ class TimeHashRBTree {
 	}
 	
 /**
- * Stores URLs and IPAddresses into my Hash and times how long it takes to sort from start to stop.
+ * Reads the file a line at a time, handing the host name and the address of each
+ * line to record
  * @param filename
- * @return hash
+ * @param record takes the host name and the address of a line
+ * @return the number of lines read
  * @throws FileFormatException
  */
-	public static HashI<URL, IPAddress> Hash(String filename) throws FileFormatException {
-		int size = 1000000;
-		Hash<URL, IPAddress> hash = new Hash<URL, IPAddress>(size);
+	private static int readRecords(String filename, BiConsumer<String, String> record) throws FileFormatException {
 		String line;
-		BufferedReader br = null;
-		try {
-			br = new BufferedReader(new FileReader(filename));
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
-		start = System.currentTimeMillis();
-		try {
+		int lines = 0;
+		try (BufferedReader br = new BufferedReader(new FileReader(filename))) {
 			while ((line = br.readLine()) != null) {
 				String[] value = line.split("\\s+");
 				if (value.length != 2) {
 					throw new FileFormatException("Incorrect Format");
 				}
-				URL url = new URL(value[0]);
-				IPAddress ip = new IPAddress(value[1]);
-				hash.add(url, ip);
+				record.accept(value[0], value[1]);
+				lines++;
 			}
-		} catch (IOException ioe) {
-			ioe.printStackTrace();
+		} catch (IOException e) {
+			e.printStackTrace();
 		}
+		return lines;
+	}
+
+/**
+ * Stores URLs and IPAddresses into my Hash and times how long it takes to sort from start to stop.
+ * @param filename
+ * @return hash
+ * @throws FileFormatException
+ */
+	public static HashI<URL, IPAddress> Hash(String filename) throws FileFormatException {
+		int size = 1000000;
+		Hash<URL, IPAddress> hash = new Hash<URL, IPAddress>(size);
+		start = System.currentTimeMillis();
+		readRecords(filename, (name, address) -> {
+			URL url = new URL(name);
+			IPAddress ip = IPAddress.valueOf(address);
+			hash.add(url, ip);
+		});
 		stop = System.currentTimeMillis();
 		System.out.println("Hash Load Time is " + (stop - start));
 
 		start = System.currentTimeMillis();
-		try {
-			while ((line = br.readLine()) != null) {
-				String[] value = line.split("\\s+");
-				if (value.length != 2) {
-					throw new FileFormatException("Incorrect Format");
-				}
-				URL url = new URL(value[0]);
-				if (!hash.contains(url)) {
-					System.out.println("Hash contains error");
-				}
+		readRecords(filename, (name, address) -> {
+			URL url = new URL(name);
+			if (!hash.contains(url)) {
+				System.out.println("Hash contains error");
 			}
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		});
 		stop = System.currentTimeMillis();
 		System.out.println("Hash Search Time is " + (stop - start));
 		return hash;
@@ -96,40 +116,23 @@ class TimeHashRBTree {
  */
 	public static HashMap<URL, IPAddress> JavaHash(String filename) throws FileFormatException {
 		int size = 1000000;
-		String line;
 
 		HashMap<URL, IPAddress> hashTable = new HashMap<URL, IPAddress>(size);
 		start = System.currentTimeMillis();
-		try {
-			BufferedReader br = new BufferedReader(new FileReader(filename));
-			while ((line = br.readLine()) != null) {
-				String[] value = line.split("\\s+");
-				if (value.length != 2) {
-					throw new FileFormatException("Incorrect Format");
-				}
-				URL url = new URL(value[0]);
-				IPAddress ip = new IPAddress(value[1]);
-				hashTable.put(url, ip);
-			}
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		readRecords(filename, (name, address) -> {
+			URL url = new URL(name);
+			IPAddress ip = IPAddress.valueOf(address);
+			hashTable.put(url, ip);
+		});
 		stop = System.currentTimeMillis();
 		System.out.println("Java Hash Load Time is " + (stop - start));
 
 		start = System.currentTimeMillis();
-		try {
-			BufferedReader br = new BufferedReader(new FileReader(filename));
-			while ((line = br.readLine()) != null) {
-				String[] value = line.split("\\s+");
-				if (value.length != 2) {
-					throw new FileFormatException("Incorrect Format");
-				}
-				URL url = new URL(value[0]);
-			}
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		readRecords(filename, (name, address) -> {
+			URL url = new URL(name);
+			if (!hashTable.containsKey(url))
+				System.out.println("Java Hash contains error");
+		});
 		stop = System.currentTimeMillis();
 		System.out.println("Java Hash Search Time is " + (stop - start));
 		return hashTable;
@@ -142,44 +145,26 @@ class TimeHashRBTree {
  * @throws FileFormatException
  */
 	public static RedBlackTree<URL, IPAddress> RBTree(String filename) throws FileFormatException {
-		String line;
-
 		RedBlackTree<URL, IPAddress> redBlackTree = new RedBlackTree<URL, IPAddress>();
 		start = System.currentTimeMillis();
-		try {
-			BufferedReader br = new BufferedReader(new FileReader(filename));
-			while ((line = br.readLine()) != null) {
-				String[] value = line.split("\\s+");
-				if (value.length != 2) {
-					throw new FileFormatException("Incorrect Format");
-				}
-				URL url = new URL(value[0]);
-				IPAddress ip = new IPAddress(value[1]);
-				redBlackTree.add(url, ip);
-			}
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		int lines = readRecords(filename, (name, address) -> {
+			URL url = new URL(name);
+			IPAddress ip = IPAddress.valueOf(address);
+			redBlackTree.add(url, ip);
+		});
 		stop = System.currentTimeMillis();
-		System.out.println("Java Tree Load Time is " + (stop - start));
+		int duplicates = lines - redBlackTree.size();
+		treeLoadTime = stop - start;
+		System.out.println("My Tree Load Time is " + treeLoadTime + " (" + duplicates + " duplicates skipped, height " + redBlackTree.height() + ")");
 
 		start = System.currentTimeMillis();
-		try {
-			BufferedReader br = new BufferedReader(new FileReader(filename));
-			while ((line = br.readLine()) != null) {
-				String[] value = line.split("\\s+");
-				if (value.length != 2) {
-					throw new FileFormatException("Incorrect Format");
-				}
-				URL url = new URL(value[0]);
-				if (!redBlackTree.contains(url))
-					System.out.println("Red Black Tree contains an error");
-			}
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		readRecords(filename, (name, address) -> {
+			URL url = new URL(name);
+			if (!redBlackTree.contains(url))
+				System.out.println("Red Black Tree contains an error");
+		});
 		stop = System.currentTimeMillis();
-		System.out.println("Java Tree Load Time is " + (stop - start));
+		System.out.println("My Tree Search Time is " + (stop - start));
 		return redBlackTree;
 	}
 	
@@ -190,42 +175,26 @@ class TimeHashRBTree {
  * @throws FileFormatException
  */
 	public static TreeMap<URL, IPAddress> JavaRBTree(String filename) throws FileFormatException {
-		String line;
-
 		TreeMap<URL, IPAddress> redBlackTree = new TreeMap<URL, IPAddress>();
 		start = System.currentTimeMillis();
-		try {
-			BufferedReader br = new BufferedReader(new FileReader(filename));
-			while ((line = br.readLine()) != null) {
-				String[] value = line.split("\\s+");
-				if (value.length != 2) {
-					throw new FileFormatException("Incorrect Format");
-				}
-				URL url = new URL(value[0]);
-				IPAddress ip = new IPAddress(value[1]);
-				redBlackTree.put(url, ip);
-			}
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		readRecords(filename, (name, address) -> {
+			URL url = new URL(name);
+			IPAddress ip = IPAddress.valueOf(address);
+			redBlackTree.put(url, ip);
+		});
 		stop = System.currentTimeMillis();
-		System.out.println("My Tree Load Time is " + (stop - start));
+		System.out.println("Java Tree Load Time is " + (stop - start));
+		if (treeLoadTime > 0)
+			System.out.println("My Tree / Java Tree load time ratio is " + ((double) treeLoadTime / Math.max(1, stop - start)));
 
 		start = System.currentTimeMillis();
-		try {
-			BufferedReader br = new BufferedReader(new FileReader(filename));
-			while ((line = br.readLine()) != null) {
-				String[] value = line.split("\\s+");
-				if (value.length != 2) {
-					throw new FileFormatException("Incorrect Format");
-				}
-				URL url = new URL(value[0]);
-			}
-		} catch (IOException e) {
-			e.printStackTrace();
-		}
+		readRecords(filename, (name, address) -> {
+			URL url = new URL(name);
+			if (!redBlackTree.containsKey(url))
+				System.out.println("Java Tree contains error");
+		});
 		stop = System.currentTimeMillis();
-		System.out.println("My Tree Load Time is " + (stop - start));
+		System.out.println("Java Tree Search Time is " + (stop - start));
 		return redBlackTree;
 	}
 }
@@ -1,33 +1,166 @@
 package dns_resolver;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import data_structures.ConcurrentHash;
+
 /**
- * A URL Object that just knows how to compare URLs
+ * A URL Object that just knows how to compare URLs. The host name is kept as its
+ * UTF-8 bytes, one byte per character for the ASCII names DNS uses, and the hash is
+ * worked out once and kept. The first eight bytes are also kept packed in a long, so
+ * most comparisons are decided by one unsigned long compare; only URLs that share
+ * their first eight bytes go on to Arrays.compareUnsigned, which the JVM runs over
+ * many bytes at a time. Both give the same order as comparing the characters of
+ * ASCII names.
  * @author redwards
  *
  */
 public class URL implements Comparable<URL> {
 
-		String address;
-		
+		final byte[] bytes;
+		// the first eight bytes, high byte first, zero filled
+		final long prefix;
+		// 0 until hashCode() is first called
+		int hash;
+
 		public URL (String URL) {
-			address = URL;
+			this(URL.getBytes(StandardCharsets.UTF_8));
+		}
+
+		/**
+		 * Makes a URL from length bytes of UTF-8, for example straight from an input buffer
+		 * @param bytes the bytes to copy
+		 * @param offset the first byte of the URL
+		 * @param length the number of bytes in the URL
+		 */
+		public URL (byte[] bytes, int offset, int length) {
+			this(Arrays.copyOfRange(bytes, offset, offset + length));
+		}
+
+		/**
+		 * Takes over the given array, which must not be changed afterwards
+		 */
+		URL (byte[] bytes) {
+			this.bytes = bytes;
+			long p = 0;
+			for (int i = 0; i < 8; i++)
+				p = (p << 8) | (i < bytes.length ? bytes[i] & 0xFF : 0);
+			prefix = p;
+		}
+
+		/**
+		 * The number of bytes in the URL
+		 * @return the length in bytes
+		 */
+		public int length() {
+			return bytes.length;
 		}
-		
+
 		public String toString() {
-			return address.toString();
+			return new String(bytes, StandardCharsets.UTF_8);
 		}
 		public int hashCode() {
-			return address.hashCode();
+			int h = hash;
+			if (h == 0) {
+				for (byte b : bytes)
+					h = 31 * h + (b & 0xFF);
+				hash = h;
+			}
+			return h;
 		}
-		public boolean equals(URL o) {
-			if (address.compareTo(o.address) == 0) {
+		public boolean equals(Object o) {
+			if (this == o)
 				return true;
-			}
-			return false;
+			if (!(o instanceof URL))
+				return false;
+			URL other = (URL) o;
+			if (prefix != other.prefix || (hash != 0 && other.hash != 0 && hash != other.hash))
+				return false;
+			return Arrays.equals(bytes, other.bytes);
 		}
 		public int compareTo(URL obj) {
-			return address.compareTo(obj.address);
+			if (prefix != obj.prefix)
+				return Long.compareUnsigned(prefix, obj.prefix);
+			return Arrays.compareUnsigned(bytes, obj.bytes);
+		}
+
+		/**
+		 * Compares this URL with length bytes stored in a buffer, in the order of compareTo
+		 * @param buffer the buffer holding the other URL
+		 * @param offset the first byte of the other URL
+		 * @param length the number of bytes in the other URL
+		 * @return a negative number, zero or a positive number as this URL is smaller, equal or larger
+		 */
+		int compareTo(ByteBuffer buffer, int offset, int length) {
+			int common = Math.min(length, bytes.length);
+			for (int i = 0; i < common; i++) {
+				int diff = (bytes[i] & 0xFF) - (buffer.get(offset + i) & 0xFF);
+				if (diff != 0)
+					return diff;
+			}
+			return bytes.length - length;
 		}
-		
-	}
 
+		/**
+		 * Reads length bytes from a buffer as a URL
+		 */
+		static URL read(ByteBuffer buffer, int offset, int length) {
+			byte[] bytes = new byte[length];
+			buffer.get(offset, bytes);
+			return new URL(bytes);
+		}
+
+		/**
+		 * A set of shared URLs, so that a host name read many times is only kept once.
+		 * Interning is opt in: a table that wants it makes its own pool and interns the
+		 * URLs it keeps, and the pool goes when the table does, or is emptied with
+		 * clear. Nothing is pooled for the whole JVM, so a resolver that reads host
+		 * names from traffic does not grow a pool that is never emptied.
+		 */
+		public static final class Pool {
+			private final ConcurrentHash<URL, URL> urls;
+
+			public Pool() {
+				this(1024);
+			}
+
+			/**
+			 * @param size roughly how many URLs the pool will hold
+			 */
+			public Pool(int size) {
+				urls = new ConcurrentHash<URL, URL>(size);
+			}
+
+			/**
+			 * A URL equal to the given one that is shared by every caller of intern on
+			 * this pool. The first URL interned for a host name is the one kept.
+			 * @param url the URL to look up
+			 * @return the shared URL
+			 */
+			public URL intern(URL url) {
+				URL shared = urls.getValue(url);
+				if (shared != null)
+					return shared;
+				if (urls.add(url, url))
+					return url;
+				return urls.getValue(url);
+			}
+
+			/**
+			 * @return the number of URLs in the pool
+			 */
+			public int size() {
+				return urls.size();
+			}
+
+			/**
+			 * Empties the pool. URLs already handed out stay valid.
+			 */
+			public void clear() {
+				urls.makeEmpty();
+			}
+		}
+
+	}
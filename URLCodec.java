@@ -0,0 +1,44 @@
+package dns_resolver;
+
+import java.nio.ByteBuffer;
+
+import data_structures.FixedWidthCodec;
+
+/**
+ * Stores a URL off the heap as a length byte followed by up to maxLength
+ * bytes of the URL. The stored bytes are the URL's own, so comparing them gives
+ * the same order as URL.compareTo.
+ * @author Milad Balkhinezhad
+ */
+public class URLCodec implements FixedWidthCodec<URL> {
+
+	int maxLength;
+
+	/**
+	 * @param maxLength the longest URL, in bytes, that can be stored, at most 255
+	 */
+	public URLCodec(int maxLength) {
+		if (maxLength < 1 || maxLength > 255)
+			throw new IllegalArgumentException("maxLength must be between 1 and 255");
+		this.maxLength = maxLength;
+	}
+
+	public int width() {
+		return maxLength + 1;
+	}
+
+	public void write(ByteBuffer buffer, int offset, URL url) {
+		if (url.bytes.length > maxLength)
+			throw new IllegalArgumentException("URL longer than " + maxLength + " bytes: " + url);
+		buffer.put(offset, (byte) url.bytes.length);
+		buffer.put(offset + 1, url.bytes);
+	}
+
+	public URL read(ByteBuffer buffer, int offset) {
+		return URL.read(buffer, offset + 1, buffer.get(offset) & 0xFF);
+	}
+
+	public int compare(URL url, ByteBuffer buffer, int offset) {
+		return url.compareTo(buffer, offset + 1, buffer.get(offset) & 0xFF);
+	}
+}
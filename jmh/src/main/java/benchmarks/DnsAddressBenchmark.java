@@ -0,0 +1,176 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import data_structures.IntRedBlackTree;
+import data_structures.OpenHash;
+import data_structures.RedBlackTree;
+import dns_resolver.CidrTrie;
+import dns_resolver.DnsResolver;
+import dns_resolver.IPAddress;
+import dns_resolver.URL;
+
+/**
+ * JMH benchmarks of the work done on addresses, over the addresses of the DnsJmhData
+ * pairs, one address per operation unless it says otherwise.
+ * <ul>
+ * <li>splitParse and parse: a dotted address String to an int, the way IPAddress used
+ * to with String.split and four Integer.parseInt calls, and with IPAddress.parse</li>
+ * <li>cidrTrie and cidrFloor: the block of CIDR_BLOCKS random blocks that do not
+ * overlap holding an address, with my CidrTrie, and with a floor search in my
+ * RedBlackTree keyed by the first address of each block</li>
+ * <li>boxedTree and intTree: the URL for a packed address in my RedBlackTree with
+ * Integer keys, and in my IntRedBlackTree</li>
+ * <li>reverseIndex and forwardScan: every URL on an address, with the reverse index
+ * of a DnsResolver, and by scanning its whole forward table, time per scan</li>
+ * </ul>
+ * The Strings, URLs and IPAddresses are all made in the trial setup. Add
+ * <code>-prof gc</code>, or run main here, to see the bytes allocated per address,
+ * which is what splitParse and boxedTree pay for.
+ * @author Milad Balkhinezhad
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+@State(Scope.Benchmark)
+public class DnsAddressBenchmark {
+
+	static final int CIDR_BLOCKS = 50000;
+
+	@Param({ "100000", "1000000" })
+	public int size;
+
+	DnsJmhData data;
+	// the addresses of data as dotted Strings and as packed ints
+	String[] dotted;
+	int[] packed;
+	CidrTrie<Integer> trie;
+	// block start -> owner << 6 | prefix length
+	RedBlackTree<IPAddress, Integer> blocks;
+	RedBlackTree<Integer, URL> boxedTree;
+	IntRedBlackTree<URL> intTree;
+	OpenHash<URL, IPAddress> forward;
+	DnsResolver resolver;
+	int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		data = new DnsJmhData(size, 42);
+		dotted = new String[size];
+		packed = new int[size];
+		boxedTree = new RedBlackTree<Integer, URL>();
+		intTree = new IntRedBlackTree<URL>();
+		forward = new OpenHash<URL, IPAddress>(16);
+		resolver = new DnsResolver(forward);
+		for (int i = 0; i < size; i++) {
+			int ip = data.ips[i].toInt();
+			packed[i] = ip;
+			dotted[i] = (ip >>> 24) + "." + ((ip >>> 16) & 0xFF) + "." + ((ip >>> 8) & 0xFF) + "." + (ip & 0xFF);
+			boxedTree.add(ip, data.urls[i]);
+			intTree.add(ip, data.urls[i]);
+			resolver.add(data.urls[i], data.ips[i]);
+		}
+
+		Random random = new Random(17);
+		trie = new CidrTrie<Integer>();
+		blocks = new RedBlackTree<IPAddress, Integer>();
+		while (trie.size() < CIDR_BLOCKS) {
+			int length = 12 + random.nextInt(13);
+			IPAddress start = IPAddress.valueOf(random.nextInt() & (-1 << (32 - length)));
+			if (trie.longestPrefixMatch(start) != null || trie.range(start, length).hasNext())
+				continue;
+			trie.insert(start, length, trie.size());
+			blocks.add(start, (blocks.size() << 6) | length);
+		}
+	}
+
+	private int next() {
+		int i = next;
+		if (++next == size)
+			next = 0;
+		return i;
+	}
+
+	@Benchmark
+	public int splitParse() {
+		String[] octets = dotted[next()].split("\\.");
+		return (Integer.parseInt(octets[0]) << 24) | (Integer.parseInt(octets[1]) << 16) | (Integer.parseInt(octets[2]) << 8)
+				| Integer.parseInt(octets[3]);
+	}
+
+	@Benchmark
+	public int parse() {
+		String address = dotted[next()];
+		return IPAddress.parse(address, 0, address.length());
+	}
+
+	@Benchmark
+	public Integer cidrTrie() {
+		return trie.longestPrefixMatch(data.ips[next()]);
+	}
+
+	@Benchmark
+	public boolean cidrFloor() {
+		IPAddress ip = data.ips[next()];
+		IPAddress block = blocks.floorKey(ip);
+		if (block == null)
+			return false;
+		int length = blocks.getValue(block) & 63;
+		return ((block.toInt() ^ ip.toInt()) & (-1 << (32 - length))) == 0;
+	}
+
+	@Benchmark
+	public URL boxedTree() {
+		return boxedTree.getValue(packed[next()]);
+	}
+
+	@Benchmark
+	public URL intTree() {
+		return intTree.getValue(packed[next()]);
+	}
+
+	@Benchmark
+	public URL[] reverseIndex() {
+		return resolver.hostsOf(data.ips[next()]);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public int forwardScan() {
+		IPAddress ip = data.ips[next()];
+		int hosts = 0;
+		for (URL url : forward)
+			if (forward.getValue(url).equals(ip))
+				hosts++;
+		return hosts;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(DnsAddressBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
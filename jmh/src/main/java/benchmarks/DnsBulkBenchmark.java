@@ -0,0 +1,139 @@
+package benchmarks;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import data_structures.RedBlackTree;
+import dns_resolver.IPAddress;
+import dns_resolver.URL;
+
+/**
+ * JMH benchmarks of loading my RedBlackTree in bulk from the DnsJmhData pairs, time
+ * per whole load.
+ * <ul>
+ * <li>sort: puts the URLs in order with RedBlackTree.sortedOrder, the price of
+ * using the bulk loads on data that is not sorted already</li>
+ * <li>fromSorted and sortedAdd: builds the tree from the sorted pairs bottom up, and
+ * by adding them one at a time in order</li>
+ * <li>mergeAddAll and mergeAdd: adds every other sorted pair to a tree that holds
+ * the rest, with addAll, and one at a time. The tree is built again before every
+ * call, outside the timing.</li>
+ * </ul>
+ * Add <code>-prof gc</code> on the command line, or run main here.
+ * @author Milad Balkhinezhad
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+@State(Scope.Benchmark)
+public class DnsBulkBenchmark {
+
+	@Param({ "100000", "1000000" })
+	public int size;
+
+	DnsJmhData data;
+	URL[] sortedUrls;
+	IPAddress[] sortedIps;
+	// the even and odd positions of the sorted pairs
+	URL[] baseUrls, batchUrls;
+	IPAddress[] baseIps, batchIps;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		data = new DnsJmhData(size, 42);
+		int[] order = sort();
+		sortedUrls = new URL[size];
+		sortedIps = new IPAddress[size];
+		for (int i = 0; i < size; i++) {
+			sortedUrls[i] = data.urls[order[i]];
+			sortedIps[i] = data.ips[order[i]];
+		}
+		int half = (size + 1) / 2;
+		baseUrls = new URL[half];
+		baseIps = new IPAddress[half];
+		batchUrls = new URL[size - half];
+		batchIps = new IPAddress[size - half];
+		for (int i = 0; i < size; i++) {
+			if (i % 2 == 0) {
+				baseUrls[i / 2] = sortedUrls[i];
+				baseIps[i / 2] = sortedIps[i];
+			} else {
+				batchUrls[i / 2] = sortedUrls[i];
+				batchIps[i / 2] = sortedIps[i];
+			}
+		}
+	}
+
+	/**
+	 * A tree of the even sorted pairs, new for every call of the merge benchmarks
+	 */
+	@State(Scope.Thread)
+	public static class Base {
+		RedBlackTree<URL, IPAddress> tree;
+
+		@Setup(Level.Invocation)
+		public void build(DnsBulkBenchmark bench) {
+			tree = RedBlackTree.fromSorted(Arrays.asList(bench.baseUrls).iterator(), Arrays.asList(bench.baseIps).iterator(),
+					bench.baseUrls.length);
+		}
+	}
+
+	@Benchmark
+	public int[] sort() {
+		return RedBlackTree.sortedOrder(data.urls, size);
+	}
+
+	@Benchmark
+	public RedBlackTree<URL, IPAddress> fromSorted() {
+		return RedBlackTree.fromSorted(Arrays.asList(sortedUrls).iterator(), Arrays.asList(sortedIps).iterator(), size);
+	}
+
+	@Benchmark
+	public RedBlackTree<URL, IPAddress> sortedAdd() {
+		RedBlackTree<URL, IPAddress> tree = new RedBlackTree<URL, IPAddress>();
+		for (int i = 0; i < size; i++)
+			tree.add(sortedUrls[i], sortedIps[i]);
+		return tree;
+	}
+
+	@Benchmark
+	public int mergeAddAll(Base base) {
+		return base.tree.addAll(Arrays.asList(batchUrls).iterator(), Arrays.asList(batchIps).iterator(), batchUrls.length);
+	}
+
+	@Benchmark
+	public int mergeAdd(Base base) {
+		RedBlackTree<URL, IPAddress> tree = base.tree;
+		for (int i = 0; i < batchUrls.length; i++)
+			tree.add(batchUrls[i], batchIps[i]);
+		return tree.size();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(DnsBulkBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
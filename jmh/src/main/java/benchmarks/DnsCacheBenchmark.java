@@ -0,0 +1,132 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import data_structures.BoundedCache;
+import data_structures.Hash;
+import dns_resolver.IPAddress;
+import dns_resolver.URL;
+
+/**
+ * A JMH benchmark of a BoundedCache in front of my Hash, the way a resolver would
+ * use it: a lookup that misses the cache is filled from the Hash. The lookups are a
+ * skewed stream over the DnsJmhData URLs, a few asked for far more often than the
+ * rest, with every third lookup a URL that is only asked for once, and the cache
+ * holds 5% of the URLs, either as an entry count or as a byte budget.
+ * <p>
+ * The score is lookups per microsecond. The hit and miss counters are lookups per
+ * microsecond too, so the hit rate is hit / (hit + miss). The cache is kept from
+ * one iteration to the next, so the warm up iterations fill it.
+ * @author Milad Balkhinezhad
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+@State(Scope.Benchmark)
+public class DnsCacheBenchmark {
+
+	static final String ENTRIES = "entries";
+	static final String BYTES = "bytes";
+	// the weight of an entry apart from its host name, for the byte budget
+	private static final int ENTRY_BYTES = 40;
+
+	@Param({ "LRU", "W_TINY_LFU" })
+	public BoundedCache.Policy policy;
+
+	@Param({ ENTRIES, BYTES })
+	public String budget;
+
+	@Param({ "1000000" })
+	public int size;
+
+	Hash<URL, IPAddress> hash;
+	BoundedCache<URL, IPAddress> cache;
+	// the lookups, replayed from the start when they run out
+	URL[] stream;
+	int next;
+	final IPAddress none = IPAddress.valueOf(0);
+
+	/**
+	 * The hits and misses of an iteration
+	 */
+	@AuxCounters(AuxCounters.Type.OPERATIONS)
+	@State(Scope.Thread)
+	public static class Hits {
+		public long hit;
+		public long miss;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			hit = 0;
+			miss = 0;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		DnsJmhData data = new DnsJmhData(size, 42);
+		hash = new Hash<URL, IPAddress>(16);
+		for (int i = 0; i < size; i++)
+			hash.add(data.urls[i], data.ips[i]);
+		Random random = new Random(5);
+		stream = new URL[2 * size];
+		for (int i = 0; i < stream.length; i++) {
+			if (i % 3 == 0)
+				stream[i] = new URL("once" + i + ".example.com");
+			else
+				stream[i] = data.hits[(int) (Math.pow(random.nextDouble(), 4) * size)];
+		}
+		int entries = size / 20;
+		if (budget.equals(ENTRIES))
+			cache = new BoundedCache<URL, IPAddress>(entries, policy);
+		else
+			cache = new BoundedCache<URL, IPAddress>((long) entries * (ENTRY_BYTES + 20), (url, ip) -> url.length() + ENTRY_BYTES,
+					policy, null, System::nanoTime);
+	}
+
+	@Benchmark
+	public IPAddress lookup(Hits hits) {
+		URL url = stream[next];
+		if (++next == stream.length)
+			next = 0;
+		IPAddress ip = cache.get(url);
+		if (ip != null) {
+			hits.hit++;
+			return ip;
+		}
+		hits.miss++;
+		ip = hash.getValue(url);
+		if (ip == null)
+			ip = none;
+		cache.put(url, ip);
+		return ip;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(DnsCacheBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,174 @@
+package benchmarks;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import data_structures.ConcurrentHash;
+import data_structures.ConcurrentRedBlackTree;
+import data_structures.Hash;
+import data_structures.RedBlackI;
+import data_structures.RedBlackTree;
+import dns_resolver.IPAddress;
+import dns_resolver.URL;
+
+/**
+ * JMH benchmarks of my tables shared between threads, against the same table behind
+ * one global lock, on the DnsJmhData pairs. The score is operations per microsecond
+ * summed over all the threads.
+ * <ul>
+ * <li>lockedHash and concurrentHash: lookups of keys that are in the table, in my
+ * Hash holding its monitor for every lookup, and in my ConcurrentHash. Each thread
+ * starts at its own place in the keys.</li>
+ * <li>lockedTree and concurrentTree: readPercent lookups in a hundred, the rest
+ * updates, in my RedBlackTree holding its monitor for every operation, and in my
+ * ConcurrentRedBlackTree. The tree starts with nine tenths of the pairs, and every
+ * update adds or removes one of the last tenth.</li>
+ * </ul>
+ * Every processor gets a thread. Give <code>-t 1</code>, <code>-t 2</code> and so
+ * on to see how each scales, and <code>-prof gc</code> for the allocation, or run
+ * main here.
+ * @author Milad Balkhinezhad
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+@Threads(Threads.MAX)
+@State(Scope.Benchmark)
+public class DnsConcurrentBenchmark {
+
+	@Param({ "1000000" })
+	public int size;
+
+	DnsJmhData data;
+	Hash<URL, IPAddress> hash;
+	ConcurrentHash<URL, IPAddress> concurrentHash;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		data = new DnsJmhData(size, 42);
+		hash = new Hash<URL, IPAddress>(size);
+		concurrentHash = new ConcurrentHash<URL, IPAddress>(size);
+		for (int i = 0; i < size; i++) {
+			hash.add(data.urls[i], data.ips[i]);
+			concurrentHash.add(data.urls[i], data.ips[i]);
+		}
+	}
+
+	/**
+	 * The trees of the mixes, kept apart so that readPercent only multiplies the
+	 * tree benchmarks
+	 */
+	@State(Scope.Benchmark)
+	public static class Trees {
+		@Param({ "99", "90", "50" })
+		public int readPercent;
+
+		RedBlackTree<URL, IPAddress> tree;
+		ConcurrentRedBlackTree<URL, IPAddress> concurrentTree;
+		// the pairs below loaded are looked up, the rest are updated
+		int loaded;
+
+		@Setup(Level.Trial)
+		public void setUp(DnsConcurrentBenchmark bench) {
+			DnsJmhData data = bench.data;
+			loaded = bench.size - bench.size / 10;
+			tree = new RedBlackTree<URL, IPAddress>();
+			concurrentTree = new ConcurrentRedBlackTree<URL, IPAddress>();
+			for (int i = 0; i < loaded; i++) {
+				tree.add(data.urls[i], data.ips[i]);
+				concurrentTree.add(data.urls[i], data.ips[i]);
+			}
+		}
+	}
+
+	/**
+	 * A thread's place in the keys
+	 */
+	@State(Scope.Thread)
+	public static class Cursor {
+		int next;
+		int size;
+
+		@Setup(Level.Trial)
+		public void setUp(DnsConcurrentBenchmark bench, ThreadParams thread) {
+			size = bench.size;
+			next = (int) ((long) size * thread.getThreadIndex() / thread.getThreadCount());
+		}
+
+		int next() {
+			int i = next;
+			if (++next == size)
+				next = 0;
+			return i;
+		}
+	}
+
+	@Benchmark
+	public IPAddress lockedHash(Cursor cursor) {
+		URL url = data.hits[cursor.next()];
+		synchronized (hash) {
+			return hash.getValue(url);
+		}
+	}
+
+	@Benchmark
+	public IPAddress concurrentHash(Cursor cursor) {
+		return concurrentHash.getValue(data.hits[cursor.next()]);
+	}
+
+	@Benchmark
+	public IPAddress lockedTree(Trees trees) {
+		RedBlackTree<URL, IPAddress> tree = trees.tree;
+		synchronized (tree) {
+			return mix(tree, trees);
+		}
+	}
+
+	@Benchmark
+	public IPAddress concurrentTree(Trees trees) {
+		return mix(trees.concurrentTree, trees);
+	}
+
+	/**
+	 * One lookup of a loaded pair, or one update of a pair past them
+	 */
+	private IPAddress mix(RedBlackI<URL, IPAddress> tree, Trees trees) {
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		if (random.nextInt(100) < trees.readPercent)
+			return tree.getValue(data.urls[random.nextInt(trees.loaded)]);
+		int j = trees.loaded + random.nextInt(size - trees.loaded);
+		if (!tree.remove(data.urls[j]))
+			tree.add(data.urls[j], data.ips[j]);
+		return null;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(DnsConcurrentBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
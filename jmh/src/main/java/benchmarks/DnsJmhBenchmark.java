@@ -0,0 +1,176 @@
+package benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import dns_resolver.IPAddress;
+import dns_resolver.URL;
+
+/**
+ * JMH benchmarks of Hash, OpenHash and RedBlackTree against HashMap and TreeMap,
+ * on the made up data of DnsJmhData so they need no downloads. Every benchmark runs
+ * for each implementation and each size. The URLs and IPAddresses are all made in the
+ * trial setup, so only the table work is measured.
+ * <ul>
+ * <li>load: builds a table of size pairs from empty, time per whole table</li>
+ * <li>hit: one lookup of a key that is in the table</li>
+ * <li>miss: one lookup of a key that is not</li>
+ * <li>hitBatch: lookups of keys that are in the table, BATCH at a time with getAll,
+ * scored per key so it compares with hit</li>
+ * <li>iterate: walks every key, time per whole table</li>
+ * <li>mixed: nine lookups in ten, the rest add or remove keys beyond the loaded ones</li>
+ * </ul>
+ * Run it with the JMH runner, or with main here, which adds the GC profiler. On the
+ * command line add <code>-prof gc</code> to get the bytes allocated per operation
+ * and the GC counts and times next to each score, for example
+ * <pre>
+ * java -jar target/benchmarks.jar DnsJmhBenchmark -p size=100000 -prof gc
+ * </pre>
+ * @author Milad Balkhinezhad
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+@State(Scope.Benchmark)
+public class DnsJmhBenchmark {
+
+	// one write every WRITE_EVERY operations of mixed, on average
+	private static final int WRITE_EVERY = 10;
+	// the keys per getAll in hitBatch
+	static final int BATCH = 256;
+	// the length of the repeating pattern of reads and writes, a power of two
+	private static final int PATTERN = 1024;
+
+	@Param({ DnsJmhTable.HASH, DnsJmhTable.OPEN_HASH, DnsJmhTable.RED_BLACK_TREE, DnsJmhTable.HASH_MAP, DnsJmhTable.TREE_MAP })
+	public String impl;
+
+	@Param({ "10000", "100000", "1000000" })
+	public int size;
+
+	DnsJmhData data;
+	DnsJmhTable table;
+	// the next key to use in hit, hitBatch, miss and mixed
+	int next;
+	// which operations of mixed are writes
+	boolean[] writes;
+	// the next extra key mixed writes, and whether each extra key is in the table
+	int nextWrite;
+	boolean[] added;
+	URL[] batchKeys = new URL[BATCH];
+	IPAddress[] batchOut = new IPAddress[BATCH];
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		data = new DnsJmhData(size, 42);
+		Random random = new Random(7);
+		writes = new boolean[PATTERN];
+		for (int i = 0; i < PATTERN; i++)
+			writes[i] = random.nextInt(WRITE_EVERY) == 0;
+	}
+
+	/**
+	 * A full table before every iteration, since mixed changes it
+	 */
+	@Setup(Level.Iteration)
+	public void fill() {
+		table = load(impl, data);
+		added = new boolean[size];
+		next = 0;
+		nextWrite = 0;
+	}
+
+	private static DnsJmhTable load(String impl, DnsJmhData data) {
+		DnsJmhTable table = DnsJmhTable.create(impl);
+		URL[] urls = data.urls;
+		IPAddress[] ips = data.ips;
+		for (int i = 0; i < urls.length; i++)
+			table.add(urls[i], ips[i]);
+		return table;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public DnsJmhTable load() {
+		return load(impl, data);
+	}
+
+	@Benchmark
+	public IPAddress hit() {
+		URL url = data.hits[next];
+		if (++next == size)
+			next = 0;
+		return table.get(url);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BATCH)
+	public int hitBatch() {
+		int from = next;
+		next = from + 2 * BATCH > size ? 0 : from + BATCH;
+		System.arraycopy(data.hits, from, batchKeys, 0, BATCH);
+		return table.getAll(batchKeys, batchOut);
+	}
+
+	@Benchmark
+	public IPAddress miss() {
+		URL url = data.misses[next];
+		if (++next == size)
+			next = 0;
+		return table.get(url);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public void iterate(Blackhole blackhole) {
+		table.iterate(blackhole);
+	}
+
+	@Benchmark
+	public IPAddress mixed() {
+		int op = next;
+		if (++next == size)
+			next = 0;
+		if (!writes[op & (PATTERN - 1)])
+			return table.get(data.hits[op]);
+		// the extra keys are the misses, each one added then removed in turn
+		int key = nextWrite;
+		if (++nextWrite == size)
+			nextWrite = 0;
+		if (added[key])
+			table.remove(data.misses[key]);
+		else
+			table.add(data.misses[key], data.ips[key]);
+		added[key] = !added[key];
+		return null;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(DnsJmhBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
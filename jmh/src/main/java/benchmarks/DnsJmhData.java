@@ -0,0 +1,112 @@
+package benchmarks;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Random;
+
+import dns_resolver.IPAddress;
+import dns_resolver.URL;
+
+/**
+ * Made up URL and IPAddress pairs for the JMH benchmarks, so they run at any size
+ * without the edoras files. The names look like the real ones, a word and a number
+ * under a second level name and a top level domain, so they share prefixes the way
+ * real host names do. Everything is made from the seed, so every fork and every
+ * implementation sees the same data.
+ * @author Milad Balkhinezhad
+ */
+final class DnsJmhData {
+
+	private static final String[] WORDS = { "alpha", "bravo", "charlie", "delta", "echo", "foxtrot", "golf", "hotel",
+			"india", "juliet", "kilo", "lima", "mail", "www", "api", "cdn", "static", "login" };
+	private static final String[] ZONES = { "example", "shop", "cloud", "news", "bank", "media", "games", "mail" };
+	private static final String[] TLDS = { "com", "net", "org", "io", "edu", "gov", "co.uk", "de" };
+
+	// the pairs that are loaded, in load order
+	final URL[] urls;
+	final IPAddress[] ips;
+	// equal copies of urls in a shuffled order, so hits are not found by identity
+	final URL[] hits;
+	// names that are never loaded
+	final URL[] misses;
+
+	/**
+	 * @param size the number of pairs to make
+	 * @param seed the seed for the names, addresses and orders
+	 */
+	DnsJmhData(int size, long seed) {
+		Random random = new Random(seed);
+		HashSet<String> seen = new HashSet<String>(size * 2);
+		urls = new URL[size];
+		ips = new IPAddress[size];
+		hits = new URL[size];
+		misses = new URL[size];
+		String[] names = new String[size];
+		for (int i = 0; i < size; i++) {
+			String name;
+			do
+				name = name(random);
+			while (!seen.add(name));
+			names[i] = name;
+			urls[i] = new URL(name);
+			ips[i] = IPAddress.valueOf(random.nextInt());
+		}
+		for (int i = 0; i < size; i++) {
+			String name;
+			do
+				name = name(random);
+			while (!seen.add(name));
+			misses[i] = new URL(name);
+		}
+		int[] order = shuffled(size, random);
+		for (int i = 0; i < size; i++)
+			hits[i] = new URL(names[order[i]]);
+	}
+
+	/**
+	 * Writes the loaded pairs to a temporary file, a host name and an address per
+	 * line like the edoras files, for the benchmarks that read files. The file is
+	 * deleted when the JVM exits.
+	 * @return the file
+	 * @throws IOException if it cannot be written
+	 */
+	Path writeFile() throws IOException {
+		Path path = Files.createTempFile("dns-jmh-", ".ip");
+		path.toFile().deleteOnExit();
+		try (BufferedWriter out = Files.newBufferedWriter(path, StandardCharsets.US_ASCII)) {
+			for (int i = 0; i < urls.length; i++) {
+				out.write(urls[i].toString());
+				out.write(' ');
+				int ip = ips[i].toInt();
+				out.write((ip >>> 24) + "." + ((ip >>> 16) & 0xFF) + "." + ((ip >>> 8) & 0xFF) + "." + (ip & 0xFF));
+				out.write('\n');
+			}
+		}
+		return path;
+	}
+
+	private static String name(Random random) {
+		return WORDS[random.nextInt(WORDS.length)] + random.nextInt(1000000) + "."
+				+ ZONES[random.nextInt(ZONES.length)] + "." + TLDS[random.nextInt(TLDS.length)];
+	}
+
+	/**
+	 * The numbers 0 to n - 1 in a random order
+	 */
+	static int[] shuffled(int n, Random random) {
+		int[] order = new int[n];
+		for (int i = 0; i < n; i++)
+			order[i] = i;
+		for (int i = n - 1; i > 0; i--) {
+			int j = random.nextInt(i + 1);
+			int t = order[i];
+			order[i] = order[j];
+			order[j] = t;
+		}
+		return order;
+	}
+}
@@ -0,0 +1,224 @@
+package benchmarks;
+
+import java.util.HashMap;
+import java.util.TreeMap;
+
+import org.openjdk.jmh.infra.Blackhole;
+
+import data_structures.Hash;
+import data_structures.OpenHash;
+import data_structures.RedBlackTree;
+import dns_resolver.IPAddress;
+import dns_resolver.URL;
+
+/**
+ * The one shape the JMH benchmarks use for every table, so a benchmark is written
+ * once and run against each implementation. A fork only ever makes one kind of
+ * table, so the JIT sees a single subclass at every call and inlines through it.
+ * @author Milad Balkhinezhad
+ */
+abstract class DnsJmhTable {
+
+	/**
+	 * The implementations that can be asked for by name
+	 */
+	static final String HASH = "Hash";
+	static final String OPEN_HASH = "OpenHash";
+	static final String RED_BLACK_TREE = "RedBlackTree";
+	static final String HASH_MAP = "HashMap";
+	static final String TREE_MAP = "TreeMap";
+
+	abstract void add(URL url, IPAddress ip);
+
+	abstract IPAddress get(URL url);
+
+	/**
+	 * Looks up a batch, with getAll where the table has it
+	 * @return the number found
+	 */
+	abstract int getAll(URL[] urls, IPAddress[] out);
+
+	abstract void remove(URL url);
+
+	abstract int size();
+
+	/**
+	 * Walks every key, handing each to the blackhole
+	 */
+	abstract void iterate(Blackhole blackhole);
+
+	/**
+	 * A new empty table
+	 * @param impl one of HASH, OPEN_HASH, RED_BLACK_TREE, HASH_MAP or TREE_MAP
+	 * @return the table
+	 */
+	static DnsJmhTable create(String impl) {
+		switch (impl) {
+		case HASH:
+			return new OfHash();
+		case OPEN_HASH:
+			return new OfOpenHash();
+		case RED_BLACK_TREE:
+			return new OfRedBlackTree();
+		case HASH_MAP:
+			return new OfHashMap();
+		case TREE_MAP:
+			return new OfTreeMap();
+		default:
+			throw new IllegalArgumentException("unknown table: " + impl);
+		}
+	}
+
+	static final class OfHash extends DnsJmhTable {
+		final Hash<URL, IPAddress> table = new Hash<URL, IPAddress>(16);
+
+		void add(URL url, IPAddress ip) {
+			table.add(url, ip);
+		}
+
+		IPAddress get(URL url) {
+			return table.getValue(url);
+		}
+
+		int getAll(URL[] urls, IPAddress[] out) {
+			return table.getAll(urls, out);
+		}
+
+		void remove(URL url) {
+			table.remove(url);
+		}
+
+		int size() {
+			return table.size();
+		}
+
+		void iterate(Blackhole blackhole) {
+			for (URL url : table)
+				blackhole.consume(url);
+		}
+	}
+
+	static final class OfOpenHash extends DnsJmhTable {
+		final OpenHash<URL, IPAddress> table = new OpenHash<URL, IPAddress>(16);
+
+		void add(URL url, IPAddress ip) {
+			table.add(url, ip);
+		}
+
+		IPAddress get(URL url) {
+			return table.getValue(url);
+		}
+
+		int getAll(URL[] urls, IPAddress[] out) {
+			return table.getAll(urls, out);
+		}
+
+		void remove(URL url) {
+			table.remove(url);
+		}
+
+		int size() {
+			return table.size();
+		}
+
+		void iterate(Blackhole blackhole) {
+			for (URL url : table)
+				blackhole.consume(url);
+		}
+	}
+
+	static final class OfRedBlackTree extends DnsJmhTable {
+		final RedBlackTree<URL, IPAddress> table = new RedBlackTree<URL, IPAddress>();
+
+		void add(URL url, IPAddress ip) {
+			table.add(url, ip);
+		}
+
+		IPAddress get(URL url) {
+			return table.getValue(url);
+		}
+
+		int getAll(URL[] urls, IPAddress[] out) {
+			return table.getAll(urls, out);
+		}
+
+		void remove(URL url) {
+			table.remove(url);
+		}
+
+		int size() {
+			return table.size();
+		}
+
+		void iterate(Blackhole blackhole) {
+			for (URL url : table)
+				blackhole.consume(url);
+		}
+	}
+
+	static final class OfHashMap extends DnsJmhTable {
+		final HashMap<URL, IPAddress> table = new HashMap<URL, IPAddress>(16);
+
+		void add(URL url, IPAddress ip) {
+			table.putIfAbsent(url, ip);
+		}
+
+		IPAddress get(URL url) {
+			return table.get(url);
+		}
+
+		int getAll(URL[] urls, IPAddress[] out) {
+			int found = 0;
+			for (int i = 0; i < urls.length; i++)
+				if ((out[i] = table.get(urls[i])) != null)
+					found++;
+			return found;
+		}
+
+		void remove(URL url) {
+			table.remove(url);
+		}
+
+		int size() {
+			return table.size();
+		}
+
+		void iterate(Blackhole blackhole) {
+			for (URL url : table.keySet())
+				blackhole.consume(url);
+		}
+	}
+
+	static final class OfTreeMap extends DnsJmhTable {
+		final TreeMap<URL, IPAddress> table = new TreeMap<URL, IPAddress>();
+
+		void add(URL url, IPAddress ip) {
+			table.putIfAbsent(url, ip);
+		}
+
+		IPAddress get(URL url) {
+			return table.get(url);
+		}
+
+		int getAll(URL[] urls, IPAddress[] out) {
+			int found = 0;
+			for (int i = 0; i < urls.length; i++)
+				if ((out[i] = table.get(urls[i])) != null)
+					found++;
+			return found;
+		}
+
+		void remove(URL url) {
+			table.remove(url);
+		}
+
+		int size() {
+			return table.size();
+		}
+
+		void iterate(Blackhole blackhole) {
+			for (URL url : table.keySet())
+				blackhole.consume(url);
+		}
+	}
+}
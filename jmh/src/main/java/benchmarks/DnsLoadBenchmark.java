@@ -0,0 +1,123 @@
+package benchmarks;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import data_structures.Hash;
+import data_structures.RedBlackTree;
+import dns_resolver.DnsFileLoader;
+import dns_resolver.IPAddress;
+import dns_resolver.RecordSink;
+import dns_resolver.SortedTreeBuilder;
+import dns_resolver.URL;
+import exceptions.FileFormatException;
+
+/**
+ * JMH benchmarks of loading a whole file of DnsJmhData pairs, time per file. The
+ * file is written once per trial and is read from the page cache after the first
+ * warm up, so these measure parsing and the table, not the disk.
+ * <ul>
+ * <li>splitHash: reads lines and splits them, the way the edoras files were first
+ * read, into my Hash</li>
+ * <li>loaderHash: DnsFileLoader on threads threads into my Hash</li>
+ * <li>loaderTreeAdd: DnsFileLoader into my RedBlackTree with add</li>
+ * <li>loaderTreeBuild: DnsFileLoader into a SortedTreeBuilder, which sorts the records
+ * and builds the tree bottom up</li>
+ * </ul>
+ * splitHash does not use threads, so its scores for each value of threads are the same.
+ * @author Milad Balkhinezhad
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+@State(Scope.Benchmark)
+public class DnsLoadBenchmark {
+
+	@Param({ "100000", "1000000" })
+	public int size;
+
+	// 0 for a thread per processor
+	@Param({ "1", "0" })
+	public int threads;
+
+	Path file;
+	DnsFileLoader loader;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		file = new DnsJmhData(size, 42).writeFile();
+		loader = threads == 0 ? new DnsFileLoader() : new DnsFileLoader(threads, DnsFileLoader.DEFAULT_CHUNK_SIZE);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public Hash<URL, IPAddress> splitHash() throws IOException, FileFormatException {
+		Hash<URL, IPAddress> hash = new Hash<URL, IPAddress>(16);
+		String line;
+		try (BufferedReader br = Files.newBufferedReader(file, StandardCharsets.US_ASCII)) {
+			while ((line = br.readLine()) != null) {
+				String[] value = line.split("\\s+");
+				if (value.length != 2)
+					throw new FileFormatException("Incorrect Format");
+				hash.add(new URL(value[0]), IPAddress.valueOf(value[1]));
+			}
+		}
+		return hash;
+	}
+
+	@Benchmark
+	public Hash<URL, IPAddress> loaderHash() throws IOException, FileFormatException {
+		Hash<URL, IPAddress> hash = new Hash<URL, IPAddress>(16);
+		loader.load(file, RecordSink.into(hash));
+		return hash;
+	}
+
+	@Benchmark
+	public RedBlackTree<URL, IPAddress> loaderTreeAdd() throws IOException, FileFormatException {
+		RedBlackTree<URL, IPAddress> tree = new RedBlackTree<URL, IPAddress>();
+		loader.load(file, RecordSink.into(tree));
+		return tree;
+	}
+
+	@Benchmark
+	public RedBlackTree<URL, IPAddress> loaderTreeBuild() throws IOException, FileFormatException {
+		SortedTreeBuilder builder = new SortedTreeBuilder(size);
+		loader.load(file, builder);
+		return builder.build();
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(DnsLoadBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+}
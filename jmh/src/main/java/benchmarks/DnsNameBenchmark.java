@@ -0,0 +1,187 @@
+package benchmarks;
+
+import java.util.Iterator;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import data_structures.Hash;
+import data_structures.RedBlackTree;
+import dns_resolver.HostnameTrie;
+import dns_resolver.IPAddress;
+import dns_resolver.URL;
+
+/**
+ * JMH benchmarks of the ways host names are kept, over the DnsJmhData pairs.
+ * <ul>
+ * <li>stringHash, urlHash, stringTree and urlTree: one lookup in my Hash and my
+ * RedBlackTree keyed by the host name String and keyed by URL. Every lookup uses an
+ * equal copy of the key, not the instance that was added, so each compare has to
+ * look at the characters or bytes.</li>
+ * <li>treeLoad and trieLoad: builds my RedBlackTree and my HostnameTrie of every
+ * name, time per whole table. The names are made in the setup, so with
+ * <code>-prof gc</code> the bytes allocated per operation are the heap each
+ * structure takes.</li>
+ * <li>trieZone and treeScanZone: lists every name in one of ZONES zones (a name with
+ * its first label dropped), with the trie, and by scanning the whole tree</li>
+ * </ul>
+ * Add <code>-prof gc</code> on the command line, or run main here.
+ * @author Milad Balkhinezhad
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+@State(Scope.Benchmark)
+public class DnsNameBenchmark {
+
+	static final int ZONES = 100;
+
+	@Param({ "100000", "1000000" })
+	public int size;
+
+	DnsJmhData data;
+	String[] names;
+	// equal copies of names, in the order of data.hits
+	String[] nameHits;
+	Hash<String, IPAddress> stringHash;
+	Hash<URL, IPAddress> urlHash;
+	RedBlackTree<String, IPAddress> stringTree;
+	RedBlackTree<URL, IPAddress> urlTree;
+	HostnameTrie<IPAddress> trie;
+	URL[] zones;
+	String[] zoneNames;
+	String[] zoneSuffixes;
+	int next;
+	int nextZone;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		data = new DnsJmhData(size, 42);
+		names = new String[size];
+		nameHits = new String[size];
+		stringHash = new Hash<String, IPAddress>(16);
+		urlHash = new Hash<URL, IPAddress>(16);
+		stringTree = new RedBlackTree<String, IPAddress>();
+		urlTree = new RedBlackTree<URL, IPAddress>();
+		for (int i = 0; i < size; i++) {
+			names[i] = data.urls[i].toString();
+			nameHits[i] = data.hits[i].toString();
+			stringHash.add(names[i], data.ips[i]);
+			urlHash.add(data.urls[i], data.ips[i]);
+			stringTree.add(names[i], data.ips[i]);
+			urlTree.add(data.urls[i], data.ips[i]);
+		}
+		trie = trieLoad();
+
+		zones = new URL[ZONES];
+		zoneNames = new String[ZONES];
+		zoneSuffixes = new String[ZONES];
+		for (int i = 0; i < ZONES; i++) {
+			String name = names[i * (size / ZONES)];
+			String zone = name.substring(name.indexOf('.') + 1);
+			zones[i] = new URL(zone);
+			zoneNames[i] = zone;
+			zoneSuffixes[i] = "." + zone;
+		}
+	}
+
+	private int next() {
+		int i = next;
+		if (++next == size)
+			next = 0;
+		return i;
+	}
+
+	private int nextZone() {
+		int i = nextZone;
+		if (++nextZone == ZONES)
+			nextZone = 0;
+		return i;
+	}
+
+	@Benchmark
+	public IPAddress stringHash() {
+		return stringHash.getValue(nameHits[next()]);
+	}
+
+	@Benchmark
+	public IPAddress urlHash() {
+		return urlHash.getValue(data.hits[next()]);
+	}
+
+	@Benchmark
+	public IPAddress stringTree() {
+		return stringTree.getValue(nameHits[next()]);
+	}
+
+	@Benchmark
+	public IPAddress urlTree() {
+		return urlTree.getValue(data.hits[next()]);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public RedBlackTree<URL, IPAddress> treeLoad() {
+		RedBlackTree<URL, IPAddress> tree = new RedBlackTree<URL, IPAddress>();
+		for (int i = 0; i < size; i++)
+			tree.add(data.urls[i], data.ips[i]);
+		return tree;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public HostnameTrie<IPAddress> trieLoad() {
+		HostnameTrie<IPAddress> trie = new HostnameTrie<IPAddress>();
+		for (int i = 0; i < size; i++)
+			trie.add(data.urls[i], data.ips[i]);
+		return trie;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public int trieZone() {
+		int found = 0;
+		for (Iterator<URL> it = trie.subdomains(zones[nextZone()]); it.hasNext(); it.next())
+			found++;
+		return found;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public int treeScanZone() {
+		int zone = nextZone();
+		int found = 0;
+		for (URL url : urlTree) {
+			String name = url.toString();
+			if (name.equals(zoneNames[zone]) || name.endsWith(zoneSuffixes[zone]))
+				found++;
+		}
+		return found;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(DnsNameBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
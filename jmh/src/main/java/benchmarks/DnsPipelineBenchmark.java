@@ -0,0 +1,110 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import data_structures.Hash;
+import data_structures.RedBlackTree;
+import dns_resolver.DnsPipeline;
+import dns_resolver.IPAddress;
+import dns_resolver.RecordSink;
+import dns_resolver.URL;
+import exceptions.FileFormatException;
+
+/**
+ * A JMH benchmark of streaming a file of DnsJmhData pairs through a DnsPipeline as
+ * updates, time per file, into my Hash or into my RedBlackTree, which is the slower
+ * sink. Next to the score it reports, for each iteration, the files streamed and
+ * how long the read stage waited for room in front of apply over those files,
+ * which is how long the sink held the stream back, and how long apply waited for
+ * parse.
+ * @author Milad Balkhinezhad
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 2, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+@State(Scope.Benchmark)
+public class DnsPipelineBenchmark {
+
+	static final String HASH = "Hash";
+	static final String RED_BLACK_TREE = "RedBlackTree";
+
+	@Param({ HASH, RED_BLACK_TREE })
+	public String sink;
+
+	@Param({ "100000", "1000000" })
+	public int size;
+
+	Path file;
+
+	/**
+	 * The stage waits added up over the files streamed in an iteration
+	 */
+	@AuxCounters(AuxCounters.Type.EVENTS)
+	@State(Scope.Thread)
+	public static class StageWaits {
+		public long readWaitMillis;
+		public long applyWaitMillis;
+		public long files;
+
+		@Setup(Level.Iteration)
+		public void reset() {
+			readWaitMillis = 0;
+			applyWaitMillis = 0;
+			files = 0;
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		file = new DnsJmhData(size, 42).writeFile();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		Files.deleteIfExists(file);
+	}
+
+	@Benchmark
+	public long stream(StageWaits waits) throws IOException, FileFormatException, InterruptedException {
+		RecordSink records = sink.equals(HASH) ? RecordSink.replacing(new Hash<URL, IPAddress>(16))
+				: RecordSink.replacing(new RedBlackTree<URL, IPAddress>());
+		DnsPipeline pipeline = new DnsPipeline(records);
+		pipeline.start(Files.newInputStream(file));
+		long applied = pipeline.await();
+		waits.readWaitMillis += pipeline.readStage().waitMillis();
+		waits.applyWaitMillis += pipeline.applyStage().waitMillis();
+		waits.files++;
+		return applied;
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(DnsPipelineBenchmark.class.getSimpleName())
+				.build();
+		new Runner(options).run();
+	}
+}
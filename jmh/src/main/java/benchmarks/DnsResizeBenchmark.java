@@ -0,0 +1,86 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import data_structures.Hash;
+import dns_resolver.IPAddress;
+import dns_resolver.URL;
+
+/**
+ * A JMH benchmark of the time each single add into my Hash takes while the table
+ * grows from INITIAL_SIZE slots to hold all the DnsJmhData pairs, resizing many
+ * times on the way, with resizes done in one go and with incremental resize. Once
+ * every pair is in, the next add starts again on a new table.
+ * <p>
+ * It samples the time of single adds, so JMH reports percentiles: the average is
+ * about the same either way, and the difference is in p0.999 and the slowest add,
+ * which for a resize in one go moves the whole table. Add <code>-prof gc</code> on
+ * the command line, or run main here.
+ * @author Milad Balkhinezhad
+ */
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+@State(Scope.Benchmark)
+public class DnsResizeBenchmark {
+
+	static final int INITIAL_SIZE = 1024;
+
+	@Param({ "false", "true" })
+	public boolean incremental;
+
+	@Param({ "1000000" })
+	public int size;
+
+	DnsJmhData data;
+	Hash<URL, IPAddress> hash;
+	int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		data = new DnsJmhData(size, 42);
+		start();
+	}
+
+	private void start() {
+		hash = new Hash<URL, IPAddress>(INITIAL_SIZE);
+		hash.setIncrementalResize(incremental);
+		next = 0;
+	}
+
+	@Benchmark
+	public boolean add() {
+		if (next == size)
+			start();
+		int i = next++;
+		return hash.add(data.urls[i], data.ips[i]);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(DnsResizeBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
@@ -0,0 +1,121 @@
+package benchmarks;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import data_structures.RedBlackTree;
+import dns_resolver.IPAddress;
+import dns_resolver.MappedDnsSnapshot;
+import dns_resolver.URL;
+import exceptions.FileFormatException;
+
+/**
+ * JMH benchmarks of MappedDnsSnapshot against the RedBlackTree it is saved from,
+ * on the DnsJmhData pairs.
+ * <ul>
+ * <li>save: writes the tree to a snapshot file, time per file</li>
+ * <li>open: maps the snapshot, the cold start it is for. Only the header is read,
+ * so the time does not grow with the file. Compare it with DnsLoadBenchmark, which
+ * loads the same pairs from a text file.</li>
+ * <li>snapshotHit and treeHit: one lookup of a key that is there, in the mapped
+ * snapshot, and in the tree. The file is in the page cache after the warm up.</li>
+ * </ul>
+ * Add <code>-prof gc</code> on the command line, or run main here.
+ * @author Milad Balkhinezhad
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+@State(Scope.Benchmark)
+public class DnsSnapshotBenchmark {
+
+	@Param({ "100000", "1000000" })
+	public int size;
+
+	DnsJmhData data;
+	RedBlackTree<URL, IPAddress> tree;
+	// the snapshot the lookups use, and the one save writes over
+	Path file;
+	Path saved;
+	MappedDnsSnapshot snapshot;
+	int next;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException, FileFormatException {
+		data = new DnsJmhData(size, 42);
+		tree = new RedBlackTree<URL, IPAddress>();
+		for (int i = 0; i < size; i++)
+			tree.add(data.urls[i], data.ips[i]);
+		file = Files.createTempFile("dns-jmh-", ".snapshot");
+		saved = Files.createTempFile("dns-jmh-", ".snapshot");
+		MappedDnsSnapshot.save(tree, file);
+		snapshot = MappedDnsSnapshot.openMapped(file);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		snapshot = null;
+		Files.deleteIfExists(file);
+		Files.deleteIfExists(saved);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public Path save() throws IOException {
+		MappedDnsSnapshot.save(tree, saved);
+		return saved;
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MICROSECONDS)
+	public MappedDnsSnapshot open() throws IOException, FileFormatException {
+		return MappedDnsSnapshot.openMapped(file);
+	}
+
+	@Benchmark
+	public IPAddress snapshotHit() {
+		URL url = data.hits[next];
+		if (++next == size)
+			next = 0;
+		return snapshot.getValue(url);
+	}
+
+	@Benchmark
+	public IPAddress treeHit() {
+		URL url = data.hits[next];
+		if (++next == size)
+			next = 0;
+		return tree.getValue(url);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(DnsSnapshotBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}
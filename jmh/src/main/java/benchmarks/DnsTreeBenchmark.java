@@ -0,0 +1,151 @@
+package benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import data_structures.ArrayRedBlackTree;
+import data_structures.OffHeapRedBlackTree;
+import data_structures.RedBlackI;
+import data_structures.RedBlackTree;
+import dns_resolver.IPAddress;
+import dns_resolver.IPAddressCodec;
+import dns_resolver.URL;
+import dns_resolver.URLCodec;
+
+/**
+ * JMH benchmarks of my three red black trees on the DnsJmhData pairs: RedBlackTree
+ * with a Node object per entry, ArrayRedBlackTree with its nodes in parallel arrays,
+ * and OffHeapRedBlackTree with its nodes in direct buffers.
+ * <ul>
+ * <li>load: builds a tree of size pairs from empty, time per whole tree. The pairs
+ * are made in the setup and shared, so with <code>-prof gc</code> the bytes allocated
+ * per operation are the heap the tree structure takes, and the GC counts and times
+ * show what each tree costs the collector. The direct memory of OffHeapRedBlackTree
+ * is not counted.</li>
+ * <li>hit: one lookup of a key that is in the tree</li>
+ * <li>churn: keeps a window of size / 10 entries, removing the oldest and adding a
+ * new one each operation, so freed nodes are reused all the time</li>
+ * </ul>
+ * Add <code>-prof gc</code> on the command line, or run main here.
+ * @author Milad Balkhinezhad
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = { "-Xms2g", "-Xmx2g" })
+@State(Scope.Benchmark)
+public class DnsTreeBenchmark {
+
+	static final String RED_BLACK_TREE = "RedBlackTree";
+	static final String ARRAY_RED_BLACK_TREE = "ArrayRedBlackTree";
+	static final String OFF_HEAP_RED_BLACK_TREE = "OffHeapRedBlackTree";
+	// the longest host name DnsJmhData makes fits with room to spare
+	private static final int MAX_URL = 64;
+
+	@Param({ RED_BLACK_TREE, ARRAY_RED_BLACK_TREE, OFF_HEAP_RED_BLACK_TREE })
+	public String impl;
+
+	@Param({ "100000", "1000000" })
+	public int size;
+
+	DnsJmhData data;
+	RedBlackI<URL, IPAddress> tree;
+	RedBlackI<URL, IPAddress> window;
+	int windowSize;
+	// the next key for hit, and the oldest key in the window
+	int next;
+	int oldest;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		data = new DnsJmhData(size, 42);
+		windowSize = size / 10;
+		tree = load();
+	}
+
+	/**
+	 * A fresh window before every iteration
+	 */
+	@Setup(Level.Iteration)
+	public void fillWindow() {
+		window = create(impl, windowSize);
+		for (int i = 0; i < windowSize; i++)
+			window.add(data.urls[i], data.ips[i]);
+		oldest = 0;
+	}
+
+	/**
+	 * A new empty tree
+	 * @param impl one of RED_BLACK_TREE, ARRAY_RED_BLACK_TREE or OFF_HEAP_RED_BLACK_TREE
+	 * @param capacity the entries it will hold, where the tree can use it
+	 * @return the tree
+	 */
+	static RedBlackI<URL, IPAddress> create(String impl, int capacity) {
+		switch (impl) {
+		case RED_BLACK_TREE:
+			return new RedBlackTree<URL, IPAddress>();
+		case ARRAY_RED_BLACK_TREE:
+			return new ArrayRedBlackTree<URL, IPAddress>(capacity);
+		case OFF_HEAP_RED_BLACK_TREE:
+			return new OffHeapRedBlackTree<URL, IPAddress>(new URLCodec(MAX_URL), new IPAddressCodec());
+		default:
+			throw new IllegalArgumentException("unknown tree: " + impl);
+		}
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public RedBlackI<URL, IPAddress> load() {
+		RedBlackI<URL, IPAddress> tree = create(impl, size);
+		URL[] urls = data.urls;
+		IPAddress[] ips = data.ips;
+		for (int i = 0; i < urls.length; i++)
+			tree.add(urls[i], ips[i]);
+		return tree;
+	}
+
+	@Benchmark
+	public IPAddress hit() {
+		URL url = data.hits[next];
+		if (++next == size)
+			next = 0;
+		return tree.getValue(url);
+	}
+
+	@Benchmark
+	public boolean churn() {
+		int newest = oldest + windowSize;
+		if (newest >= size)
+			newest -= size;
+		window.remove(data.urls[oldest]);
+		if (++oldest == size)
+			oldest = 0;
+		return window.add(data.urls[newest], data.ips[newest]);
+	}
+
+	public static void main(String[] args) throws RunnerException {
+		Options options = new OptionsBuilder()
+				.include(DnsTreeBenchmark.class.getSimpleName())
+				.addProfiler(GCProfiler.class)
+				.build();
+		new Runner(options).run();
+	}
+}